@@ -85,6 +85,13 @@ public class CheckstyleConfiguration implements BatchExtension {
     return null;
   }
 
+  /**
+   * @since 2.11
+   */
+  public int getThreads() {
+    return conf.getInt(CheckstyleConstants.THREADS_KEY, CheckstyleConstants.THREADS_DEFAULT_VALUE);
+  }
+
   public com.puppycrawl.tools.checkstyle.api.Configuration getCheckstyleConfiguration() throws IOException, CheckstyleException {
     File xmlConfig = getXMLDefinitionFile();
 
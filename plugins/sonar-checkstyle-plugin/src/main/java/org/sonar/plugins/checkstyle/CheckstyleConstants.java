@@ -33,6 +33,14 @@ public final class CheckstyleConstants {
   public static final String GENERATE_XML_KEY = "sonar.checkstyle.generateXml";
   public static final boolean GENERATE_XML_DEFAULT_VALUE = false;
 
+  /**
+   * Number of threads used to analyse the source files of a module, each one with its own Checker.
+   *
+   * @since 2.11
+   */
+  public static final String THREADS_KEY = "sonar.checkstyle.threads";
+  public static final int THREADS_DEFAULT_VALUE = 1;
+
   private CheckstyleConstants() {
   }
 }
@@ -21,17 +21,29 @@ package org.sonar.plugins.checkstyle;
 
 import java.io.File;
 import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import com.google.common.collect.Lists;
 import com.puppycrawl.tools.checkstyle.Checker;
 import com.puppycrawl.tools.checkstyle.PackageNamesLoader;
 import com.puppycrawl.tools.checkstyle.XMLLogger;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.BatchExtension;
 import org.sonar.api.batch.ProjectClasspath;
+import org.sonar.api.utils.ConcurrentUtils;
 import org.sonar.api.utils.SonarException;
 import org.sonar.api.utils.TimeProfiler;
 
@@ -65,24 +77,21 @@ public class CheckstyleExecutor implements BatchExtension {
     Checker checker = null;
     OutputStream xmlOutput = null;
     try {
+      List<File> files = configuration.getSourceFiles();
+      int threads = Math.min(configuration.getThreads(), files.size());
+      if (threads > 1) {
+        executeConcurrently(files, threads);
 
-      checker = new Checker();
-      checker.setClassloader(projectClassloader);
-      checker.setModuleClassLoader(Thread.currentThread().getContextClassLoader());
-      checker.addListener(listener);
-
-      File xmlReport = configuration.getTargetXMLReport();
-      if (xmlReport != null) {
-        LOG.info("Checkstyle output report: " + xmlReport.getAbsolutePath());
-        xmlOutput = FileUtils.openOutputStream(xmlReport);
-        checker.addListener(new XMLLogger(xmlOutput, true));
+      } else {
+        File xmlReport = configuration.getTargetXMLReport();
+        if (xmlReport != null) {
+          LOG.info("Checkstyle output report: " + xmlReport.getAbsolutePath());
+          xmlOutput = FileUtils.openOutputStream(xmlReport);
+        }
+        checker = newChecker(configuration.getCheckstyleConfiguration(), newListeners(xmlOutput));
+        checker.process(files);
       }
 
-      checker.setCharset(configuration.getCharset().name());
-      configureLocale(checker);
-      checker.configure(configuration.getCheckstyleConfiguration());
-      checker.process(configuration.getSourceFiles());
-
       profiler.stop();
 
     } catch (Exception e) {
@@ -97,10 +106,153 @@ public class CheckstyleExecutor implements BatchExtension {
     }
   }
 
+  private List<AuditListener> newListeners(OutputStream xmlOutput) {
+    List<AuditListener> listeners = Lists.<AuditListener>newArrayList(listener);
+    if (xmlOutput != null) {
+      listeners.add(new XMLLogger(xmlOutput, true));
+    }
+    return listeners;
+  }
+
+  private Checker newChecker(Configuration checkstyleConfiguration, List<? extends AuditListener> listeners) throws CheckstyleException {
+    Checker checker = new Checker();
+    checker.setClassloader(projectClassloader);
+    checker.setModuleClassLoader(Thread.currentThread().getContextClassLoader());
+    for (AuditListener auditListener : listeners) {
+      checker.addListener(auditListener);
+    }
+    checker.setCharset(configuration.getCharset().name());
+    configureLocale(checker);
+    checker.configure(checkstyleConfiguration);
+    return checker;
+  }
+
+  /**
+   * Files are sharded across checkers, which are all configured on the current thread. Checkers only record their
+   * events, which are replayed on the current thread once all the files are processed. Violations must not be saved
+   * from worker threads: the sensor can be executed while the index is locked (see sonar.sensors.threads), so the
+   * workers would wait for the sensor, which waits for the workers. The XML report is written by a single logger, like
+   * in the sequential mode.
+   */
+  private void executeConcurrently(List<File> files, int threads) throws Exception {
+    Configuration checkstyleConfiguration = configuration.getCheckstyleConfiguration();
+    List<Checker> checkers = Lists.newArrayList();
+    List<AuditEventRecorder> recorders = Lists.newArrayList();
+    OutputStream xmlOutput = null;
+    ExecutorService executorService = Executors.newFixedThreadPool(threads);
+    try {
+      final ClassLoader moduleClassLoader = Thread.currentThread().getContextClassLoader();
+      List<Future<Integer>> futures = Lists.newArrayList();
+      for (int i = 0; i < threads; i++) {
+        AuditEventRecorder recorder = new AuditEventRecorder();
+        recorders.add(recorder);
+        final Checker checker = newChecker(checkstyleConfiguration, Arrays.asList(recorder));
+        checkers.add(checker);
+
+        final List<File> shard = ConcurrentUtils.shard(files, i, threads);
+        futures.add(executorService.submit(new Callable<Integer>() {
+          public Integer call() {
+            Thread.currentThread().setContextClassLoader(moduleClassLoader);
+            return checker.process(shard);
+          }
+        }));
+      }
+      for (Future<Integer> future : futures) {
+        ConcurrentUtils.getResult(future, "Can not execute Checkstyle");
+      }
+
+      File xmlReport = configuration.getTargetXMLReport();
+      if (xmlReport != null) {
+        LOG.info("Checkstyle output report: " + xmlReport.getAbsolutePath());
+        xmlOutput = FileUtils.openOutputStream(xmlReport);
+      }
+      List<AuditListener> listeners = newListeners(xmlOutput);
+      AuditEvent audit = new AuditEvent(this);
+      for (AuditListener auditListener : listeners) {
+        auditListener.auditStarted(audit);
+      }
+      for (AuditEventRecorder recorder : recorders) {
+        recorder.replay(listeners);
+      }
+      for (AuditListener auditListener : listeners) {
+        auditListener.auditFinished(audit);
+      }
+
+    } finally {
+      executorService.shutdownNow();
+      for (Checker checker : checkers) {
+        checker.destroy();
+      }
+      IOUtils.closeQuietly(xmlOutput);
+    }
+  }
+
   private void configureLocale(Checker checker) {
     Locale locale = configuration.getLocale();
     checker.setLocaleLanguage(locale.getLanguage());
     checker.setLocaleCountry(locale.getCountry());
   }
 
+  /**
+   * Records the file events of a checker. The audit start and end are notified once for all the checkers.
+   */
+  private static final class AuditEventRecorder implements AuditListener {
+    private final List<AuditEvent> events = Lists.newArrayList();
+    private final List<EventType> types = Lists.newArrayList();
+    private final List<Throwable> throwables = Lists.newArrayList();
+
+    private enum EventType {
+      FILE_STARTED, FILE_FINISHED, ERROR, EXCEPTION
+    }
+
+    public void auditStarted(AuditEvent event) {
+    }
+
+    public void auditFinished(AuditEvent event) {
+    }
+
+    public void fileStarted(AuditEvent event) {
+      record(EventType.FILE_STARTED, event, null);
+    }
+
+    public void fileFinished(AuditEvent event) {
+      record(EventType.FILE_FINISHED, event, null);
+    }
+
+    public void addError(AuditEvent event) {
+      record(EventType.ERROR, event, null);
+    }
+
+    public void addException(AuditEvent event, Throwable throwable) {
+      record(EventType.EXCEPTION, event, throwable);
+    }
+
+    private void record(EventType type, AuditEvent event, Throwable throwable) {
+      types.add(type);
+      events.add(event);
+      throwables.add(throwable);
+    }
+
+    void replay(List<AuditListener> listeners) {
+      for (int i = 0; i < events.size(); i++) {
+        AuditEvent event = events.get(i);
+        for (AuditListener listener : listeners) {
+          switch (types.get(i)) {
+            case FILE_STARTED:
+              listener.fileStarted(event);
+              break;
+            case FILE_FINISHED:
+              listener.fileFinished(event);
+              break;
+            case ERROR:
+              listener.addError(event);
+              break;
+            default:
+              listener.addException(event, throwables.get(i));
+          }
+        }
+      }
+    }
+  }
+
 }
\ No newline at end of file
@@ -68,6 +68,31 @@ public class CheckstyleExecutorTest {
     assertThat(FileUtils.readFileToString(report), containsString("<error"));
   }
 
+  @Test
+  public void executeConcurrentlyAndMergeXMLReports() throws Exception {
+    CheckstyleConfiguration conf = mockConf();
+    when(conf.getThreads()).thenReturn(2);
+    File report = new File("target/test-tmp/checkstyle-report-concurrent.xml");
+    when(conf.getTargetXMLReport()).thenReturn(report);
+    CheckstyleAuditListener listener = mockListener();
+    CheckstyleExecutor executor = new CheckstyleExecutor(conf, listener, getClass().getClassLoader());
+    executor.execute();
+
+    verify(listener, times(1)).auditStarted((AuditEvent) anyObject());
+    verify(listener, times(1)).auditFinished((AuditEvent) anyObject());
+    verify(listener, times(1)).fileStarted(argThat(newFilenameMatcher("Hello.java")));
+    verify(listener, times(1)).fileFinished(argThat(newFilenameMatcher("Hello.java")));
+    verify(listener, times(1)).fileStarted(argThat(newFilenameMatcher("World.java")));
+    verify(listener, times(1)).fileFinished(argThat(newFilenameMatcher("World.java")));
+    verify(listener, atLeast(1)).addError(argThat(newErrorMatcher("Hello.java", "com.puppycrawl.tools.checkstyle.checks.coding.EmptyStatementCheck")));
+
+    String xml = FileUtils.readFileToString(report);
+    assertThat(StringUtils.countMatches(xml, "<checkstyle"), is(1));
+    assertThat(StringUtils.countMatches(xml, "</checkstyle>"), is(1));
+    assertThat(StringUtils.countMatches(xml, "<file "), is(2));
+    assertThat(xml, containsString("<error"));
+  }
+
   private BaseMatcher<AuditEvent> newErrorMatcher(final String filename, final String rule) {
     return new BaseMatcher<AuditEvent>(){
       public boolean matches(Object o) {
@@ -0,0 +1,83 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.checkstyle;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.profiles.RulesProfile;
+import org.sonar.api.resources.Project;
+import org.sonar.api.resources.ProjectFileSystem;
+import org.sonar.api.rules.Rule;
+import org.sonar.api.rules.RuleFinder;
+import org.sonar.api.rules.Violation;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Locale;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class CheckstyleSensorTest {
+
+  /**
+   * Violations are saved on the thread of the sensor, so Checkstyle workers never wait for a lock held by this thread,
+   * like the lock of the index when sensors are executed concurrently (sonar.sensors.threads).
+   */
+  @Test(timeout = 10000)
+  public void shouldSaveViolationsOnSensorThreadWhenCheckstyleIsConcurrent() throws Exception {
+    final Object index = new Object();
+    SensorContext context = mock(SensorContext.class);
+    doAnswer(new Answer<Object>() {
+      public Object answer(InvocationOnMock invocation) {
+        synchronized (index) {
+          return null;
+        }
+      }
+    }).when(context).saveViolation(any(Violation.class));
+
+    Project project = mock(Project.class);
+    ProjectFileSystem fileSystem = mock(ProjectFileSystem.class);
+    when(fileSystem.getSourceDirs()).thenReturn(Arrays.asList(new File("test-resources")));
+    when(project.getFileSystem()).thenReturn(fileSystem);
+    RuleFinder ruleFinder = mock(RuleFinder.class);
+    when(ruleFinder.findByKey(eq(CheckstyleConstants.REPOSITORY_KEY), anyString())).thenReturn(Rule.create(CheckstyleConstants.REPOSITORY_KEY, "key", "name"));
+    CheckstyleAuditListener listener = new CheckstyleAuditListener(context, project, ruleFinder);
+
+    CheckstyleConfiguration conf = mock(CheckstyleConfiguration.class);
+    when(conf.getCharset()).thenReturn(Charset.defaultCharset());
+    when(conf.getCheckstyleConfiguration()).thenReturn(CheckstyleConfiguration.toCheckstyleConfiguration(new File("test-resources/checkstyle-conf.xml")));
+    when(conf.getSourceFiles()).thenReturn(Arrays.<File>asList(new File("test-resources/Hello.java"), new File("test-resources/World.java")));
+    when(conf.getLocale()).thenReturn(Locale.ENGLISH);
+    when(conf.getThreads()).thenReturn(2);
+    CheckstyleSensor sensor = new CheckstyleSensor(RulesProfile.create(), new CheckstyleExecutor(conf, listener, getClass().getClassLoader()));
+
+    synchronized (index) {
+      sensor.analyse(project, context);
+    }
+
+    verify(context, atLeastOnce()).saveViolation(any(Violation.class));
+  }
+}
@@ -20,7 +20,11 @@
 package org.sonar.plugins.core.sensors;
 
 import java.util.List;
+import java.util.Map;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.configuration.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.Decorator;
@@ -47,6 +51,17 @@ import org.sonar.jpa.entity.Review;
 @DependsUpon(DecoratorBarriers.END_OF_VIOLATION_TRACKING)
 public class CloseReviewsDecorator implements Decorator {
 
+  /**
+   * When enabled, the reviews of the whole project tree are closed and reopened by a few set-based statements when
+   * the root project is decorated, instead of several statements per resource.
+   *
+   * @since 2.11
+   */
+  public static final String BULK_PROPERTY = "sonar.reviews.bulkUpdate";
+  public static final boolean BULK_DEFAULT_VALUE = false;
+
+  private static final int NOTIFICATION_BATCH_SIZE = 500;
+
   private static final Logger LOG = LoggerFactory.getLogger(CloseReviewsDecorator.class);
 
   private Project project;
@@ -54,6 +69,7 @@ public class CloseReviewsDecorator implements Decorator {
   private DatabaseSession databaseSession;
   private NotificationManager notificationManager;
   private UserFinder userFinder;
+  private boolean bulk = BULK_DEFAULT_VALUE;
 
   public CloseReviewsDecorator(Project project, ResourcePersister resourcePersister, DatabaseSession databaseSession,
                                NotificationManager notificationManager, UserFinder userFinder) {
@@ -64,11 +80,28 @@ public class CloseReviewsDecorator implements Decorator {
     this.userFinder = userFinder;
   }
 
+  public CloseReviewsDecorator(Project project, ResourcePersister resourcePersister, DatabaseSession databaseSession,
+                               NotificationManager notificationManager, UserFinder userFinder, Configuration configuration) {
+    this(project, resourcePersister, databaseSession, notificationManager, userFinder);
+    this.bulk = configuration.getBoolean(BULK_PROPERTY, BULK_DEFAULT_VALUE);
+  }
+
+  CloseReviewsDecorator setBulk(boolean b) {
+    this.bulk = b;
+    return this;
+  }
+
   public boolean shouldExecuteOnProject(Project project) {
     return project.isLatestAnalysis();
   }
 
   public void decorate(Resource resource, DecoratorContext context) {
+    if (bulk) {
+      if (ResourceUtils.isRootProject(resource)) {
+        decorateProjectTree(resource);
+      }
+      return;
+    }
     Snapshot currentSnapshot = resourcePersister.getSnapshot(resource);
     if (currentSnapshot != null) {
       int resourceId = currentSnapshot.getResourceId();
@@ -84,6 +117,76 @@ public class CloseReviewsDecorator implements Decorator {
     }
   }
 
+  private void decorateProjectTree(Resource rootProject) {
+    Snapshot rootSnapshot = resourcePersister.getSnapshot(rootProject);
+    if (rootSnapshot != null) {
+      closeReviewsOfProjectTree(rootSnapshot.getId());
+      reopenReviewsOfProjectTree(rootSnapshot.getId());
+      closeReviewsForDeletedResources(rootSnapshot.getResourceId(), rootSnapshot.getId());
+
+      databaseSession.commit();
+    }
+  }
+
+  /**
+   * Close reviews for which violations have been fixed, on all the resources analysed with the given root snapshot.
+   */
+  protected int closeReviewsOfProjectTree(int rootSnapshotId) {
+    String conditions = " WHERE reviews.status!='CLOSED' AND reviews.resource_id IN " + resourcesOfProjectTree(rootSnapshotId)
+        + " AND reviews.rule_failure_permanent_id NOT IN (SELECT f.permanent_id FROM rule_failures f, snapshots s"
+        + " WHERE f.snapshot_id=s.id AND s.project_id=reviews.resource_id AND (s.root_snapshot_id=" + rootSnapshotId
+        + " OR s.id=" + rootSnapshotId + ") AND f.permanent_id IS NOT NULL)";
+    notifyByBatches(conditions, true);
+    int rowUpdated = databaseSession.createNativeQuery("UPDATE reviews SET status='CLOSED', updated_at=CURRENT_TIMESTAMP" + conditions).executeUpdate();
+    LOG.debug("- {} reviews set to 'closed' on root snapshot #{}", rowUpdated, rootSnapshotId);
+    return rowUpdated;
+  }
+
+  /**
+   * Reopen reviews that had been set to resolved but for which the violation is still here, on all the resources analysed
+   * with the given root snapshot.
+   */
+  protected int reopenReviewsOfProjectTree(int rootSnapshotId) {
+    String conditions = " WHERE reviews.status='RESOLVED' AND reviews.resolution<>'FALSE-POSITIVE' AND reviews.resource_id IN "
+        + resourcesOfProjectTree(rootSnapshotId);
+    notifyByBatches(conditions, false);
+    int rowUpdated = databaseSession.createNativeQuery("UPDATE reviews SET status='REOPENED', resolution=NULL, updated_at=CURRENT_TIMESTAMP" + conditions).executeUpdate();
+    LOG.debug("- {} reviews set to 'reopened' on root snapshot #{}", rowUpdated, rootSnapshotId);
+    return rowUpdated;
+  }
+
+  private static String resourcesOfProjectTree(int rootSnapshotId) {
+    return "(SELECT tree.project_id FROM snapshots tree WHERE tree.root_snapshot_id=" + rootSnapshotId + " OR tree.id=" + rootSnapshotId + ")";
+  }
+
+  /**
+   * Only the ids of the reviews and the names of their resources are loaded at once. Review entities are loaded and
+   * released batch by batch.
+   */
+  private void notifyByBatches(String conditions, boolean closed) {
+    List<Object[]> rows = databaseSession.createNativeQuery("SELECT reviews.id, projects.long_name FROM reviews"
+        + " LEFT OUTER JOIN projects ON projects.id=reviews.resource_id" + conditions).getResultList();
+    for (int from = 0; from < rows.size(); from += NOTIFICATION_BATCH_SIZE) {
+      Map<Long, String> resourceNamesByReviewId = Maps.newHashMap();
+      for (Object[] row : rows.subList(from, Math.min(from + NOTIFICATION_BATCH_SIZE, rows.size()))) {
+        resourceNamesByReviewId.put(((Number) row[0]).longValue(), (String) row[1]);
+      }
+      List<Review> reviews = databaseSession.createQuery("FROM " + Review.class.getSimpleName() + " r WHERE r.id IN (:ids)")
+          .setParameter("ids", Lists.newArrayList(resourceNamesByReviewId.keySet()))
+          .getResultList();
+      for (Review review : reviews) {
+        String resourceName = resourceNamesByReviewId.get(review.getId());
+        if (closed) {
+          notifyClosed(resourceName, review);
+        } else {
+          notifyReopened(resourceName, review);
+        }
+      }
+      // reviews are not modified, they are only detached from the session
+      databaseSession.commit();
+    }
+  }
+
   /**
    * Close reviews for which violations have been fixed.
    */
@@ -126,7 +229,7 @@ public class CloseReviewsDecorator implements Decorator {
         .setParameter(1, Boolean.TRUE)
         .getResultList();
     for (Review review : reviews) {
-      notifyClosed(null, review);
+      notifyClosed((Resource) null, review);
     }
     int rowUpdated = databaseSession.createNativeQuery("UPDATE reviews SET status='CLOSED', updated_at=CURRENT_TIMESTAMP" + conditions)
         .setParameter(1, Boolean.TRUE)
@@ -152,7 +255,11 @@ public class CloseReviewsDecorator implements Decorator {
   }
 
   void notifyReopened(Resource resource, Review review) {
-    Notification notification = createReviewNotification(resource, review)
+    notifyReopened(resource != null ? resource.getLongName() : null, review);
+  }
+
+  private void notifyReopened(String resourceName, Review review) {
+    Notification notification = createReviewNotification(resourceName, review)
         .setFieldValue("old.status", review.getStatus())
         .setFieldValue("new.status", "REOPENED")
         .setFieldValue("old.resolution", review.getResolution())
@@ -161,17 +268,21 @@ public class CloseReviewsDecorator implements Decorator {
   }
 
   void notifyClosed(Resource resource, Review review) {
-    Notification notification = createReviewNotification(resource, review)
+    notifyClosed(resource != null ? resource.getLongName() : null, review);
+  }
+
+  private void notifyClosed(String resourceName, Review review) {
+    Notification notification = createReviewNotification(resourceName, review)
         .setFieldValue("old.status", review.getStatus())
         .setFieldValue("new.status", "CLOSED");
     notificationManager.scheduleForSending(notification);
   }
 
-  private Notification createReviewNotification(Resource resource, Review review) {
+  private Notification createReviewNotification(String resourceName, Review review) {
     return new Notification("review-changed")
         .setFieldValue("reviewId", String.valueOf(review.getId()))
         .setFieldValue("project", project.getRoot().getLongName())
-        .setFieldValue("resource", resource != null ? resource.getLongName() : null)
+        .setFieldValue("resource", resourceName)
         .setFieldValue("title", review.getTitle())
         .setFieldValue("creator", getCreator(review))
         .setFieldValue("assignee", getAssignee(review));
@@ -19,26 +19,59 @@
  */
 package org.sonar.plugins.core.timemachine;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.configuration.Configuration;
 import org.sonar.api.BatchExtension;
 import org.sonar.api.database.DatabaseSession;
 import org.sonar.api.database.model.ResourceModel;
 import org.sonar.api.database.model.RuleFailureModel;
 import org.sonar.api.database.model.Snapshot;
+import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
 
 import javax.persistence.Query;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 public class ReferenceAnalysis implements BatchExtension {
 
+  /**
+   * When enabled, the violations of the last analysis of all the resources of the module are loaded by a single query,
+   * instead of two queries per resource. The violations of a resource are released once they have been read.
+   *
+   * @since 2.11
+   */
+  public static final String PRELOAD_PROPERTY = "sonar.violations.preloadReferenceViolations";
+  public static final boolean PRELOAD_DEFAULT_VALUE = false;
+
   private DatabaseSession session;
+  private Project project;
+  private boolean preload = PRELOAD_DEFAULT_VALUE;
+  private Map<String, List<RuleFailureModel>> preloadedViolationsByResourceKey;
 
   public ReferenceAnalysis(DatabaseSession session) {
     this.session = session;
   }
 
+  public ReferenceAnalysis(DatabaseSession session, Project project, Configuration configuration) {
+    this(session);
+    this.project = project;
+    this.preload = configuration.getBoolean(PRELOAD_PROPERTY, PRELOAD_DEFAULT_VALUE);
+  }
+
+  ReferenceAnalysis setPreload(Project project, boolean b) {
+    this.project = project;
+    this.preload = b;
+    return this;
+  }
+
   public List<RuleFailureModel> getViolations(Resource resource) {
+    if (preload && project != null && project.getId() != null) {
+      return getPreloadedViolations(resource.getEffectiveKey());
+    }
     Snapshot snapshot = getSnapshot(resource);
     if (snapshot != null) {
       return session.getResults(RuleFailureModel.class, "snapshotId", snapshot.getId());
@@ -46,6 +79,52 @@ public class ReferenceAnalysis implements BatchExtension {
     return Collections.emptyList();
   }
 
+  /**
+   * Each resource is tracked once, so its violations are removed from the cache when they are returned.
+   */
+  synchronized List<RuleFailureModel> getPreloadedViolations(String resourceKey) {
+    if (preloadedViolationsByResourceKey == null) {
+      preloadedViolationsByResourceKey = loadViolations(project.getId());
+    }
+    List<RuleFailureModel> violations = preloadedViolationsByResourceKey.remove(resourceKey);
+    if (violations == null) {
+      return Collections.emptyList();
+    }
+    return violations;
+  }
+
+  private Map<String, List<RuleFailureModel>> loadViolations(Integer projectId) {
+    Query query = session.createQuery("select r.key, f from " + RuleFailureModel.class.getSimpleName() + " f, "
+        + Snapshot.class.getSimpleName() + " s, " + ResourceModel.class.getSimpleName() + " r "
+        + "where f.snapshotId=s.id and s.resourceId=r.id and s.last=true and (r.rootId=:projectId or r.id=:projectId) "
+        + "order by s.resourceId");
+    query.setParameter("projectId", projectId);
+
+    Map<String, List<RuleFailureModel>> violationsByResourceKey = Maps.newHashMap();
+    String currentKey = null;
+    ArrayList<RuleFailureModel> currentViolations = null;
+    for (Object row : query.getResultList()) {
+      Object[] fields = (Object[]) row;
+      String key = (String) fields[0];
+      if (!key.equals(currentKey)) {
+        // rows are ordered by resource, so the previous group is complete
+        trimAndPut(violationsByResourceKey, currentKey, currentViolations);
+        currentKey = key;
+        currentViolations = Lists.newArrayList();
+      }
+      currentViolations.add((RuleFailureModel) fields[1]);
+    }
+    trimAndPut(violationsByResourceKey, currentKey, currentViolations);
+    return violationsByResourceKey;
+  }
+
+  private static void trimAndPut(Map<String, List<RuleFailureModel>> map, String key, ArrayList<RuleFailureModel> violations) {
+    if (key != null) {
+      violations.trimToSize();
+      map.put(key, violations);
+    }
+  }
+
   Snapshot getSnapshot(Resource resource) {
     Query query = session.createQuery("from " + Snapshot.class.getSimpleName() + " s where s.last=true and s.resourceId=(select r.id from "
         + ResourceModel.class.getSimpleName() + " r where r.key=:key)");
@@ -22,13 +22,29 @@ package org.sonar.plugins.core.timemachine;
 import com.google.common.collect.Lists;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang.StringUtils;
+import org.sonar.api.database.model.RuleFailureModel;
+import org.sonar.batch.index.LineHashes;
 
+import java.util.Collection;
 import java.util.List;
 
+/**
+ * Line checksums are used to track violations when lines move. Two formats are supported :
+ * <ul>
+ * <li>legacy checksums, the MD5 hexadecimal digest of the line without spaces</li>
+ * <li>checksums prefixed by {@link #HASH_CHECKSUM_PREFIX}, the 64 bits FNV-1a hash of the line without spaces (see {@link LineHashes}).
+ * They are cached by the index when sources are saved.</li>
+ * </ul>
+ */
 public final class SourceChecksum {
 
   private static final String SPACE_CHARS = "\t\n\r ";
 
+  /**
+   * Version marker of hash checksums. It can't be confused with a MD5 hexadecimal digest.
+   */
+  static final String HASH_CHECKSUM_PREFIX = "h1:";
+
   private SourceChecksum() {
     // only static methods
   }
@@ -49,4 +65,30 @@ public final class SourceChecksum {
     return DigestUtils.md5Hex(reducedLine);
   }
 
+  /**
+   * Lines are split the same way than {@link #lineChecksumsOfFile(String)} : on CRLF, LF or CR.
+   *
+   * @return the hash of each line, or an empty array if the source is null
+   * @see LineHashes
+   */
+  public static long[] lineHashesOfFile(String file) {
+    return LineHashes.of(file);
+  }
+
+  public static String hashChecksum(long hash) {
+    return HASH_CHECKSUM_PREFIX + Long.toHexString(hash);
+  }
+
+  /**
+   * Violations saved by previous versions have legacy checksums. Tracking must compute checksums in the same format.
+   */
+  public static boolean hasLegacyChecksum(Collection<RuleFailureModel> violations) {
+    for (RuleFailureModel violation : violations) {
+      if (violation.getChecksum() != null && !violation.getChecksum().startsWith(HASH_CHECKSUM_PREFIX)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
 }
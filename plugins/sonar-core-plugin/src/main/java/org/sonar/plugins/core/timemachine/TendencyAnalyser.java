@@ -37,7 +37,34 @@ public class TendencyAnalyser {
     return null;
   }
 
+  /**
+   * @param values
+   *          values in chronological order, missing values are {@link Double#NaN}
+   * @param size
+   *          number of values to analyse
+   * @since 2.11
+   */
+  public Integer analyseLevel(double[] values, int size) {
+    TendencyAnalyser.SlopeData slopeData = analyse(values, size);
+    if (slopeData != null) {
+      return slopeData.getLevel();
+    }
+    return null;
+  }
+
   public SlopeData analyse(List<Double> values) {
+    double[] array = new double[values.size()];
+    int i = 0;
+    for (Double value : values) {
+      array[i++] = (value == null ? Double.NaN : value);
+    }
+    return analyse(array, array.length);
+  }
+
+  /**
+   * @since 2.11
+   */
+  public SlopeData analyse(double[] values, int size) {
     double sumY = 0.0;
     double sumX = 0.0;
     double sumYPower2 = 0.0;
@@ -45,9 +72,9 @@ public class TendencyAnalyser {
     double sumXPower2 = 0.0;
     int nbrPoints = 0;
     boolean nullValuesYList = true;
-    int i = 0;
-    for (Double p : values) {
-      if (p != null) {
+    for (int i = 0; i < size; i++) {
+      double p = values[i];
+      if (!Double.isNaN(p)) {
         nullValuesYList = false;
         //SumY calculation
         sumY += p;
@@ -62,7 +89,6 @@ public class TendencyAnalyser {
         //Point number calculation
         nbrPoints++;
       }
-      i++;
     }
     // no tendency if null values or only 1 value
     if (nullValuesYList || nbrPoints == 1) {
@@ -25,6 +25,7 @@ import com.google.common.collect.Lists;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.time.DateUtils;
 import org.sonar.api.batch.*;
+import org.sonar.api.database.DatabaseSession;
 import org.sonar.api.measures.Measure;
 import org.sonar.api.measures.Metric;
 import org.sonar.api.measures.MetricFinder;
@@ -47,6 +48,14 @@ public class TendencyDecorator implements Decorator {
   private TendencyAnalyser analyser;
   private TimeMachineConfiguration configuration;
   private List<Metric> metrics;
+  private DatabaseSession session;
+  private TendencyValues pastValues;
+
+  public TendencyDecorator(TimeMachine timeMachine, MetricFinder metricFinder, TimeMachineConfiguration configuration,
+                           DatabaseSession session) {
+    this(timeMachine, metricFinder, configuration);
+    this.session = session;
+  }
 
   public TendencyDecorator(TimeMachine timeMachine, MetricFinder metricFinder, TimeMachineConfiguration configuration) {
     this.timeMachine = timeMachine;
@@ -67,6 +76,13 @@ public class TendencyDecorator implements Decorator {
     this.configuration = configuration;
   }
 
+  TendencyDecorator(DatabaseSession session, List<Metric> metrics, TendencyAnalyser analyser, TimeMachineConfiguration configuration) {
+    this.session = session;
+    this.metrics = metrics;
+    this.analyser = analyser;
+    this.configuration = configuration;
+  }
+
   @DependsUpon
   public List<Metric> dependsUponMetrics() {
     return metrics;
@@ -96,22 +112,51 @@ public class TendencyDecorator implements Decorator {
 
   public void decorate(Resource resource, DecoratorContext context) {
     if (shouldDecorateResource(resource)) {
-      resetQuery(context.getProject(), resource);
-      List<Object[]> fields = timeMachine.getMeasuresFields(query);
-      ListMultimap<Metric, Double> valuesPerMetric = ArrayListMultimap.create();
-      for (Object[] field : fields) {
-        valuesPerMetric.put((Metric) field[1], (Double) field[2]);
+      if (session != null && resource.getId() != null && configuration.isTendencyPreloadEnabled()) {
+        decorateWithPastValues(resource, context);
+      } else {
+        decorateWithTimeMachine(resource, context);
       }
+    }
+  }
+
+  private void decorateWithPastValues(Resource resource, DecoratorContext context) {
+    TendencyValues values = getPastValues(context.getProject());
+    for (Metric metric : metrics) {
+      Measure measure = context.getMeasure(metric);
+      if (measure != null) {
+        double[] series = values.getValues(resource.getId(), metric.getId(), measure.getValue());
+        measure.setTendency(analyser.analyseLevel(series, series.length));
+        context.saveMeasure(measure);
+      }
+    }
+  }
+
+  private synchronized TendencyValues getPastValues(Project project) {
+    if (pastValues == null) {
+      int days = configuration.getTendencyPeriodInDays();
+      pastValues = TendencyValues.load(session, project, metrics, DateUtils.addDays(project.getAnalysisDate(), -days),
+          project.getAnalysisDate());
+    }
+    return pastValues;
+  }
+
+  private void decorateWithTimeMachine(Resource resource, DecoratorContext context) {
+    resetQuery(context.getProject(), resource);
+    List<Object[]> fields = timeMachine.getMeasuresFields(query);
+    ListMultimap<Metric, Double> valuesPerMetric = ArrayListMultimap.create();
+    for (Object[] field : fields) {
+      valuesPerMetric.put((Metric) field[1], (Double) field[2]);
+    }
 
-      for (Metric metric : query.getMetrics()) {
-        Measure measure = context.getMeasure(metric);
-        if (measure != null) {
-          List<Double> values = valuesPerMetric.get(metric);
-          values.add(measure.getValue());
+    for (Metric metric : query.getMetrics()) {
+      Measure measure = context.getMeasure(metric);
+      if (measure != null) {
+        List<Double> values = valuesPerMetric.get(metric);
+        values.add(measure.getValue());
 
-          measure.setTendency(analyser.analyseLevel(valuesPerMetric.get(metric)));
-          context.saveMeasure(measure);
-        }
+        measure.setTendency(analyser.analyseLevel(valuesPerMetric.get(metric)));
+        context.saveMeasure(measure);
       }
     }
   }
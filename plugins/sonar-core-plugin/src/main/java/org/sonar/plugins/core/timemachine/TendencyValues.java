@@ -0,0 +1,121 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.core.timemachine;
+
+import com.google.common.collect.Maps;
+import org.sonar.api.database.DatabaseSession;
+import org.sonar.api.database.model.MeasureModel;
+import org.sonar.api.database.model.ResourceModel;
+import org.sonar.api.database.model.Snapshot;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.resources.Project;
+import org.sonar.api.resources.Qualifiers;
+import org.sonar.api.resources.Scopes;
+
+import javax.persistence.Query;
+import java.util.*;
+
+/**
+ * Past values of the numeric measures of a module and of its directories, loaded with a single query. Values are
+ * stored in chronological order as arrays of primitive values per resource and metric, missing values being
+ * {@link Double#NaN}.
+ *
+ * @since 2.11
+ */
+final class TendencyValues {
+
+  private static final double[] EMPTY = new double[0];
+
+  private final Map<Long, Series> seriesByResourceAndMetric = Maps.newHashMap();
+
+  static TendencyValues load(DatabaseSession session, Project project, Collection<Metric> metrics, Date from, Date to) {
+    TendencyValues values = new TendencyValues();
+    if (project.getId() == null || metrics.isEmpty()) {
+      return values;
+    }
+    List<Integer> metricIds = new ArrayList<Integer>();
+    for (Metric metric : metrics) {
+      metricIds.add(metric.getId());
+    }
+
+    Query query = session.createQuery(
+        "SELECT s.resourceId, m.metricId, m.value FROM " + MeasureModel.class.getSimpleName() + " m, "
+            + Snapshot.class.getSimpleName() + " s, " + ResourceModel.class.getSimpleName() + " r "
+            + "WHERE m.snapshotId=s.id AND s.resourceId=r.id AND (r.id=:projectId OR (r.rootId=:projectId AND s.scope=:dir)) "
+            + "AND s.status=:status AND m.characteristic IS NULL AND s.qualifier<>:lib AND m.ruleId IS NULL "
+            + "AND m.rulePriority IS NULL AND m.metricId IN (:metricIds) AND s.createdAt>=:from AND s.createdAt<=:to "
+            + "ORDER BY s.createdAt");
+    query.setParameter("projectId", project.getId());
+    query.setParameter("dir", Scopes.DIRECTORY);
+    query.setParameter("status", Snapshot.STATUS_PROCESSED);
+    query.setParameter("lib", Qualifiers.LIBRARY);
+    query.setParameter("metricIds", metricIds);
+    query.setParameter("from", from);
+    query.setParameter("to", to);
+
+    for (Object row : query.getResultList()) {
+      Object[] fields = (Object[]) row;
+      Double value = (Double) fields[2];
+      values.add((Integer) fields[0], (Integer) fields[1], value == null ? Double.NaN : value);
+    }
+    return values;
+  }
+
+  void add(int resourceId, int metricId, double value) {
+    Long key = key(resourceId, metricId);
+    Series series = seriesByResourceAndMetric.get(key);
+    if (series == null) {
+      series = new Series();
+      seriesByResourceAndMetric.put(key, series);
+    }
+    series.add(value);
+  }
+
+  /**
+   * @return a new array containing the past values followed by the current value
+   */
+  double[] getValues(int resourceId, int metricId, Double currentValue) {
+    Series series = seriesByResourceAndMetric.get(key(resourceId, metricId));
+    double[] pastValues = (series == null ? EMPTY : series.values);
+    int size = (series == null ? 0 : series.size);
+    double[] result = new double[size + 1];
+    System.arraycopy(pastValues, 0, result, 0, size);
+    result[size] = (currentValue == null ? Double.NaN : currentValue);
+    return result;
+  }
+
+  private static Long key(int resourceId, int metricId) {
+    return ((long) resourceId << 32) | (metricId & 0xFFFFFFFFL);
+  }
+
+  private static final class Series {
+    private double[] values = new double[8];
+    private int size = 0;
+
+    void add(double value) {
+      if (size == values.length) {
+        double[] newValues = new double[size << 1];
+        System.arraycopy(values, 0, newValues, 0, size);
+        values = newValues;
+      }
+      values[size++] = value;
+    }
+  }
+}
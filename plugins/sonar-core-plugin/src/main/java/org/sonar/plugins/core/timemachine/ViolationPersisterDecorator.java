@@ -19,7 +19,9 @@
  */
 package org.sonar.plugins.core.timemachine;
 
+import org.apache.commons.configuration.Configuration;
 import org.sonar.api.batch.*;
+import org.sonar.api.database.DatabaseProperties;
 import org.sonar.api.database.DatabaseSession;
 import org.sonar.api.database.model.RuleFailureModel;
 import org.sonar.api.database.model.Snapshot;
@@ -42,6 +44,8 @@ public class ViolationPersisterDecorator implements Decorator {
   private ResourcePersister persister;
   private RuleFinder ruleFinder;
   private DatabaseSession session;
+  private int bulkCommitSize = DatabaseProperties.PROP_BULK_COMMIT_SIZE_DEFAULT_VALUE;
+  private int uncommittedViolations = 0;
 
   public ViolationPersisterDecorator(ViolationTrackingDecorator tracker, ResourcePersister persister, RuleFinder ruleFinder, DatabaseSession session) {
     this.tracker = tracker;
@@ -50,6 +54,12 @@ public class ViolationPersisterDecorator implements Decorator {
     this.session = session;
   }
 
+  public ViolationPersisterDecorator(ViolationTrackingDecorator tracker, ResourcePersister persister, RuleFinder ruleFinder, DatabaseSession session,
+                                     Configuration configuration) {
+    this(tracker, persister, ruleFinder, session);
+    this.bulkCommitSize = configuration.getInt(DatabaseProperties.PROP_BULK_COMMIT_SIZE, DatabaseProperties.PROP_BULK_COMMIT_SIZE_DEFAULT_VALUE);
+  }
+
   public boolean shouldExecuteOnProject(Project project) {
     return true;
   }
@@ -64,11 +74,21 @@ public class ViolationPersisterDecorator implements Decorator {
   }
 
   void saveViolations(Project project, List<Violation> violations) {
+    if (violations.isEmpty()) {
+      return;
+    }
     for (Violation violation : violations) {
       RuleFailureModel referenceViolation = tracker.getReferenceViolation(violation);
       save(project, violation, referenceViolation);
     }
-    session.commit();
+    uncommittedViolations += violations.size();
+    if (uncommittedViolations >= bulkCommitSize) {
+      session.commit();
+      uncommittedViolations = 0;
+    } else {
+      // next decorators (for example CloseReviewsDecorator) execute SQL requests on the saved violations
+      session.getEntityManager().flush();
+    }
   }
 
   public void save(Project project, Violation violation, RuleFailureModel referenceViolation) {
@@ -82,8 +102,8 @@ public class ViolationPersisterDecorator implements Decorator {
     session.saveWithoutFlush(model);
 
     if (model.getPermanentId() == null) {
+      // the model is already attached to the session, the permanent id is written with the same flush
       model.setPermanentId(model.getId());
-      session.saveWithoutFlush(model);
     }
     violation.setMessage(model.getMessage());// the message can be changed in the class RuleFailure (truncate + trim)
   }
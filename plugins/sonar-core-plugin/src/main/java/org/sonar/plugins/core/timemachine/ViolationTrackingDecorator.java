@@ -23,15 +23,15 @@ import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
-import org.apache.commons.lang.ObjectUtils;
-import org.apache.commons.lang.StringUtils;
 import org.sonar.api.batch.*;
 import org.sonar.api.database.model.RuleFailureModel;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
 import org.sonar.api.rules.Violation;
 import org.sonar.api.violations.ViolationQuery;
+import org.sonar.batch.index.DefaultIndex;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -40,7 +40,14 @@ import java.util.Map;
 @DependedUpon(DecoratorBarriers.END_OF_VIOLATION_TRACKING)
 public class ViolationTrackingDecorator implements Decorator {
   private ReferenceAnalysis referenceAnalysis;
-  private Map<Violation, RuleFailureModel> referenceViolationsMap = Maps.newIdentityHashMap();
+  // read back by ViolationPersisterDecorator. All the decorators of a resource are executed by the same thread, so the
+  // mapping is kept per thread when sibling resources are decorated concurrently.
+  private final ThreadLocal<Map<Violation, RuleFailureModel>> referenceViolationsMap = new ThreadLocal<Map<Violation, RuleFailureModel>>() {
+    @Override
+    protected Map<Violation, RuleFailureModel> initialValue() {
+      return Maps.newIdentityHashMap();
+    }
+  };
   private SonarIndex index;
   private Project project;
 
@@ -55,24 +62,45 @@ public class ViolationTrackingDecorator implements Decorator {
   }
 
   public void decorate(Resource resource, DecoratorContext context) {
-    referenceViolationsMap.clear();
+    referenceViolationsMap.get().clear();
 
     ViolationQuery violationQuery = ViolationQuery.create().forResource(resource).setSwitchMode(ViolationQuery.SwitchMode.BOTH);
     if (!context.getViolations(violationQuery).isEmpty()) {
-      // Load new violations
-      List<Violation> newViolations = prepareNewViolations(context);
-
       // Load reference violations
       List<RuleFailureModel> referenceViolations = referenceAnalysis.getViolations(resource);
 
+      // Load new violations
+      long[] lineHashes = getLineHashes(resource);
+      boolean legacyChecksums = SourceChecksum.hasLegacyChecksum(referenceViolations);
+      List<Violation> newViolations;
+      if (legacyChecksums) {
+        newViolations = prepareNewViolations(context, SourceChecksum.lineChecksumsOfFile(index.getSource(resource)));
+      } else {
+        newViolations = prepareNewViolations(context, lineHashes);
+      }
+
       // Map new violations with old ones
       mapViolations(newViolations, referenceViolations);
+
+      if (legacyChecksums) {
+        // from now on, checksums are saved in the new format
+        for (Violation newViolation : newViolations) {
+          newViolation.setChecksum(getChecksumForLine(lineHashes, newViolation.getLineId()));
+        }
+      }
     }
   }
 
-  private List<Violation> prepareNewViolations(DecoratorContext context) {
+  private long[] getLineHashes(Resource resource) {
+    if (index instanceof DefaultIndex) {
+      // cached when the source is saved, so the source is not reloaded from database
+      return ((DefaultIndex) index).getLineHashes(resource);
+    }
+    return SourceChecksum.lineHashesOfFile(index.getSource(resource));
+  }
+
+  private List<Violation> prepareNewViolations(DecoratorContext context, List<String> checksums) {
     List<Violation> result = Lists.newArrayList();
-    List<String> checksums = SourceChecksum.lineChecksumsOfFile(index.getSource(context.getResource()));
     for (Violation violation : context.getViolations()) {
       violation.setChecksum(getChecksumForLine(checksums, violation.getLineId()));
       result.add(violation);
@@ -80,39 +108,72 @@ public class ViolationTrackingDecorator implements Decorator {
     return result;
   }
 
+  private List<Violation> prepareNewViolations(DecoratorContext context, long[] lineHashes) {
+    List<Violation> result = Lists.newArrayList();
+    for (Violation violation : context.getViolations()) {
+      violation.setChecksum(getChecksumForLine(lineHashes, violation.getLineId()));
+      result.add(violation);
+    }
+    return result;
+  }
+
   RuleFailureModel getReferenceViolation(Violation violation) {
-    return referenceViolationsMap.get(violation);
+    return referenceViolationsMap.get().get(violation);
   }
 
+  /**
+   * Past violations are matched in three passes. In each pass the remaining past violations are indexed by a key
+   * made of the rule and of the compared fields, so that matching is linear in the number of violations. For a given key,
+   * past violations are kept in their original order, so the first candidate is the one a sequential scan would find.
+   */
   Map<Violation, RuleFailureModel> mapViolations(List<Violation> newViolations, List<RuleFailureModel> pastViolations) {
+    Map<Violation, RuleFailureModel> referenceViolationsMap = this.referenceViolationsMap.get();
     Multimap<Integer, RuleFailureModel> pastViolationsByRule = LinkedHashMultimap.create();
     for (RuleFailureModel pastViolation : pastViolations) {
       pastViolationsByRule.put(pastViolation.getRuleId(), pastViolation);
     }
 
     // Try first to match violations on same rule with same line and with same checkum (but not necessarily with same message)
+    Multimap<List<Object>, RuleFailureModel> pastViolationsByKey = LinkedHashMultimap.create();
+    for (RuleFailureModel pastViolation : pastViolationsByRule.values()) {
+      if (pastViolation.getChecksum() != null) {
+        pastViolationsByKey.put(Arrays.<Object>asList(pastViolation.getRuleId(), pastViolation.getLine(), pastViolation.getChecksum()), pastViolation);
+      }
+    }
     for (Violation newViolation : newViolations) {
       mapViolation(newViolation,
-          findPastViolationWithSameLineAndChecksum(newViolation, pastViolationsByRule.get(newViolation.getRule().getId())),
+          pollPastViolation(pastViolationsByKey, Arrays.<Object>asList(newViolation.getRule().getId(), newViolation.getLineId(), newViolation.getChecksum())),
           pastViolationsByRule, referenceViolationsMap);
     }
 
     // If each new violation matches an old one we can stop the matching mechanism
     if (referenceViolationsMap.size() != newViolations.size()) {
       // Try then to match violations on same rule with same message and with same checkum
+      pastViolationsByKey.clear();
+      for (RuleFailureModel pastViolation : pastViolationsByRule.values()) {
+        if (pastViolation.getChecksum() != null) {
+          pastViolationsByKey.put(Arrays.<Object>asList(pastViolation.getRuleId(), pastViolation.getChecksum(), pastViolation.getMessage()), pastViolation);
+        }
+      }
       for (Violation newViolation : newViolations) {
         if (isNotAlreadyMapped(newViolation, referenceViolationsMap)) {
           mapViolation(newViolation,
-              findPastViolationWithSameChecksumAndMessage(newViolation, pastViolationsByRule.get(newViolation.getRule().getId())),
+              pollPastViolation(pastViolationsByKey, Arrays.<Object>asList(newViolation.getRule().getId(), newViolation.getChecksum(),
+                  RuleFailureModel.abbreviateMessage(newViolation.getMessage()))),
               pastViolationsByRule, referenceViolationsMap);
         }
       }
 
       // Try then to match violations on same rule with same line and with same message
+      pastViolationsByKey.clear();
+      for (RuleFailureModel pastViolation : pastViolationsByRule.values()) {
+        pastViolationsByKey.put(Arrays.<Object>asList(pastViolation.getRuleId(), pastViolation.getLine(), pastViolation.getMessage()), pastViolation);
+      }
       for (Violation newViolation : newViolations) {
         if (isNotAlreadyMapped(newViolation, referenceViolationsMap)) {
           mapViolation(newViolation,
-              findPastViolationWithSameLineAndMessage(newViolation, pastViolationsByRule.get(newViolation.getRule().getId())),
+              pollPastViolation(pastViolationsByKey, Arrays.<Object>asList(newViolation.getRule().getId(), newViolation.getLineId(),
+                  RuleFailureModel.abbreviateMessage(newViolation.getMessage()))),
               pastViolationsByRule, referenceViolationsMap);
         }
       }
@@ -124,47 +185,17 @@ public class ViolationTrackingDecorator implements Decorator {
     return !violationMap.containsKey(newViolation);
   }
 
-  private RuleFailureModel findPastViolationWithSameLineAndMessage(Violation newViolation, Collection<RuleFailureModel> pastViolations) {
-    for (RuleFailureModel pastViolation : pastViolations) {
-      if (isSameLine(newViolation, pastViolation) && isSameMessage(newViolation, pastViolation)) {
-        return pastViolation;
-      }
-    }
-    return null;
-  }
-
-  private RuleFailureModel findPastViolationWithSameChecksumAndMessage(Violation newViolation, Collection<RuleFailureModel> pastViolations) {
-    for (RuleFailureModel pastViolation : pastViolations) {
-      if (isSameChecksum(newViolation, pastViolation) && isSameMessage(newViolation, pastViolation)) {
-        return pastViolation;
-      }
-    }
-    return null;
-  }
-
-  private RuleFailureModel findPastViolationWithSameLineAndChecksum(Violation newViolation, Collection<RuleFailureModel> pastViolations) {
-    for (RuleFailureModel pastViolation : pastViolations) {
-      if (isSameLine(newViolation, pastViolation) && isSameChecksum(newViolation, pastViolation)) {
-        return pastViolation;
-      }
-    }
-    return null;
-  }
-
-  private boolean isSameChecksum(Violation newViolation, RuleFailureModel pastViolation) {
-    return pastViolation.getChecksum() != null
-        && StringUtils.equals(pastViolation.getChecksum(), newViolation.getChecksum());
-  }
-
-  private boolean isSameLine(Violation newViolation, RuleFailureModel pastViolation) {
-    if (pastViolation.getLine() == null && newViolation.getLineId() == null) {
-      return true;
+  /**
+   * @return the first past violation registered with the given key, or null. The returned violation is removed from the index.
+   */
+  private RuleFailureModel pollPastViolation(Multimap<List<Object>, RuleFailureModel> pastViolationsByKey, List<Object> key) {
+    Collection<RuleFailureModel> candidates = pastViolationsByKey.get(key);
+    if (candidates.isEmpty()) {
+      return null;
     }
-    return ObjectUtils.equals(pastViolation.getLine(), newViolation.getLineId());
-  }
-
-  private boolean isSameMessage(Violation newViolation, RuleFailureModel pastViolation) {
-    return StringUtils.equals(RuleFailureModel.abbreviateMessage(newViolation.getMessage()), pastViolation.getMessage());
+    RuleFailureModel pastViolation = candidates.iterator().next();
+    pastViolationsByKey.remove(key, pastViolation);
+    return pastViolation;
   }
 
   private void mapViolation(Violation newViolation, RuleFailureModel pastViolation,
@@ -192,6 +223,16 @@ public class ViolationTrackingDecorator implements Decorator {
     return checksums.get(line - 1);
   }
 
+  /**
+   * @return checksum or null if checksum not exists for line
+   */
+  private String getChecksumForLine(long[] lineHashes, Integer line) {
+    if (line == null || line < 1 || line > lineHashes.length) {
+      return null;
+    }
+    return SourceChecksum.hashChecksum(lineHashes[line - 1]);
+  }
+
   @Override
   public String toString() {
     return getClass().getSimpleName();
@@ -32,10 +32,12 @@ import junit.framework.ComparisonFailure;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.sonar.api.database.model.Snapshot;
 import org.sonar.api.notifications.Notification;
 import org.sonar.api.notifications.NotificationManager;
 import org.sonar.api.resources.Project;
 import org.sonar.api.security.UserFinder;
+import org.sonar.batch.index.ResourcePersister;
 import org.sonar.jpa.test.AbstractDbUnitTestCase;
 
 public class CloseReviewsDecoratorTest extends AbstractDbUnitTestCase {
@@ -97,4 +99,24 @@ public class CloseReviewsDecoratorTest extends AbstractDbUnitTestCase {
       // "updated_at" column must be different, so the comparison should raise this exception
     }
   }
+
+  @Test
+  public void shouldCloseAndReopenReviewsOfProjectTreeInBulk() throws Exception {
+    setupData("bulk");
+    Project project = new Project("project");
+    Snapshot rootSnapshot = new Snapshot();
+    rootSnapshot.setId(2);
+    rootSnapshot.setResourceId(100);
+    ResourcePersister resourcePersister = mock(ResourcePersister.class);
+    when(resourcePersister.getSnapshot(project)).thenReturn(rootSnapshot);
+    CloseReviewsDecorator decorator = new CloseReviewsDecorator(project, resourcePersister, getSession(), notificationManager,
+        mock(UserFinder.class)).setBulk(true);
+
+    // same results than closing then reopening the reviews resource per resource
+    decorator.decorate(new Project("module").setParent(project), null);
+    decorator.decorate(project, null);
+
+    verify(notificationManager, times(4)).scheduleForSending(any(Notification.class));
+    checkTables("shouldReopenResolvedReviewWithNonFixedViolation", new String[] { "updated_at" }, new String[] { "reviews" });
+  }
 }
@@ -0,0 +1,89 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.core.timemachine;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.database.model.RuleFailureModel;
+import org.sonar.api.resources.JavaFile;
+import org.sonar.api.resources.Project;
+import org.sonar.jpa.test.AbstractDbUnitTestCase;
+
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ReferenceAnalysisTest extends AbstractDbUnitTestCase {
+
+  private Project project;
+
+  @Before
+  public void before() {
+    setupData("shared");
+    project = new Project("project");
+    project.setId(100);
+  }
+
+  @Test
+  public void shouldLoadViolationsOfLastAnalysis() {
+    ReferenceAnalysis referenceAnalysis = new ReferenceAnalysis(getSession());
+
+    assertThat(ids(referenceAnalysis.getViolations(new JavaFile("org.foo.Bar").setEffectiveKey("project:org.foo.Bar"))), is("2,3"));
+    assertThat(ids(referenceAnalysis.getViolations(new JavaFile("org.foo.Baz").setEffectiveKey("project:org.foo.Baz"))), is("4"));
+    assertThat(referenceAnalysis.getViolations(new JavaFile("org.foo.New").setEffectiveKey("project:org.foo.New")).size(), is(0));
+  }
+
+  @Test
+  public void shouldPreloadViolationsOfModule() {
+    ReferenceAnalysis referenceAnalysis = new ReferenceAnalysis(getSession()).setPreload(project, true);
+
+    assertThat(ids(referenceAnalysis.getViolations(new JavaFile("org.foo.Bar").setEffectiveKey("project:org.foo.Bar"))), is("2,3"));
+    assertThat(ids(referenceAnalysis.getViolations(new JavaFile("org.foo.Baz").setEffectiveKey("project:org.foo.Baz"))), is("4"));
+    assertThat(referenceAnalysis.getViolations(new JavaFile("org.foo.New").setEffectiveKey("project:org.foo.New")).size(), is(0));
+  }
+
+  @Test
+  public void shouldReleasePreloadedViolationsOnceRead() {
+    ReferenceAnalysis referenceAnalysis = new ReferenceAnalysis(getSession()).setPreload(project, true);
+    JavaFile file = new JavaFile("org.foo.Bar");
+    file.setEffectiveKey("project:org.foo.Bar");
+
+    assertThat(referenceAnalysis.getViolations(file).size(), is(2));
+    assertThat(referenceAnalysis.getViolations(file).size(), is(0));
+  }
+
+  private static String ids(List<RuleFailureModel> violations) {
+    SortedSet<Integer> ids = new TreeSet<Integer>();
+    for (RuleFailureModel violation : violations) {
+      ids.add(violation.getId());
+    }
+    StringBuilder sb = new StringBuilder();
+    for (Integer id : ids) {
+      if (sb.length() > 0) {
+        sb.append(',');
+      }
+      sb.append(id);
+    }
+    return sb.toString();
+  }
+}
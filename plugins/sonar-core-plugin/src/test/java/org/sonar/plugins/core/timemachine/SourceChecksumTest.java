@@ -19,7 +19,9 @@
  */
 package org.sonar.plugins.core.timemachine;
 
+import com.google.common.collect.Lists;
 import org.junit.Test;
+import org.sonar.api.database.model.RuleFailureModel;
 
 import java.util.List;
 
@@ -50,4 +52,44 @@ public class SourceChecksumTest {
     assertThat(SourceChecksum.lineChecksum("\tvoid  method()  {\n"),
         equalTo(SourceChecksum.lineChecksum("  void method() {")));
   }
+
+  @Test
+  public void shouldSplitLinesLikeLegacyChecksums() {
+    String[] sources = {"", "Hello", "Hello\r\nWorld", "Hello\nWorld\n", "Hello\rWorld\r", "a\n\nb\r\n\r\nc", "\r\n"};
+    for (String source : sources) {
+      assertThat(SourceChecksum.lineHashesOfFile(source).length, is(SourceChecksum.lineChecksumsOfFile(source).size()));
+    }
+    assertThat(SourceChecksum.lineHashesOfFile(null).length, is(0));
+  }
+
+  @Test
+  public void shouldHashLinesAndIgnoreSpaces() {
+    long[] crlf = SourceChecksum.lineHashesOfFile("Hello\r\nWorld");
+    long[] lf = SourceChecksum.lineHashesOfFile("Hello\nWorld");
+    long[] cr = SourceChecksum.lineHashesOfFile("Hello\rWorld");
+    assertThat(crlf[0], not(equalTo(crlf[1])));
+    assertThat(lf[0], is(crlf[0]));
+    assertThat(lf[1], is(crlf[1]));
+    assertThat(cr[0], is(crlf[0]));
+    assertThat(cr[1], is(crlf[1]));
+
+    assertThat(SourceChecksum.lineHashesOfFile("\tvoid  method()  {\n")[0],
+        equalTo(SourceChecksum.lineHashesOfFile("  void method() {")[0]));
+    assertThat(SourceChecksum.lineHashesOfFile("Привет Мир")[0], not(equalTo(SourceChecksum.lineHashesOfFile("Привет Мор")[0])));
+  }
+
+  @Test
+  public void shouldMarkHashChecksums() {
+    String checksum = SourceChecksum.hashChecksum(SourceChecksum.lineHashesOfFile("Hello")[0]);
+    assertThat(checksum, startsWith(SourceChecksum.HASH_CHECKSUM_PREFIX));
+
+    RuleFailureModel hashViolation = new RuleFailureModel();
+    hashViolation.setChecksum(checksum);
+    RuleFailureModel violationWithoutChecksum = new RuleFailureModel();
+    RuleFailureModel legacyViolation = new RuleFailureModel();
+    legacyViolation.setChecksum(SourceChecksum.lineChecksum("Hello"));
+
+    assertThat(SourceChecksum.hasLegacyChecksum(Lists.newArrayList(hashViolation, violationWithoutChecksum)), is(false));
+    assertThat(SourceChecksum.hasLegacyChecksum(Lists.newArrayList(hashViolation, legacyViolation)), is(true));
+  }
 }
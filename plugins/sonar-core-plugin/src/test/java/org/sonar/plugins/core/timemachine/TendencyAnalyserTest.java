@@ -51,6 +51,15 @@ public class TendencyAnalyserTest {
     assertThat(analyser.analyseLevel(Arrays.asList(10.0)), nullValue());
   }
 
+  @Test
+  public void shouldIgnoreNaNInPrimitiveValues() {
+    TendencyAnalyser.SlopeData slopeData = analyser.analyse(new double[]{90.0, Double.NaN, 50.0, 0.0}, 3);
+    TendencyAnalyser.SlopeData expected = analyser.analyse(Arrays.asList(90.0, null, 50.0));
+    assertEquals(expected.getSlope(), slopeData.getSlope(), 0.0);
+    assertEquals(expected.getLevel(), slopeData.getLevel());
+    assertEquals(expected.getLevel(), analyser.analyseLevel(new double[]{90.0, Double.NaN, 50.0}, 3));
+  }
+
   @Test
   public void testTendencyOnThreeDays() {
     Double[] doubles = new Double[]{10.0, null, 9.9};
@@ -23,13 +23,16 @@ import org.junit.Test;
 import org.sonar.api.batch.DecoratorContext;
 import org.sonar.api.batch.TimeMachine;
 import org.sonar.api.batch.TimeMachineQuery;
+import org.sonar.api.database.DatabaseSession;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.Metric;
 import org.sonar.api.measures.MetricFinder;
 import org.sonar.api.resources.JavaPackage;
 import org.sonar.api.resources.Project;
 import org.sonar.batch.components.TimeMachineConfiguration;
 
+import javax.persistence.Query;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
@@ -38,6 +41,7 @@ import java.util.Date;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.matchers.JUnitMatchers.hasItems;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.Mockito.*;
 
 public class TendencyDecoratorTest {
@@ -108,6 +112,50 @@ public class TendencyDecoratorTest {
     verify(analyser, never()).analyseLevel(anyList());
   }
 
+  @Test
+  public void preloadPastValuesOfAllDirectories() throws ParseException {
+    Metric lines = new Metric("lines").setId(1);
+    Metric coverage = new Metric("coverage").setId(2);
+    Query query = mock(Query.class);
+    when(query.getResultList()).thenReturn(Arrays.<Object>asList(
+        new Object[]{10, 1, 1200.0},
+        new Object[]{10, 2, 80.5},
+        new Object[]{11, 1, 30.0},
+        new Object[]{10, 1, 1300.0},
+        new Object[]{10, 2, null}
+    ));
+    DatabaseSession session = mock(DatabaseSession.class);
+    when(session.createQuery(anyString())).thenReturn(query);
+
+    TimeMachineConfiguration configuration = newConf();
+    when(configuration.isTendencyPreloadEnabled()).thenReturn(true);
+    Project project = new Project("project");
+    project.setId(1);
+    project.setAnalysisDate(date("2009-12-25"));
+    TendencyAnalyser analyser = mock(TendencyAnalyser.class);
+    TendencyDecorator decorator = new TendencyDecorator(session, Arrays.asList(lines, coverage), analyser, configuration);
+
+    DecoratorContext context = mock(DecoratorContext.class);
+    when(context.getProject()).thenReturn(project);
+    when(context.getMeasure(lines)).thenReturn(new Measure(lines, 1400.0));
+    when(context.getMeasure(coverage)).thenReturn(new Measure(coverage, 90.0));
+    JavaPackage foo = new JavaPackage("org.foo");
+    foo.setId(10);
+    decorator.decorate(foo, context);
+
+    context = mock(DecoratorContext.class);
+    when(context.getProject()).thenReturn(project);
+    when(context.getMeasure(lines)).thenReturn(new Measure(lines, 40.0));
+    JavaPackage bar = new JavaPackage("org.bar");
+    bar.setId(11);
+    decorator.decorate(bar, context);
+
+    verify(session, times(1)).createQuery(anyString());
+    verify(analyser).analyseLevel(aryEq(new double[]{1200.0, 1300.0, 1400.0}), eq(3));
+    verify(analyser).analyseLevel(aryEq(new double[]{80.5, Double.NaN, 90.0}), eq(3));
+    verify(analyser).analyseLevel(aryEq(new double[]{30.0, 40.0}), eq(2));
+  }
+
   private Date date(String date) throws ParseException {
     return new SimpleDateFormat("yyyy-MM-dd").parse(date);
   }
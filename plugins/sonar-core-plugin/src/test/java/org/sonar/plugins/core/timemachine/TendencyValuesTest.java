@@ -0,0 +1,58 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.core.timemachine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TendencyValuesTest {
+
+  @Test
+  public void shouldAppendCurrentValueToPastValues() {
+    TendencyValues values = new TendencyValues();
+    values.add(1, 10, 3.0);
+    values.add(2, 10, 4.0);
+    values.add(1, 10, Double.NaN);
+    values.add(1, 11, 5.0);
+
+    assertArrayEquals(new double[]{3.0, Double.NaN, 6.0}, values.getValues(1, 10, 6.0), 0.0);
+    assertArrayEquals(new double[]{4.0, 7.0}, values.getValues(2, 10, 7.0), 0.0);
+    assertArrayEquals(new double[]{5.0, 8.0}, values.getValues(1, 11, 8.0), 0.0);
+  }
+
+  @Test
+  public void shouldGrowSeries() {
+    TendencyValues values = new TendencyValues();
+    for (int i = 0; i < 100; i++) {
+      values.add(1, 10, i);
+    }
+    double[] series = values.getValues(1, 10, null);
+    assertTrue(series.length == 101);
+    assertTrue(series[99] == 99.0);
+    assertTrue(Double.isNaN(series[100]));
+  }
+
+  @Test
+  public void shouldReturnOnlyCurrentValueWhenNoHistory() {
+    assertArrayEquals(new double[]{2.0}, new TendencyValues().getValues(1, 10, 2.0), 0.0);
+  }
+}
@@ -20,15 +20,34 @@
 package org.sonar.plugins.core.timemachine;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.configuration.PropertiesConfiguration;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.sonar.api.batch.BatchExtensionDictionnary;
+import org.sonar.api.batch.Decorator;
+import org.sonar.api.batch.SonarIndex;
+import org.sonar.api.database.DatabaseSession;
 import org.sonar.api.database.model.RuleFailureModel;
+import org.sonar.api.database.model.Snapshot;
+import org.sonar.api.resources.JavaFile;
 import org.sonar.api.resources.Project;
+import org.sonar.api.resources.Resource;
 import org.sonar.api.rules.Rule;
+import org.sonar.api.rules.RuleFinder;
 import org.sonar.api.rules.Violation;
 import org.sonar.api.utils.DateUtils;
+import org.sonar.api.violations.ViolationQuery;
+import org.sonar.batch.events.EventBus;
+import org.sonar.batch.index.ResourcePersister;
+import org.sonar.batch.phases.DecoratorsExecutor;
 
+import javax.persistence.EntityManager;
 import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
@@ -36,6 +55,9 @@ import java.util.Map;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -158,6 +180,103 @@ public class ViolationTrackingDecoratorTest {
     assertThat(newViolation.isNew(), is(false));
   }
 
+  @Test
+  public void shouldMapFirstReferenceViolationWhenSeveralCandidates() {
+    RuleFailureModel referenceViolation1 = newReferenceViolation("message", 1, 50, "checksum");
+    RuleFailureModel referenceViolation2 = newReferenceViolation("message", 1, 50, "checksum");
+    referenceViolation2.setId(1000);
+    Violation newViolation1 = newViolation("message", 1, 50, "checksum");
+    Violation newViolation2 = newViolation("message", 1, 50, "checksum");
+
+    Map<Violation, RuleFailureModel> mapping = decorator.mapViolations(Lists.newArrayList(newViolation1, newViolation2),
+        Lists.newArrayList(referenceViolation1, referenceViolation2));
+    assertThat(mapping.get(newViolation1), sameInstance(referenceViolation1));
+    assertThat(mapping.get(newViolation2), sameInstance(referenceViolation2));
+  }
+
+  @Test
+  public void shouldTrackLargeNumberOfViolationsOfSameRule() {
+    List<RuleFailureModel> referenceViolations = Lists.newArrayList();
+    List<Violation> newViolations = Lists.newArrayList();
+    for (int line = 1; line <= 20000; line++) {
+      referenceViolations.add(newReferenceViolation("message" + line, line, 50, "checksum" + line));
+      // lines have been shifted
+      newViolations.add(newViolation("message" + line, line + 1, 50, "checksum" + line));
+    }
+
+    Map<Violation, RuleFailureModel> mapping = decorator.mapViolations(newViolations, referenceViolations);
+    assertThat(mapping.size(), is(20000));
+    for (int index = 0; index < 20000; index++) {
+      assertThat(mapping.get(newViolations.get(index)), sameInstance(referenceViolations.get(index)));
+    }
+  }
+
+  @Test
+  public void shouldKeepReferenceViolationsOfFilesDecoratedConcurrently() {
+    PropertiesConfiguration conf = new PropertiesConfiguration();
+    conf.setProperty(DecoratorsExecutor.THREADS_PROPERTY, "4");
+    Project project = new Project("key");
+    project.setConfiguration(conf);
+
+    SonarIndex index = mock(SonarIndex.class);
+    ReferenceAnalysis referenceAnalysis = mock(ReferenceAnalysis.class);
+    final Map<Resource, List<Violation>> violationsByFile = Maps.newHashMap();
+    List<Resource> files = Lists.newArrayList();
+    for (int i = 0; i < 50; i++) {
+      JavaFile file = new JavaFile("org.foo.Bar" + i);
+      files.add(file);
+      Violation violation = newViolation("message " + i, 1, 50);
+      violation.setResource(file);
+      violationsByFile.put(file, Arrays.asList(violation));
+      RuleFailureModel referenceViolation = newReferenceViolation("message " + i, 1, 50, null);
+      referenceViolation.setPermanentId(1000 + i);
+      when(referenceAnalysis.getViolations(file)).thenReturn(Arrays.asList(referenceViolation));
+      when(index.getChildren(file)).thenReturn(Collections.<Resource>emptyList());
+      when(index.getViolations(file)).thenReturn(violationsByFile.get(file));
+      when(index.getSource(file)).thenReturn("class Bar" + i + " {}");
+    }
+    when(index.getChildren(project)).thenReturn(files);
+    when(index.getProject()).thenReturn(project);
+    when(index.getViolations(any(ViolationQuery.class))).thenAnswer(new Answer<List<Violation>>() {
+      public List<Violation> answer(InvocationOnMock invocation) {
+        List<Violation> violations = violationsByFile.get(((ViolationQuery) invocation.getArguments()[0]).getResource());
+        return violations != null ? violations : Collections.<Violation>emptyList();
+      }
+    });
+
+    ResourcePersister resourcePersister = mock(ResourcePersister.class);
+    when(resourcePersister.saveResource(any(Project.class), any(Resource.class))).thenReturn(new Snapshot());
+    RuleFinder ruleFinder = mock(RuleFinder.class);
+    Rule rule = Rule.create("repository", "rule", "Rule");
+    rule.setId(50);
+    when(ruleFinder.findByKey(anyString(), anyString())).thenReturn(rule);
+    DatabaseSession session = mock(DatabaseSession.class);
+    EntityManager entityManager = mock(EntityManager.class);
+    when(session.getEntityManager()).thenReturn(entityManager);
+    final List<RuleFailureModel> savedViolations = Collections.synchronizedList(Lists.<RuleFailureModel>newArrayList());
+    when(session.saveWithoutFlush(any())).thenAnswer(new Answer<Object>() {
+      public Object answer(InvocationOnMock invocation) {
+        savedViolations.add((RuleFailureModel) invocation.getArguments()[0]);
+        return invocation.getArguments()[0];
+      }
+    });
+
+    ViolationTrackingDecorator tracker = new ViolationTrackingDecorator(project, referenceAnalysis, index);
+    ViolationPersisterDecorator persister = new ViolationPersisterDecorator(tracker, resourcePersister, ruleFinder, session);
+    List<Decorator> decorators = Arrays.<Decorator>asList(tracker, persister);
+    BatchExtensionDictionnary dictionnary = mock(BatchExtensionDictionnary.class);
+    when(dictionnary.select(Decorator.class, project, false)).thenReturn(decorators);
+    when(dictionnary.sort(anyCollection())).thenReturn((Collection) decorators);
+
+    new DecoratorsExecutor(dictionnary, project, index, mock(EventBus.class)).execute();
+
+    assertThat(savedViolations.size(), is(50));
+    for (RuleFailureModel savedViolation : savedViolations) {
+      int fileIndex = Integer.parseInt(savedViolation.getMessage().substring("message ".length()));
+      assertThat(savedViolation.getPermanentId(), is(1000 + fileIndex));
+    }
+  }
+
   private Violation newViolation(String message, int lineId, int ruleId) {
     Rule rule = Rule.create().setKey("rule");
     rule.setId(ruleId);
@@ -53,6 +53,35 @@ import org.sonar.plugins.cpd.decorators.SumDuplicationsDecorator;
         module = true,
         global = true,
         category = CoreProperties.CATEGORY_DUPLICATIONS),
+    @Property(
+        key = SonarEngine.THREADS_PROPERTY,
+        defaultValue = SonarEngine.THREADS_DEFAULT_VALUE + "",
+        name = "Threads",
+        description = "Number of threads used by the Sonar CPD engine to tokenize files and to detect duplications.",
+        project = true,
+        module = true,
+        global = true,
+        category = CoreProperties.CATEGORY_DUPLICATIONS),
+    @Property(
+        key = SonarEngine.DETECTOR_PROPERTY,
+        defaultValue = SonarEngine.DETECTOR_DEFAULT_VALUE,
+        name = "Detection algorithm",
+        description = "Algorithm used by the Sonar CPD engine to detect duplications: 'original' or 'suffix'." +
+            " Both report the same duplications, but 'suffix' is faster on files with long repeated sequences of statements.",
+        project = true,
+        module = true,
+        global = true,
+        category = CoreProperties.CATEGORY_DUPLICATIONS),
+    @Property(
+        key = SonarEngine.AUTOMATON_PROPERTY,
+        defaultValue = SonarEngine.AUTOMATON_DEFAULT_VALUE + "",
+        name = "Lexer automaton",
+        description = "If true, the Sonar CPD engine compiles the rules of its lexer into a single automaton, which reads each character only once." +
+            " Tokens are the same.",
+        project = true,
+        module = true,
+        global = true,
+        category = CoreProperties.CATEGORY_DUPLICATIONS),
     @Property(
         key = CoreProperties.CPD_MINIMUM_TOKENS_PROPERTY,
         defaultValue = CoreProperties.CPD_MINIMUM_TOKENS_DEFAULT_VALUE + "",
@@ -19,14 +19,14 @@
  */
 package org.sonar.plugins.cpd;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStreamReader;
-import java.io.Reader;
+import java.nio.charset.Charset;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.SensorContext;
@@ -38,12 +38,15 @@ import org.sonar.api.resources.JavaFile;
 import org.sonar.api.resources.Language;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
+import org.sonar.api.utils.ConcurrentUtils;
 import org.sonar.api.utils.Logs;
 import org.sonar.api.utils.SonarException;
 import org.sonar.batch.index.ResourcePersister;
 import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.BlockChunker;
+import org.sonar.duplications.block.PackedBlocks;
 import org.sonar.duplications.detector.original.OriginalCloneDetectionAlgorithm;
+import org.sonar.duplications.detector.suffix.SuffixCloneDetectionAlgorithm;
 import org.sonar.duplications.index.CloneGroup;
 import org.sonar.duplications.index.ClonePart;
 import org.sonar.duplications.java.JavaStatementBuilder;
@@ -54,10 +57,38 @@ import org.sonar.duplications.token.TokenChunker;
 import org.sonar.plugins.cpd.index.DbDuplicationsIndex;
 import org.sonar.plugins.cpd.index.SonarDuplicationsIndex;
 
+import com.google.common.collect.Lists;
+
 public class SonarEngine extends CpdEngine {
 
   private static final int BLOCK_SIZE = 10;
 
+  /**
+   * Number of threads used to chunk files and to detect duplications. The default value 1 keeps the sequential mode.
+   *
+   * @since 2.11
+   */
+  public static final String THREADS_PROPERTY = "sonar.cpd.threads";
+  public static final int THREADS_DEFAULT_VALUE = 1;
+
+  /**
+   * Clone detection algorithm: "original" or "suffix". Both report the same duplications, but "suffix" is faster on files
+   * with long repeated sequences of statements, like generated code.
+   *
+   * @since 2.11
+   */
+  public static final String DETECTOR_PROPERTY = "sonar.cpd.detector";
+  public static final String DETECTOR_DEFAULT_VALUE = "original";
+
+  /**
+   * Whether the lexer compiles its rules into a single automaton, which reads each character only once. Both lexers produce the same
+   * tokens.
+   *
+   * @since 2.11
+   */
+  public static final String AUTOMATON_PROPERTY = "sonar.cpd.automaton";
+  public static final boolean AUTOMATON_DEFAULT_VALUE = false;
+
   private final ResourcePersister resourcePersister;
   private final DatabaseSession dbSession;
 
@@ -103,7 +134,7 @@ public class SonarEngine extends CpdEngine {
     }
 
     // Create index
-    final SonarDuplicationsIndex index;
+    SonarDuplicationsIndex index;
     if (isCrossProject(project)) {
       Logs.INFO.info("Cross-project analysis enabled");
       index = new SonarDuplicationsIndex(new DbDuplicationsIndex(dbSession, resourcePersister, project));
@@ -112,45 +143,138 @@ public class SonarEngine extends CpdEngine {
       index = new SonarDuplicationsIndex();
     }
 
-    TokenChunker tokenChunker = JavaTokenProducer.build();
-    StatementChunker statementChunker = JavaStatementBuilder.build();
-    BlockChunker blockChunker = new BlockChunker(BLOCK_SIZE);
+    boolean suffixDetector = "suffix".equals(project.getConfiguration().getString(DETECTOR_PROPERTY, DETECTOR_DEFAULT_VALUE));
+    Charset charset = project.getFileSystem().getSourceCharset();
+    boolean automaton = project.getConfiguration().getBoolean(AUTOMATON_PROPERTY, AUTOMATON_DEFAULT_VALUE);
+    int threads = project.getConfiguration().getInt(THREADS_PROPERTY, THREADS_DEFAULT_VALUE);
+    if (threads > 1) {
+      analyseConcurrently(project, context, inputFiles, index, suffixDetector, automaton, charset, threads);
+      return;
+    }
 
+    // Insert as files are chunked, so that only the blocks of the current file are unpacked
+    FileChunker chunker = new FileChunker(automaton);
     for (InputFile inputFile : inputFiles) {
       Resource resource = getResource(inputFile);
-      String resourceKey = getFullKey(project, resource);
-
-      List<Statement> statements;
-
-      Reader reader = null;
-      try {
-        reader = new InputStreamReader(new FileInputStream(inputFile.getFile()), project.getFileSystem().getSourceCharset());
-        statements = statementChunker.chunk(tokenChunker.chunk(reader));
-      } catch (FileNotFoundException e) {
-        throw new SonarException(e);
-      } finally {
-        IOUtils.closeQuietly(reader);
-      }
-
-      List<Block> blocks = blockChunker.chunk(resourceKey, statements);
-      index.insert(resource, blocks);
+      index.insert(resource, getFullKey(project, resource), chunker.chunk(inputFile, charset));
     }
 
-    // Detect
+    // Detect and save
     for (InputFile inputFile : inputFiles) {
       Resource resource = getResource(inputFile);
-      String resourceKey = getFullKey(project, resource);
-
-      Collection<Block> fileBlocks = index.getByResource(resource, resourceKey);
-      List<CloneGroup> clones = OriginalCloneDetectionAlgorithm.detect(index, fileBlocks);
-      if (!clones.isEmpty()) {
-        // Save
-        DuplicationsData data = new DuplicationsData(resource, context);
-        for (CloneGroup clone : clones) {
-          poplulateData(data, clone);
+      save(resource, detect(index, resource, getFullKey(project, resource), suffixDetector), context);
+    }
+  }
+
+  /**
+   * Files are chunked by a worker pool, with chunkers owned by each thread. Blocks are then inserted in the order of files,
+   * and the detection is executed concurrently on the index, which is not modified anymore. Duplications are saved in
+   * the order of files, so results do not depend on the number of threads.
+   */
+  private void analyseConcurrently(Project project, SensorContext context, List<InputFile> inputFiles, final SonarDuplicationsIndex index,
+                                   final boolean suffixDetector, final boolean automaton, final Charset charset, int threads) {
+    ExecutorService executorService = Executors.newFixedThreadPool(threads);
+    try {
+      // Chunk
+      final ThreadLocal<FileChunker> chunkers = new ThreadLocal<FileChunker>() {
+        @Override
+        protected FileChunker initialValue() {
+          return new FileChunker(automaton);
         }
-        data.save();
+      };
+      List<Callable<PackedBlocks>> chunkTasks = Lists.newArrayList();
+      for (final InputFile inputFile : inputFiles) {
+        chunkTasks.add(new Callable<PackedBlocks>() {
+          public PackedBlocks call() {
+            return chunkers.get().chunk(inputFile, charset);
+          }
+        });
+      }
+      List<PackedBlocks> blocksByFile = execute(chunkTasks, executorService);
+
+      // Insert, in the order of files
+      for (int i = 0; i < inputFiles.size(); i++) {
+        Resource resource = getResource(inputFiles.get(i));
+        index.insert(resource, getFullKey(project, resource), blocksByFile.get(i));
+      }
+      // blocks are now packed in the index
+      blocksByFile = null;
+
+      // Detect
+      List<Callable<List<CloneGroup>>> detectTasks = Lists.newArrayList();
+      for (InputFile inputFile : inputFiles) {
+        final Resource resource = getResource(inputFile);
+        final String resourceKey = getFullKey(project, resource);
+        detectTasks.add(new Callable<List<CloneGroup>>() {
+          public List<CloneGroup> call() {
+            return detect(index, resource, resourceKey, suffixDetector);
+          }
+        });
+      }
+      List<List<CloneGroup>> clonesByFile = execute(detectTasks, executorService);
+
+      // Save, in the order of files
+      for (int i = 0; i < inputFiles.size(); i++) {
+        save(getResource(inputFiles.get(i)), clonesByFile.get(i), context);
+      }
+
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private static List<CloneGroup> detect(SonarDuplicationsIndex index, Resource resource, String resourceKey, boolean suffixDetector) {
+    Collection<Block> fileBlocks = index.getByResource(resource, resourceKey);
+    if (suffixDetector) {
+      return SuffixCloneDetectionAlgorithm.detect(index, fileBlocks);
+    }
+    return OriginalCloneDetectionAlgorithm.detect(index, fileBlocks);
+  }
+
+  private void save(Resource resource, List<CloneGroup> clones, SensorContext context) {
+    if (!clones.isEmpty()) {
+      DuplicationsData data = new DuplicationsData(resource, context);
+      for (CloneGroup clone : clones) {
+        poplulateData(data, clone);
+      }
+      data.save();
+    }
+  }
+
+  /**
+   * Results are returned in the order of tasks.
+   */
+  private static <T> List<T> execute(List<Callable<T>> tasks, ExecutorService executorService) {
+    List<T> results = Lists.newArrayListWithCapacity(tasks.size());
+    try {
+      for (Future<T> future : executorService.invokeAll(tasks)) {
+        results.add(ConcurrentUtils.getResult(future, "Fail to detect duplications"));
       }
+      return results;
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SonarException("Interrupted while detecting duplications", e);
+    }
+  }
+
+  /**
+   * Chunkers keep state while consuming code, so each thread uses its own instances.
+   */
+  private static final class FileChunker {
+    private final TokenChunker tokenChunker;
+    private final StatementChunker statementChunker = JavaStatementBuilder.build();
+    private final BlockChunker blockChunker = new BlockChunker(BLOCK_SIZE);
+
+    FileChunker(boolean automaton) {
+      tokenChunker = JavaTokenProducer.build(automaton);
+    }
+
+    PackedBlocks chunk(InputFile inputFile, Charset charset) {
+      List<Statement> statements = statementChunker.chunk(tokenChunker.chunk(inputFile.getFile(), charset));
+      PackedBlocks blocks = new PackedBlocks(statements.size());
+      blockChunker.chunk(statements, blocks);
+      return blocks;
     }
   }
 
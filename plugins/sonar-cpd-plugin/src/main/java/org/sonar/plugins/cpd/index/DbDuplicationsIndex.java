@@ -48,6 +48,7 @@ public class DbDuplicationsIndex {
   private final ResourcePersister resourcePersister;
   private final int currentProjectSnapshotId;
   private final Integer lastSnapshotId;
+  private boolean cacheLoaded = false;
 
   public DbDuplicationsIndex(DatabaseSession session, ResourcePersister resourcePersister, Project currentProject) {
     this.session = session;
@@ -72,14 +73,23 @@ public class DbDuplicationsIndex {
     return resourcePersister.getSnapshotOrFail(resource).getId();
   }
 
-  public void prepareCache(Resource resource) {
-    int resourceSnapshotId = getSnapshotIdFor(resource);
+  /**
+   * Blocks of the last snapshots of the other projects are loaded by a single query on the first call, as soon as the blocks
+   * of the current project are inserted, instead of one query per file. Next calls are local lookups.
+   */
+  public synchronized void prepareCache(Resource resource) {
+    if (!cacheLoaded) {
+      loadCache();
+      cacheLoaded = true;
+    }
+  }
 
+  private void loadCache() {
     // Order of columns is important - see code below!
     String sql = "SELECT to_blocks.hash, resource.kee, to_blocks.index_in_file, to_blocks.start_line, to_blocks.end_line" +
-        " FROM duplications_index to_blocks, duplications_index from_blocks, snapshots snapshot, projects resource" +
-        " WHERE from_blocks.snapshot_id = :resource_snapshot_id" +
-        " AND to_blocks.hash = from_blocks.hash" +
+        " FROM duplications_index to_blocks, snapshots snapshot, projects resource" +
+        " WHERE to_blocks.hash IN (SELECT from_blocks.hash FROM duplications_index from_blocks" +
+        " WHERE from_blocks.project_snapshot_id = :current_project_snapshot_id)" +
         " AND to_blocks.snapshot_id = snapshot.id" +
         " AND snapshot.islast = :is_last" +
         " AND snapshot.project_id = resource.id";
@@ -88,7 +98,7 @@ public class DbDuplicationsIndex {
       sql += " AND to_blocks.project_snapshot_id != :last_project_snapshot_id";
     }
     Query query = session.getEntityManager().createNativeQuery(sql)
-        .setParameter("resource_snapshot_id", resourceSnapshotId)
+        .setParameter("current_project_snapshot_id", currentProjectSnapshotId)
         .setParameter("is_last", Boolean.TRUE);
     if (lastSnapshotId != null) {
       query.setParameter("last_project_snapshot_id", lastSnapshotId);
@@ -136,7 +146,8 @@ public class DbDuplicationsIndex {
           block.getIndexInFile(),
           block.getFirstLineNumber(),
           block.getLastLineNumber());
-      session.save(dbBlock);
+      // flushed by JDBC batches on commit
+      session.saveWithoutFlush(dbBlock);
     }
     session.commit();
   }
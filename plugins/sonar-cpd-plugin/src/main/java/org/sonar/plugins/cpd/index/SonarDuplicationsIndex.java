@@ -25,15 +25,15 @@ import java.util.List;
 import org.sonar.api.resources.Resource;
 import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.block.PackedBlocks;
 import org.sonar.duplications.index.AbstractCloneIndex;
-import org.sonar.duplications.index.CloneIndex;
 import org.sonar.duplications.index.PackedMemoryCloneIndex;
 
 import com.google.common.collect.Lists;
 
 public class SonarDuplicationsIndex extends AbstractCloneIndex {
 
-  private final CloneIndex mem = new PackedMemoryCloneIndex();
+  private final PackedMemoryCloneIndex mem = new PackedMemoryCloneIndex();
   private final DbDuplicationsIndex db;
 
   public SonarDuplicationsIndex() {
@@ -53,6 +53,18 @@ public class SonarDuplicationsIndex extends AbstractCloneIndex {
     }
   }
 
+  /**
+   * Blocks are inserted in memory without creating objects. They are converted to {@link Block}s only when saved in database.
+   */
+  public void insert(Resource resource, String resourceKey, PackedBlocks blocks) {
+    for (int i = 0; i < blocks.size(); i++) {
+      mem.insert(resourceKey, blocks.getHash(i), blocks.getIndexInFile(i), blocks.getFirstLineNumber(i), blocks.getLastLineNumber(i));
+    }
+    if (db != null) {
+      db.insert(resource, blocks.toBlocks(resourceKey));
+    }
+  }
+
   public Collection<Block> getByResource(Resource resource, String resourceKey) {
     if (db != null) {
       db.prepareCache(resource);
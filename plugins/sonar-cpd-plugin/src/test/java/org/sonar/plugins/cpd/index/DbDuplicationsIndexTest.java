@@ -60,6 +60,22 @@ public class DbDuplicationsIndexTest extends AbstractDbUnitTestCase {
     assertThat("block end line", block.getLastLineNumber(), is(2));
   }
 
+  @Test
+  public void shouldLoadBlocksOfWholeProjectOnce() {
+    index = new DbDuplicationsIndex(getSession(), null, 9, 7);
+    setupData("shouldGetByHash");
+
+    index.prepareCache(new JavaFile("foo"));
+    index.prepareCache(new JavaFile("other"));
+
+    Collection<Block> blocks = index.getByHash(new ByteArray("aa"));
+    assertThat(blocks.size(), is(1));
+    assertThat(blocks.iterator().next().getResourceId(), is("bar-last"));
+
+    // blocks of old snapshots and of the last snapshot of current project are excluded
+    assertThat(index.getByHash(new ByteArray("bb")).size(), is(0));
+  }
+
   @Test
   public void shouldInsert() {
     Resource resource = new JavaFile("foo");
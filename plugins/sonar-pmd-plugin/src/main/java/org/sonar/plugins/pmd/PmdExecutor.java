@@ -19,6 +19,7 @@
  */
 package org.sonar.plugins.pmd;
 
+import com.google.common.collect.Lists;
 import net.sourceforge.pmd.*;
 import net.sourceforge.pmd.renderers.Renderer;
 import net.sourceforge.pmd.renderers.XMLRenderer;
@@ -30,17 +31,33 @@ import org.slf4j.LoggerFactory;
 import org.sonar.api.BatchExtension;
 import org.sonar.api.resources.Java;
 import org.sonar.api.resources.Project;
+import org.sonar.api.utils.ConcurrentUtils;
 import org.sonar.api.utils.SonarException;
 import org.sonar.api.utils.TimeProfiler;
 import org.sonar.java.api.JavaUtils;
 
 import java.io.*;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class PmdExecutor implements BatchExtension {
 
   private static final Logger LOG = LoggerFactory.getLogger(PmdExecutor.class);
 
+  /**
+   * Number of threads used to analyse the source files of a module. Each thread has its own PMD rulesets, rule context
+   * and report, and the reports are merged at the end. The default value 1 keeps the single-threaded execution.
+   * Rules that use type resolution share a static class loader, so they are always executed on a single thread.
+   *
+   * @since 2.11
+   */
+  public static final String THREADS_PROPERTY = "sonar.pmd.threads";
+  public static final int THREADS_DEFAULT_VALUE = 1;
+
   private PmdConfiguration configuration;
   private Project project;
 
@@ -55,46 +72,109 @@ public class PmdExecutor implements BatchExtension {
     ClassLoader initialClassLoader = Thread.currentThread().getContextClassLoader();
     Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
     try {
-      PMD pmd = new PMD();
-      setJavaVersion(pmd, project);
-      RuleContext ruleContext = new RuleContext();
-      Report report = new Report();
-      ruleContext.setReport(report);
+      List<String> rulesetPaths = configuration.getRulesets();
+      LOG.info("PMD configuration: " + StringUtils.join(rulesetPaths, ", "));
+      RuleSets rulesets = createRulesets(rulesetPaths);
+      SourceType sourceType = getSourceType(project);
+      List<File> files = project.getFileSystem().getSourceFiles(Java.INSTANCE);
+
+      Report report;
+      int threads = getThreads(rulesets, files.size());
+      if (threads > 1) {
+        report = processConcurrently(files, rulesets, rulesetPaths, sourceType, threads);
+      } else {
+        report = new Report();
+        process(files, new AtomicInteger(), rulesets, sourceType, report);
+      }
 
-      RuleSets rulesets = createRulesets();
+      return writeXmlReport(project, report);
 
-      for (File file : project.getFileSystem().getSourceFiles(Java.INSTANCE)) {
-        ruleContext.setSourceCodeFilename(file.getAbsolutePath());
-        Reader fileReader = new InputStreamReader(new FileInputStream(file), project.getFileSystem().getSourceCharset());
-        try {
-          pmd.processFile(fileReader, rulesets, ruleContext);
+    } finally {
+      profiler.stop();
+      Thread.currentThread().setContextClassLoader(initialClassLoader);
+    }
+  }
 
-        } catch (PMDException e) {
-          LOG.error("Fail to execute PMD. Following file is ignored: " + file, e.getCause());
+  int getThreads(RuleSets rulesets, int files) {
+    int threads = THREADS_DEFAULT_VALUE;
+    if (project.getConfiguration() != null) {
+      threads = project.getConfiguration().getInt(THREADS_PROPERTY, THREADS_DEFAULT_VALUE);
+    }
+    if (threads > 1 && rulesets.usesTypeResolution(Language.JAVA)) {
+      LOG.info("PMD rules using type resolution are not thread-safe, source files are analysed on a single thread");
+      threads = 1;
+    }
+    return Math.max(1, Math.min(threads, files));
+  }
+
+  /**
+   * Processes the files from the given cursor until all files are processed. The cursor is shared by the threads
+   * in concurrent mode, so that a thread never waits while files remain.
+   */
+  private void process(List<File> files, AtomicInteger cursor, RuleSets rulesets, SourceType sourceType, Report report) throws IOException {
+    PMD pmd = new PMD();
+    if (sourceType != null) {
+      pmd.setJavaVersion(sourceType);
+    }
+    RuleContext ruleContext = new RuleContext();
+    ruleContext.setReport(report);
 
-        } catch (Exception e) {
-          LOG.error("Fail to execute PMD. Following file is ignored: " + file, e);
+    for (int index = cursor.getAndIncrement(); index < files.size(); index = cursor.getAndIncrement()) {
+      File file = files.get(index);
+      ruleContext.setSourceCodeFilename(file.getAbsolutePath());
+      Reader fileReader = new InputStreamReader(new FileInputStream(file), project.getFileSystem().getSourceCharset());
+      try {
+        pmd.processFile(fileReader, rulesets, ruleContext);
 
-        } finally {
-          IOUtils.closeQuietly(fileReader);
-        }
+      } catch (PMDException e) {
+        LOG.error("Fail to execute PMD. Following file is ignored: " + file, e.getCause());
+
+      } catch (Exception e) {
+        LOG.error("Fail to execute PMD. Following file is ignored: " + file, e);
+
+      } finally {
+        IOUtils.closeQuietly(fileReader);
       }
+    }
+  }
 
-      return writeXmlReport(project, report);
+  /**
+   * Rules are stateful, so each thread gets its own rulesets.
+   */
+  private Report processConcurrently(final List<File> files, RuleSets rulesets, List<String> rulesetPaths, final SourceType sourceType,
+                                     int threads) throws IOException {
+    final AtomicInteger cursor = new AtomicInteger();
+    final ClassLoader classLoader = getClass().getClassLoader();
+    ExecutorService executorService = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Report>> futures = Lists.newArrayList();
+      for (int i = 0; i < threads; i++) {
+        final RuleSets threadRulesets = (i == 0 ? rulesets : createRulesets(rulesetPaths));
+        futures.add(executorService.submit(new Callable<Report>() {
+          public Report call() throws IOException {
+            Thread.currentThread().setContextClassLoader(classLoader);
+            Report threadReport = new Report();
+            process(files, cursor, threadRulesets, sourceType, threadReport);
+            return threadReport;
+          }
+        }));
+      }
+
+      Report report = new Report();
+      for (Future<Report> future : futures) {
+        report.merge(ConcurrentUtils.getResult(future, "Fail to execute PMD"));
+      }
+      return report;
 
     } finally {
-      profiler.stop();
-      Thread.currentThread().setContextClassLoader(initialClassLoader);
+      executorService.shutdownNow();
     }
   }
 
-  private RuleSets createRulesets() {
+  private RuleSets createRulesets(List<String> rulesetPaths) {
     RuleSets rulesets = new RuleSets();
     RuleSetFactory ruleSetFactory = new RuleSetFactory();
 
-    List<String> rulesetPaths = configuration.getRulesets();
-    LOG.info("PMD configuration: " + StringUtils.join(rulesetPaths, ", "));
-
     for (String rulesetPath : rulesetPaths) {
       InputStream rulesInput = openRuleset(rulesetPath);
       rulesets.addRuleSet(ruleSetFactory.createRuleSet(rulesInput));
@@ -152,16 +232,16 @@ public class PmdExecutor implements BatchExtension {
     return javaVersion;
   }
 
-  private void setJavaVersion(PMD pmd, Project project) {
+  private SourceType getSourceType(Project project) {
     String javaVersion = getNormalizedJavaVersion(JavaUtils.getSourceVersion(project));
     if (javaVersion != null) {
       SourceType sourceType = SourceType.getSourceTypeForId("java " + javaVersion);
       if (sourceType != null) {
         LOG.info("Java version: " + javaVersion);
-        pmd.setJavaVersion(sourceType);
-      } else {
-        throw new SonarException("Unsupported Java version for PMD: " + javaVersion);
+        return sourceType;
       }
+      throw new SonarException("Unsupported Java version for PMD: " + javaVersion);
     }
+    return null;
   }
 }
@@ -20,6 +20,7 @@
 package org.sonar.plugins.pmd;
 
 import net.sourceforge.pmd.PMDException;
+import org.apache.commons.configuration.PropertiesConfiguration;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.junit.Test;
@@ -68,6 +69,33 @@ public class PmdExecutorTest {
     assertThat(StringUtils.countMatches(xml, "<violation"), greaterThan(2));
   }
 
+  @Test
+  public void executeConcurrently() throws URISyntaxException, IOException, PMDException {
+    Project project = new Project("two-source-dirs");
+    PropertiesConfiguration configuration = new PropertiesConfiguration();
+    configuration.setProperty(PmdExecutor.THREADS_PROPERTY, "2");
+    project.setConfiguration(configuration);
+
+    ProjectFileSystem fs = mock(ProjectFileSystem.class);
+    File root = new File(getClass().getResource("/org/sonar/plugins/pmd/PmdExecutorTest/executeOnManySourceDirs/").toURI());
+    when(fs.getSourceFiles(Java.INSTANCE)).thenReturn(Arrays.asList(new File(root, "src1/FirstClass.java"), new File(root, "src2/SecondClass.java")));
+    when(fs.getSourceCharset()).thenReturn(Charset.forName("UTF-8"));
+    when(fs.getSonarWorkingDirectory()).thenReturn(new File("target"));
+    project.setFileSystem(fs);
+
+    PmdConfiguration conf = mock(PmdConfiguration.class);
+    File file = FileUtils.toFile(getClass().getResource("/org/sonar/plugins/pmd/PmdExecutorTest/executeOnManySourceDirs/pmd.xml").toURI().toURL());
+    when(conf.getRulesets()).thenReturn(Arrays.asList(file.getAbsolutePath()));
+
+    PmdExecutor executor = new PmdExecutor(project, conf);
+    File xmlReport = executor.execute();
+    String xml = FileUtils.readFileToString(xmlReport);
+
+    // the reports of the two threads are merged
+    assertThat(StringUtils.countMatches(xml, "<file"), is(2));
+    assertThat(StringUtils.countMatches(xml, "<violation"), greaterThan(2));
+  }
+
   @Test
   public void ignorePmdFailures() throws URISyntaxException, IOException, PMDException {
     Project project = new Project("ignorePmdFailures");
@@ -21,6 +21,7 @@ package org.sonar.java.ast;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.google.common.collect.Maps;
 import org.slf4j.Logger;
@@ -32,58 +33,54 @@ import org.sonar.java.squid.JavaSquidConfiguration;
 import org.sonar.squid.recognizer.CodeRecognizer;
 import org.sonar.squid.text.Source;
 
+import com.puppycrawl.tools.checkstyle.Checker;
 import com.puppycrawl.tools.checkstyle.api.Check;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 
 public class CheckstyleSquidBridge extends Check {
 
   private static Logger logger = LoggerFactory.getLogger(CheckstyleSquidBridge.class);
-  private static JavaAstVisitor[] visitors;
-  private static int[] allTokens;
-  private static CodeRecognizer codeRecognizer;
-  private static Map<java.io.File,InputFile> inputFilesByPath = Maps.newHashMap();
-
-  static void setASTVisitors(List<JavaAstVisitor> visitors) {
-    CheckstyleSquidBridge.visitors = visitors.toArray(new JavaAstVisitor[visitors.size()]);
-    SortedSet<Integer> sorter = new TreeSet<Integer>();
-    for (JavaAstVisitor visitor : visitors) {
-      sorter.addAll(visitor.getWantedTokens());
-      allTokens = new int[sorter.size()];
-      int i = 0;
-      for (Integer itSorted : sorter) {
-        allTokens[i++] = itSorted;
-      }
+
+  /**
+   * Context of the scanner whose Checker is being configured on the current thread. Each bridge instance captures it
+   * when Checkstyle creates it, so that several scanners and Checkers can run side by side.
+   */
+  private static final ThreadLocal<ScanContext> CONFIGURED_CONTEXT = new ThreadLocal<ScanContext>();
+
+  private final ScanContext context;
+
+  public CheckstyleSquidBridge() {
+    context = CONFIGURED_CONTEXT.get();
+    if (context == null) {
+      throw new IllegalStateException("CheckstyleSquidBridge must be created by a Checker configured by JavaAstScanner");
     }
   }
 
-  static void setSquidConfiguration(JavaSquidConfiguration conf) {
-    codeRecognizer = new CodeRecognizer(conf.getCommentedCodeThreshold(), new JavaFootprint());
+  static void configure(Checker checker, Configuration config, ScanContext context) throws CheckstyleException {
+    CONFIGURED_CONTEXT.set(context);
+    try {
+      checker.configure(config);
+    } finally {
+      CONFIGURED_CONTEXT.remove();
+    }
   }
 
   @Override
   public int[] getDefaultTokens() {
-    return allTokens; //NOSONAR returning directly the array is not a security flaw here
-  }
-
-  public static InputFile getInputFile(File path) {
-    return inputFilesByPath.get(path);
-  }
-
-  public static void setInputFiles(Collection<InputFile> inputFiles) {
-    inputFilesByPath.clear();
-    for (InputFile inputFile : inputFiles) {
-      inputFilesByPath.put(inputFile.getFile(), inputFile);
-    }
+    return context.allTokens; //NOSONAR returning directly the array is not a security flaw here
   }
 
   @Override
   public void beginTree(DetailAST ast) {
+    Source source = createSource();
+    context.visitorsLock.lock();
     try {
-      Source source = createSource();
-      for (JavaAstVisitor visitor : visitors) {
+      for (JavaAstVisitor visitor : context.visitors) {
         visitor.setFileContents(getFileContents());
         visitor.setSource(source);
-        visitor.setInputFile(getInputFile(new java.io.File(getFileContents().getFilename())));
+        visitor.setInputFile(context.getInputFile(new File(getFileContents().getFilename())));
         visitor.visitFile(ast);
       }
     } catch (RuntimeException e) {
@@ -92,13 +89,13 @@ public class CheckstyleSquidBridge extends Check {
   }
 
   private Source createSource() {
-    return new Source(getFileContents().getLines(), codeRecognizer);
+    return new Source(getFileContents().getLines(), context.codeRecognizer);
   }
 
   @Override
   public void visitToken(DetailAST ast) {
     try {
-      for (JavaAstVisitor visitor : visitors) {
+      for (JavaAstVisitor visitor : context.visitors) {
         if (visitor.getWantedTokens().contains(ast.getType())) {
           visitor.visitToken(ast);
         }
@@ -111,8 +108,8 @@ public class CheckstyleSquidBridge extends Check {
   @Override
   public void leaveToken(DetailAST ast) {
     try {
-      for (int i = visitors.length - 1; i >= 0; i--) {
-        JavaAstVisitor visitor = visitors[i];
+      for (int i = context.visitors.length - 1; i >= 0; i--) {
+        JavaAstVisitor visitor = context.visitors[i];
         if (visitor.getWantedTokens().contains(ast.getType())) {
           visitor.leaveToken(ast);
         }
@@ -125,18 +122,61 @@ public class CheckstyleSquidBridge extends Check {
   @Override
   public void finishTree(DetailAST ast) {
     try {
-      for (int i = visitors.length - 1; i >= 0; i--) {
-        JavaAstVisitor visitor = visitors[i];
+      for (int i = context.visitors.length - 1; i >= 0; i--) {
+        JavaAstVisitor visitor = context.visitors[i];
         visitor.leaveFile(ast);
       }
     } catch (RuntimeException e) {
       logAndThrowException(e);
+    } finally {
+      context.unlockVisitors();
     }
   }
 
   private void logAndThrowException(RuntimeException e) {
+    context.unlockVisitors();
     logger.error("Squid Error occurs when analysing :" + getFileContents().getFilename(), e);
     throw e;
   }
 
+  /**
+   * Visitors and settings of a scan, shared by all the bridges of the Checkers created for it. A file is visited from
+   * beginTree() to finishTree() while holding the visitors lock, so that visitors only see one file at a time
+   * even when several Checkers parse files concurrently.
+   */
+  static final class ScanContext {
+
+    private final JavaAstVisitor[] visitors;
+    private final int[] allTokens;
+    private final CodeRecognizer codeRecognizer;
+    private final Map<File, InputFile> inputFilesByPath = Maps.newHashMap();
+    private final ReentrantLock visitorsLock = new ReentrantLock();
+
+    ScanContext(List<JavaAstVisitor> visitors, JavaSquidConfiguration conf, Collection<InputFile> inputFiles) {
+      this.visitors = visitors.toArray(new JavaAstVisitor[visitors.size()]);
+      SortedSet<Integer> sorter = new TreeSet<Integer>();
+      for (JavaAstVisitor visitor : visitors) {
+        sorter.addAll(visitor.getWantedTokens());
+      }
+      allTokens = new int[sorter.size()];
+      int i = 0;
+      for (Integer itSorted : sorter) {
+        allTokens[i++] = itSorted;
+      }
+      codeRecognizer = new CodeRecognizer(conf.getCommentedCodeThreshold(), new JavaFootprint());
+      for (InputFile inputFile : inputFiles) {
+        inputFilesByPath.put(inputFile.getFile(), inputFile);
+      }
+    }
+
+    InputFile getInputFile(File path) {
+      return inputFilesByPath.get(path);
+    }
+
+    private void unlockVisitors() {
+      if (visitorsLock.isHeldByCurrentThread()) {
+        visitorsLock.unlock();
+      }
+    }
+  }
 }
@@ -27,6 +27,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.resources.InputFile;
 import org.sonar.api.resources.InputFileUtils;
+import org.sonar.api.utils.ConcurrentUtils;
 import org.sonar.java.ast.visitor.*;
 import org.sonar.java.squid.JavaSquidConfiguration;
 import org.sonar.squid.api.AnalysisException;
@@ -45,6 +46,10 @@ import java.io.File;
 import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Squid uses Checkstyle to get an out-of-the-box java parser with AST generation and visitor pattern support.
@@ -60,7 +65,7 @@ public class JavaAstScanner extends CodeScanner<JavaAstVisitor> {
     this.project = project;
   }
 
-  private Checker createChecker(Charset charset) {
+  private Checker createChecker(Charset charset, CheckstyleSquidBridge.ScanContext context) {
     InputStream checkstyleConfig = null;
     try {
       checkstyleConfig = JavaAstScanner.class.getClassLoader().getResourceAsStream("checkstyle-configuration.xml");
@@ -72,7 +77,7 @@ public class JavaAstScanner extends CodeScanner<JavaAstVisitor> {
       Checker c = new Checker();
       final ClassLoader moduleClassLoader = Checker.class.getClassLoader();
       c.setModuleClassLoader(moduleClassLoader);
-      c.configure(config);
+      CheckstyleSquidBridge.configure(c, config, context);
       c.addListener(new CheckstyleAuditListener());
       return c;
 
@@ -112,21 +117,55 @@ public class JavaAstScanner extends CodeScanner<JavaAstVisitor> {
     for (JavaAstVisitor visitor : getVisitors()) {
       visitor.setSourceCodeStack(resourcesStack);
     }
-    CheckstyleSquidBridge.setASTVisitors(getVisitors());
-    CheckstyleSquidBridge.setSquidConfiguration(conf);
-    CheckstyleSquidBridge.setInputFiles(inputFiles);
-    launchCheckstyle(InputFileUtils.toFiles(inputFiles), conf.getCharset());
+    CheckstyleSquidBridge.ScanContext context = new CheckstyleSquidBridge.ScanContext(getVisitors(), conf, inputFiles);
+    List<File> files = InputFileUtils.toFiles(inputFiles);
+    int threads = Math.min(conf.getThreads(), files.size());
+    if (threads > 1) {
+      launchCheckstyleConcurrently(files, context, threads);
+    } else {
+      launchCheckstyle(createChecker(conf.getCharset(), context), files);
+    }
     return this;
   }
 
-  private void launchCheckstyle(Collection<File> files, Charset charset) {
-    Checker c = createChecker(charset);
+  /**
+   * Each thread parses its share of the files with its own Checker. The Checkers share the visitors, which are fed one
+   * file at a time, so the source code tree is built as in a sequential scan.
+   */
+  private void launchCheckstyleConcurrently(List<File> files, CheckstyleSquidBridge.ScanContext context, int threads) {
+    List<Callable<Object>> tasks = Lists.newArrayList();
+    for (int index = 0; index < threads; index++) {
+      final Checker checker = createChecker(conf.getCharset(), context);
+      final List<File> shard = ConcurrentUtils.shard(files, index, threads);
+      tasks.add(new Callable<Object>() {
+        public Object call() {
+          launchCheckstyle(checker, shard);
+          return null;
+        }
+      });
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Object>> futures = Lists.newArrayList();
+      for (Callable<Object> task : tasks) {
+        futures.add(executor.submit(task));
+      }
+      for (Future<Object> future : futures) {
+        ConcurrentUtils.getResult(future, "Fail to scan Java sources");
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void launchCheckstyle(Checker c, List<File> files) {
     ClassLoader initialClassLoader = Thread.currentThread().getContextClassLoader();
     Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
     try {
       c.setClassloader(getClass().getClassLoader());
       c.setModuleClassLoader(getClass().getClassLoader());
-      c.process(Lists.<File>newArrayList(files));
+      c.process(files);
       c.destroy();
     } finally {
       Thread.currentThread().setContextClassLoader(initialClassLoader);
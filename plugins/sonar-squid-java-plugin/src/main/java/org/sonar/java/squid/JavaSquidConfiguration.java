@@ -33,6 +33,8 @@ public class JavaSquidConfiguration extends SquidConfiguration {
   private static final double COMMENTED_CODE_DEFAULT_THRESHOLD = 0.9;
   private double commentedCodeThreshold = COMMENTED_CODE_DEFAULT_THRESHOLD;
 
+  private int threads = 1;
+
   public JavaSquidConfiguration() {
   }
 
@@ -77,4 +79,21 @@ public class JavaSquidConfiguration extends SquidConfiguration {
   public double getCommentedCodeThreshold() {
     return commentedCodeThreshold;
   }
-}
\ No newline at end of file
+
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * Number of threads parsing the source files with their own Checkstyle Checker. The ASTs are still visited one file
+   * at a time.
+   *
+   * @since 2.11
+   */
+  public void setThreads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("The number of threads should be greater than 0. Current value : " + threads);
+    }
+    this.threads = threads;
+  }
+}
@@ -57,8 +57,15 @@ public final class SquidExecutor {
 
   public SquidExecutor(boolean analyzePropertyAccessors, String fieldNamesToExcludeFromLcom4Computation, CheckFactory checkFactory,
                        Charset sourcesCharset) {
+    this(analyzePropertyAccessors, fieldNamesToExcludeFromLcom4Computation, checkFactory, sourcesCharset,
+        SquidPluginProperties.SQUID_THREADS_DEFAULT_VALUE);
+  }
+
+  public SquidExecutor(boolean analyzePropertyAccessors, String fieldNamesToExcludeFromLcom4Computation, CheckFactory checkFactory,
+                       Charset sourcesCharset, int threads) {
     JavaSquidConfiguration conf = createJavaSquidConfiguration(analyzePropertyAccessors, fieldNamesToExcludeFromLcom4Computation,
         sourcesCharset);
+    conf.setThreads(threads);
     squid = new Squid(conf);
     this.checkFactory = checkFactory;
   }
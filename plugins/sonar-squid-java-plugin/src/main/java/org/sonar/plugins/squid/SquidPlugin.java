@@ -48,6 +48,13 @@ import java.util.List;
         project = true,
         global = true,
         category = CoreProperties.CATEGORY_JAVA),
+    @Property(key = SquidPluginProperties.SQUID_THREADS_PROPERTY,
+        defaultValue = SquidPluginProperties.SQUID_THREADS_DEFAULT_VALUE + "",
+        name = "Threads",
+        description = "Number of threads used by Squid to parse the Java source files.",
+        project = true,
+        global = true,
+        category = CoreProperties.CATEGORY_JAVA),
     @Property(
         key = CoreProperties.DESIGN_SKIP_DESIGN_PROPERTY,
         defaultValue = "" + CoreProperties.DESIGN_SKIP_DESIGN_DEFAULT_VALUE,
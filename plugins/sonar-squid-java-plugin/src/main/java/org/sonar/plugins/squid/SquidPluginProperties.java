@@ -27,6 +27,14 @@ public final class SquidPluginProperties {
   public static final String FIELDS_TO_EXCLUDE_FROM_LCOM4_COMPUTATION = "sonar.squid.fieldsToExcludeFromLcom4Computation";
   public static final String FIELDS_TO_EXCLUDE_FROM_LCOM4_COMPUTATION_DEFAULT_VALUE = "LOG, logger";
 
+  /**
+   * Number of threads parsing the Java source files.
+   *
+   * @since 2.11
+   */
+  public static final String SQUID_THREADS_PROPERTY = "sonar.squid.threads";
+  public static final int SQUID_THREADS_DEFAULT_VALUE = 1;
+
   private SquidPluginProperties() {
   }
 
@@ -69,11 +69,14 @@ public class SquidSensor implements Sensor {
     String fieldNamesToExcludeFromLcom4Computation = project.getConfiguration().getString(
         SquidPluginProperties.FIELDS_TO_EXCLUDE_FROM_LCOM4_COMPUTATION,
         SquidPluginProperties.FIELDS_TO_EXCLUDE_FROM_LCOM4_COMPUTATION_DEFAULT_VALUE);
+    int threads = project.getConfiguration().getInt(SquidPluginProperties.SQUID_THREADS_PROPERTY,
+        SquidPluginProperties.SQUID_THREADS_DEFAULT_VALUE);
     Charset charset = project.getFileSystem().getSourceCharset();
 
     AnnotationCheckFactory factory = AnnotationCheckFactory.create(profile, SquidConstants.REPOSITORY_KEY, SquidRuleRepository.getCheckClasses());
 
-    SquidExecutor squidExecutor = new SquidExecutor(analyzePropertyAccessors, fieldNamesToExcludeFromLcom4Computation, factory, charset);
+    SquidExecutor squidExecutor = new SquidExecutor(analyzePropertyAccessors, fieldNamesToExcludeFromLcom4Computation, factory, charset,
+        threads);
     squidExecutor.scan(getMainSourceFiles(project), getBytecodeFiles(project));
     squidExecutor.save(project, context, noSonarFilter);
     squidExecutor.flush();
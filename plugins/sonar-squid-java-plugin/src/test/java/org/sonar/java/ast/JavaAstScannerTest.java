@@ -166,4 +166,23 @@ public class JavaAstScannerTest {
     assertEquals(4, prj.getInt(Metric.LINES_OF_CODE));
     assertEquals(29, prj.getInt(Metric.LINES));
   }
+
+  @Test
+  public void testConcurrentScanGivesSameMeasuresAsSequentialScan() {
+    squid.register(JavaAstScanner.class).scanDirectory(SquidTestUtils.getFile("/bytecode/src"));
+    SourceProject sequential = squid.aggregate();
+
+    JavaSquidConfiguration conf = new JavaSquidConfiguration(false, Charset.defaultCharset(), 0.9);
+    conf.setThreads(3);
+    squid = new Squid(conf);
+    squid.register(JavaAstScanner.class).scanDirectory(SquidTestUtils.getFile("/bytecode/src"));
+    SourceProject concurrent = squid.aggregate();
+
+    assertEquals(sequential.getInt(Metric.PACKAGES), concurrent.getInt(Metric.PACKAGES));
+    assertEquals(sequential.getInt(Metric.FILES), concurrent.getInt(Metric.FILES));
+    assertEquals(sequential.getInt(Metric.CLASSES), concurrent.getInt(Metric.CLASSES));
+    assertEquals(sequential.getInt(Metric.METHODS), concurrent.getInt(Metric.METHODS));
+    assertEquals(sequential.getInt(Metric.LINES_OF_CODE), concurrent.getInt(Metric.LINES_OF_CODE));
+    assertEquals(sequential.getInt(Metric.COMPLEXITY), concurrent.getInt(Metric.COMPLEXITY));
+  }
 }
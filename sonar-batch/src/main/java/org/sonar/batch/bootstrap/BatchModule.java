@@ -20,6 +20,7 @@
 package org.sonar.batch.bootstrap;
 
 import org.sonar.api.Plugins;
+import org.sonar.api.database.DatabaseSession;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Metric;
 import org.sonar.api.resources.Project;
@@ -34,13 +35,31 @@ import org.sonar.core.components.CacheRuleFinder;
 import org.sonar.core.components.DefaultUserFinder;
 import org.sonar.core.notifications.DefaultNotificationManager;
 import org.sonar.jpa.dao.MeasuresDao;
+import org.sonar.jpa.session.DatabaseSessionFactory;
 
 /**
  * Level-2 components. Connected to database.
  */
 public class BatchModule extends Module {
 
+  /**
+   * Number of threads used to analyse the modules of a multi-module project. Each module is analysed with its own
+   * components and database session once its own modules are analysed. The root project is analysed at the end,
+   * so its decorators and post-jobs see the results of all the modules. The default value 1 analyses the modules
+   * one after the other.
+   * <p/>
+   * The thread pools used within the analysis of a module are not shared by modules: each module thread can start
+   * its own sonar.sensors.threads, sonar.decorators.threads, sonar.cpd.threads, sonar.pmd.threads,
+   * sonar.checkstyle.threads and sonar.squid.threads threads. The total number of threads is bounded by the product
+   * of this property by these values, so they are usually not increased together beyond the number of processors.
+   *
+   * @since 2.11
+   */
+  public static final String MODULE_THREADS_PROPERTY = "sonar.batch.moduleThreads";
+  public static final int MODULE_THREADS_DEFAULT_VALUE = 1;
+
   private final boolean dryRun;
+  private int moduleThreads = MODULE_THREADS_DEFAULT_VALUE;
 
   public BatchModule(boolean dryRun) {
     this.dryRun = dryRun;
@@ -49,6 +68,10 @@ public class BatchModule extends Module {
   @Override
   protected void configure() {
     addComponent(ProjectConfiguration.class);
+    moduleThreads = getComponent(ProjectConfiguration.class).getInt(MODULE_THREADS_PROPERTY, MODULE_THREADS_DEFAULT_VALUE);
+    if (moduleThreads > 1) {
+      addComponent(ModuleDatabaseSession.class);
+    }
     addComponent(ProjectTree.class);
     addComponent(DefaultResourceCreationLock.class);
     addComponent(DefaultIndex.class);
@@ -97,7 +120,12 @@ public class BatchModule extends Module {
   @Override
   protected void doStart() {
     ProjectTree projectTree = getComponent(ProjectTree.class);
-    analyze(projectTree.getRootProject());
+    Project rootProject = projectTree.getRootProject();
+    if (moduleThreads > 1 && !rootProject.getModules().isEmpty()) {
+      analyzeConcurrently(rootProject);
+    } else {
+      analyze(rootProject);
+    }
   }
 
   private void analyze(Project project) {
@@ -113,4 +141,62 @@ public class BatchModule extends Module {
       uninstallChild(projectComponents);
     }
   }
+
+  private void analyzeConcurrently(Project rootProject) {
+    // batch components are shared by the modules, they must not be lazily created by concurrent threads
+    getComponents(Object.class);
+
+    ModuleAnalysisScheduler scheduler = new ModuleAnalysisScheduler(moduleThreads, new ModuleAnalysisScheduler.ModuleAnalysis() {
+      public void analyze(Project module) {
+        analyzeModule(module);
+      }
+    });
+    scheduler.execute(rootProject);
+
+    Module projectComponents = installChild(new ProjectModule(rootProject, dryRun));
+    try {
+      projectComponents.start();
+    } finally {
+      projectComponents.stop();
+      uninstallChild(projectComponents);
+    }
+  }
+
+  private void analyzeModule(Project module) {
+    ModuleDatabaseSession session = getComponent(ModuleDatabaseSession.class);
+    DatabaseSessionFactory sessionFactory = getComponent(DatabaseSessionFactory.class);
+    session.bind(sessionFactory.getSession());
+    try {
+      Module moduleComponents = installModule(module);
+      try {
+        moduleComponents.start();
+        merge(moduleComponents);
+      } finally {
+        moduleComponents.stop();
+        uninstallModule(moduleComponents);
+      }
+    } finally {
+      session.unbind();
+      sessionFactory.clear();
+    }
+  }
+
+  private synchronized Module installModule(Project module) {
+    return installChild(new ProjectModule(module, dryRun, true));
+  }
+
+  private synchronized void uninstallModule(Module moduleComponents) {
+    uninstallChild(moduleComponents);
+  }
+
+  /**
+   * Keeps the results of a module which are required by the analysis of its parents.
+   */
+  private void merge(Module moduleComponents) {
+    getComponent(DefaultIndex.class).mergeModuleIndex(moduleComponents.getComponent(DefaultIndex.class));
+    if (!dryRun) {
+      getComponent(DefaultResourcePersister.class).mergeModulePersister(moduleComponents.getComponent(DefaultResourcePersister.class));
+      getComponent(MemoryOptimizer.class).mergeModuleOptimizer(moduleComponents.getComponent(MemoryOptimizer.class));
+    }
+  }
 }
@@ -0,0 +1,133 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.batch.bootstrap;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.sonar.api.resources.Project;
+import org.sonar.api.utils.SonarException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Analyses the modules of a project tree with a bounded pool of threads. A module is analysed once all its own
+ * modules are analysed, so that its decorators can read their measures. The root project is not analysed.
+ * When the analysis of a module fails, the modules not started yet are skipped and the first error is rethrown.
+ *
+ * @since 2.11
+ */
+final class ModuleAnalysisScheduler {
+
+  interface ModuleAnalysis {
+    void analyze(Project module);
+  }
+
+  private final int threads;
+  private final ModuleAnalysis analysis;
+
+  private ExecutorService executor;
+  private CountDownLatch remainingModules;
+  private final Map<Project, AtomicInteger> remainingChildren = Maps.newHashMap();
+  private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+  ModuleAnalysisScheduler(int threads, ModuleAnalysis analysis) {
+    this.threads = threads;
+    this.analysis = analysis;
+  }
+
+  void execute(Project rootProject) {
+    List<Project> modules = Lists.newArrayList();
+    collectModules(rootProject, modules);
+    if (modules.isEmpty()) {
+      return;
+    }
+
+    remainingModules = new CountDownLatch(modules.size());
+    executor = Executors.newFixedThreadPool(Math.min(threads, modules.size()));
+    try {
+      for (Project module : modules) {
+        if (module.getModules().isEmpty()) {
+          submit(module);
+        }
+      }
+      remainingModules.await();
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SonarException("Interrupted while analysing the modules of " + rootProject.getName(), e);
+
+    } finally {
+      executor.shutdownNow();
+    }
+    rethrowFailure();
+  }
+
+  private void collectModules(Project project, List<Project> modules) {
+    for (Project module : project.getModules()) {
+      collectModules(module, modules);
+      modules.add(module);
+      remainingChildren.put(module, new AtomicInteger(module.getModules().size()));
+    }
+  }
+
+  private void submit(final Project module) {
+    executor.execute(new Runnable() {
+      public void run() {
+        try {
+          if (failure.get() == null) {
+            analysis.analyze(module);
+          }
+        } catch (Throwable e) {
+          failure.compareAndSet(null, e);
+        } finally {
+          analysed(module);
+        }
+      }
+    });
+  }
+
+  private void analysed(Project module) {
+    Project parent = module.getParent();
+    AtomicInteger siblings = (parent != null ? remainingChildren.get(parent) : null);
+    if (siblings != null && siblings.decrementAndGet() == 0) {
+      submit(parent);
+    }
+    remainingModules.countDown();
+  }
+
+  private void rethrowFailure() {
+    Throwable e = failure.get();
+    if (e instanceof RuntimeException) {
+      throw (RuntimeException) e;
+    }
+    if (e instanceof Error) {
+      throw (Error) e;
+    }
+    if (e != null) {
+      throw new SonarException(e);
+    }
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.batch.bootstrap;
+
+import org.sonar.api.database.DatabaseSession;
+import org.sonar.jpa.session.DatabaseSessionFactory;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.List;
+
+/**
+ * Database session of the batch when modules are analysed concurrently. Each call is delegated to the session bound
+ * to the module analysed by the current thread, or to the session of the batch when no module is bound. Threads
+ * started by the analysis of a module inherit its session.
+ *
+ * @since 2.11
+ */
+public class ModuleDatabaseSession extends DatabaseSession {
+
+  private final DatabaseSession batchSession;
+  private final InheritableThreadLocal<DatabaseSession> moduleSession = new InheritableThreadLocal<DatabaseSession>();
+
+  public ModuleDatabaseSession(DatabaseSessionFactory sessionFactory) {
+    this.batchSession = sessionFactory.getSession();
+  }
+
+  void bind(DatabaseSession session) {
+    moduleSession.set(session);
+  }
+
+  void unbind() {
+    moduleSession.remove();
+  }
+
+  DatabaseSession getDelegate() {
+    DatabaseSession session = moduleSession.get();
+    return session != null ? session : batchSession;
+  }
+
+  @Override
+  public EntityManager getEntityManager() {
+    return getDelegate().getEntityManager();
+  }
+
+  /**
+   * Sessions are started and stopped by the session factory.
+   */
+  @Override
+  public void start() {
+  }
+
+  /**
+   * Sessions are started and stopped by the session factory.
+   */
+  @Override
+  public void stop() {
+  }
+
+  @Override
+  public void commit() {
+    getDelegate().commit();
+  }
+
+  @Override
+  public void rollback() {
+    getDelegate().rollback();
+  }
+
+  @Override
+  public <T> T save(T entity) {
+    return getDelegate().save(entity);
+  }
+
+  @Override
+  public Object saveWithoutFlush(Object entity) {
+    return getDelegate().saveWithoutFlush(entity);
+  }
+
+  @Override
+  public boolean contains(Object entity) {
+    return getDelegate().contains(entity);
+  }
+
+  @Override
+  public void save(Object... entities) {
+    getDelegate().save(entities);
+  }
+
+  @Override
+  public Object merge(Object entity) {
+    return getDelegate().merge(entity);
+  }
+
+  @Override
+  public void remove(Object entity) {
+    getDelegate().remove(entity);
+  }
+
+  @Override
+  public void removeWithoutFlush(Object entity) {
+    getDelegate().removeWithoutFlush(entity);
+  }
+
+  @Override
+  public <T> T reattach(Class<T> entityClass, Object primaryKey) {
+    return getDelegate().reattach(entityClass, primaryKey);
+  }
+
+  @Override
+  public Query createQuery(String hql) {
+    return getDelegate().createQuery(hql);
+  }
+
+  @Override
+  public Query createNativeQuery(String sql) {
+    return getDelegate().createNativeQuery(sql);
+  }
+
+  @Override
+  public <T> T getSingleResult(Query query, T defaultValue) {
+    return getDelegate().getSingleResult(query, defaultValue);
+  }
+
+  @Override
+  public <T> T getEntity(Class<T> entityClass, Object id) {
+    return getDelegate().getEntity(entityClass, id);
+  }
+
+  @Override
+  public <T> T getSingleResult(Class<T> entityClass, Object... criterias) {
+    return getDelegate().getSingleResult(entityClass, criterias);
+  }
+
+  @Override
+  public <T> List<T> getResults(Class<T> entityClass, Object... criterias) {
+    return getDelegate().getResults(entityClass, criterias);
+  }
+
+  @Override
+  public <T> List<T> getResults(Class<T> entityClass) {
+    return getDelegate().getResults(entityClass);
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.batch.bootstrap;
+
+import org.picocontainer.injectors.ProviderAdapter;
+import org.sonar.batch.DefaultResourceCreationLock;
+import org.sonar.batch.index.DefaultIndex;
+import org.sonar.batch.index.PersistenceManager;
+
+/**
+ * Index of a module analysed concurrently with other modules. See {@link BatchModule#MODULE_THREADS_PROPERTY}.
+ *
+ * @since 2.11
+ */
+public class ModuleIndexProvider extends ProviderAdapter {
+
+  private final DefaultIndex batchIndex;
+  private DefaultIndex index;
+
+  public ModuleIndexProvider(DefaultIndex batchIndex) {
+    this.batchIndex = batchIndex;
+  }
+
+  public DefaultIndex provide(PersistenceManager persistence, DefaultResourceCreationLock lock) {
+    if (index == null) {
+      index = batchIndex.newModuleIndex(persistence, lock);
+    }
+    return index;
+  }
+}
@@ -33,8 +33,7 @@ import org.sonar.api.utils.SonarException;
 import org.sonar.batch.*;
 import org.sonar.batch.components.TimeMachineConfiguration;
 import org.sonar.batch.events.EventBus;
-import org.sonar.batch.index.DefaultIndex;
-import org.sonar.batch.index.DefaultResourcePersister;
+import org.sonar.batch.index.*;
 import org.sonar.batch.phases.Phases;
 import org.sonar.batch.phases.PhasesTimeProfiler;
 import org.sonar.core.components.DefaultModelFinder;
@@ -46,16 +45,29 @@ public class ProjectModule extends Module {
   private static final Logger LOG = LoggerFactory.getLogger(ProjectModule.class);
   private Project project;
   private boolean dryRun;
+  private boolean concurrent;
 
   public ProjectModule(Project project, boolean dryRun) {
+    this(project, dryRun, false);
+  }
+
+  /**
+   * @param concurrent true if the module is analysed concurrently with other modules. See {@link BatchModule#MODULE_THREADS_PROPERTY}.
+   * @since 2.11
+   */
+  public ProjectModule(Project project, boolean dryRun, boolean concurrent) {
     this.project = project;
     this.dryRun = dryRun;
+    this.concurrent = concurrent;
   }
 
   @Override
   protected void configure() {
     logSettings();
     addCoreComponents();
+    if (concurrent) {
+      addModuleIndexComponents();
+    }
     addProjectComponents();
     addProjectPluginExtensions();
   }
@@ -94,6 +106,26 @@ public class ProjectModule extends Module {
     addAdapter(new ProfileProvider());
   }
 
+  /**
+   * The index and the persistence components of the batch can not be shared by modules analysed concurrently.
+   */
+  private void addModuleIndexComponents() {
+    addComponent(DefaultResourceCreationLock.class);
+    if (dryRun) {
+      addComponent(ReadOnlyPersistenceManager.class);
+    } else {
+      addComponent(getComponent(DefaultResourcePersister.class).newModulePersister());
+      addComponent(DefaultPersistenceManager.class);
+      addComponent(DependencyPersister.class);
+      addComponent(EventPersister.class);
+      addComponent(LinkPersister.class);
+      addComponent(MeasurePersister.class);
+      addComponent(MemoryOptimizer.class);
+      addComponent(SourcePersister.class);
+    }
+    addAdapter(new ModuleIndexProvider(getComponent(DefaultIndex.class)));
+  }
+
   private void addCoreComponents() {
     addComponent(EventBus.class);
     addComponent(Phases.class);
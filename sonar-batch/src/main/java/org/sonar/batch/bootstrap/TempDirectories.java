@@ -58,7 +58,7 @@ public final class TempDirectories {
   /**
    * Get or create a working directory
    */
-  public File getDir(String key) {
+  public synchronized File getDir(String key) {
     if (StringUtils.isBlank(key)) {
       return rootDir;
     }
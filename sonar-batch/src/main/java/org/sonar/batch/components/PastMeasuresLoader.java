@@ -19,7 +19,10 @@
  */
 package org.sonar.batch.components;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Maps;
+import org.apache.commons.configuration.Configuration;
 import org.apache.commons.lang.ObjectUtils;
 import org.sonar.api.BatchExtension;
 import org.sonar.api.database.DatabaseSession;
@@ -29,7 +32,9 @@ import org.sonar.api.measures.Metric;
 import org.sonar.api.measures.MetricFinder;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.resources.Resource;
+import org.sonar.api.resources.Scopes;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -37,13 +42,31 @@ import java.util.Map;
 
 public class PastMeasuresLoader implements BatchExtension {
 
+  /**
+   * When enabled, the past measures of all the projects and directories of a past analysis are loaded by a single query,
+   * instead of one query per resource. It requires more memory.
+   *
+   * @since 2.11
+   */
+  public static final String PRELOAD_PROPERTY = "sonar.timemachine.preloadPastMeasures";
+  public static final boolean PRELOAD_DEFAULT_VALUE = false;
+
+  private static final List<String> PRELOADED_SCOPES = Arrays.asList(Scopes.PROJECT, Scopes.DIRECTORY);
+
   private Map<Integer, Metric> metricByIds;
   private DatabaseSession session;
+  private boolean preload = PRELOAD_DEFAULT_VALUE;
+  private Map<Integer, ListMultimap<String, Object[]>> preloadedMeasuresByRootSnapshotId = Maps.newHashMap();
 
   public PastMeasuresLoader(DatabaseSession session, MetricFinder metricFinder) {
     this(session, metricFinder.findAll());
   }
 
+  public PastMeasuresLoader(DatabaseSession session, MetricFinder metricFinder, Configuration configuration) {
+    this(session, metricFinder.findAll());
+    this.preload = configuration.getBoolean(PRELOAD_PROPERTY, PRELOAD_DEFAULT_VALUE);
+  }
+
   PastMeasuresLoader(DatabaseSession session, Collection<Metric> metrics) {
     this.session = session;
     this.metricByIds = Maps.newHashMap();
@@ -58,20 +81,64 @@ public class PastMeasuresLoader implements BatchExtension {
     return metricByIds.values();
   }
 
+  PastMeasuresLoader setPreload(boolean b) {
+    this.preload = b;
+    return this;
+  }
+
   public List<Object[]> getPastMeasures(Resource resource, PastSnapshot projectPastSnapshot) {
     if (projectPastSnapshot != null && projectPastSnapshot.getProjectSnapshot()!=null) {
+      if (preload && PRELOADED_SCOPES.contains(resource.getScope())) {
+        return getPreloadedPastMeasures(resource.getEffectiveKey(), projectPastSnapshot.getProjectSnapshot());
+      }
       return getPastMeasures(resource.getEffectiveKey(), projectPastSnapshot.getProjectSnapshot());
     }
     return Collections.emptyList();
   }
 
+  /**
+   * Past measures of projects and directories are loaded once per past analysis, then shared by all the modules.
+   */
+  synchronized List<Object[]> getPreloadedPastMeasures(String resourceKey, Snapshot projectPastSnapshot) {
+    Integer rootSnapshotId = getRootSnapshotId(projectPastSnapshot);
+    ListMultimap<String, Object[]> measuresByResourceKey = preloadedMeasuresByRootSnapshotId.get(rootSnapshotId);
+    if (measuresByResourceKey == null) {
+      measuresByResourceKey = loadPastMeasures(rootSnapshotId);
+      preloadedMeasuresByRootSnapshotId.put(rootSnapshotId, measuresByResourceKey);
+    }
+    return measuresByResourceKey.get(resourceKey);
+  }
+
+  private ListMultimap<String, Object[]> loadPastMeasures(Integer rootSnapshotId) {
+    // the resource key is the last column, so that rows can be read with the same accessors than getPastMeasures()
+    String sql = "select m.metric_id, m.characteristic_id, m.rule_id, m.rule_priority, m.value, p.kee from project_measures m, snapshots s, projects p" +
+        " where m.snapshot_id=s.id and s.project_id=p.id and m.metric_id in (:metricIds) " +
+        " and (s.root_snapshot_id=:rootSnapshotId or s.id=:rootSnapshotId) and s.status=:status and s.scope in (:scopes) and p.qualifier<>:lib";
+    List<Object[]> rows = session.createNativeQuery(sql)
+        .setParameter("metricIds", metricByIds.keySet())
+        .setParameter("rootSnapshotId", rootSnapshotId)
+        .setParameter("status", Snapshot.STATUS_PROCESSED)
+        .setParameter("scopes", PRELOADED_SCOPES)
+        .setParameter("lib", Qualifiers.LIBRARY)
+        .getResultList();
+    ListMultimap<String, Object[]> measuresByResourceKey = ArrayListMultimap.create();
+    for (Object[] row : rows) {
+      measuresByResourceKey.put((String) row[5], row);
+    }
+    return measuresByResourceKey;
+  }
+
+  private static Integer getRootSnapshotId(Snapshot projectSnapshot) {
+    return (Integer) ObjectUtils.defaultIfNull(projectSnapshot.getRootId(), projectSnapshot.getId());
+  }
+
   public List<Object[]> getPastMeasures(String resourceKey, Snapshot projectPastSnapshot) {
     String sql = "select m.metric_id, m.characteristic_id, m.rule_id, m.rule_priority, m.value from project_measures m, snapshots s" +
         " where m.snapshot_id=s.id and m.metric_id in (:metricIds) " +
         " and (s.root_snapshot_id=:rootSnapshotId or s.id=:rootSnapshotId) and s.status=:status and s.project_id=(select p.id from projects p where p.kee=:resourceKey and p.qualifier<>:lib)";
     return session.createNativeQuery(sql)
         .setParameter("metricIds", metricByIds.keySet())
-        .setParameter("rootSnapshotId", ObjectUtils.defaultIfNull(projectPastSnapshot.getRootId(), projectPastSnapshot.getId()))
+        .setParameter("rootSnapshotId", getRootSnapshotId(projectPastSnapshot))
         .setParameter("resourceKey", resourceKey)
         .setParameter("lib", Qualifiers.LIBRARY)
         .setParameter("status", Snapshot.STATUS_PROCESSED)
@@ -39,6 +39,15 @@ import java.util.List;
 
 public class TimeMachineConfiguration implements BatchExtension {
 
+  /**
+   * Load the past measures of the module and of its directories with a single query before computing tendencies,
+   * instead of one query per resource.
+   *
+   * @since 2.11
+   */
+  public static final String PRELOAD_TENDENCIES_PROPERTY = "sonar.timemachine.preloadTendencies";
+  public static final boolean PRELOAD_TENDENCIES_DEFAULT_VALUE = false;
+
   private static final int NUMBER_OF_VARIATION_SNAPSHOTS = 5;
 
   private Project project;
@@ -102,6 +111,13 @@ public class TimeMachineConfiguration implements BatchExtension {
     return configuration.getInt(CoreProperties.CORE_TENDENCY_DEPTH_PROPERTY, CoreProperties.CORE_TENDENCY_DEPTH_DEFAULT_VALUE);
   }
 
+  /**
+   * @since 2.11
+   */
+  public boolean isTendencyPreloadEnabled() {
+    return configuration.getBoolean(PRELOAD_TENDENCIES_PROPERTY, PRELOAD_TENDENCIES_DEFAULT_VALUE);
+  }
+
   public List<PastSnapshot> getProjectPastSnapshots() {
     return projectPastSnapshots;
   }
@@ -23,6 +23,8 @@ import com.google.common.collect.Lists;
 import org.sonar.api.batch.events.EventHandler;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Dispatches {@link BatchEvent}s. Eases decoupling by allowing objects to interact without having direct dependencies upon one another, and
@@ -32,6 +34,11 @@ public class EventBus {
 
   private EventHandler[] registeredHandlers;
 
+  /**
+   * Handlers by handler type, computed on the first event of each type. Events can be fired from several threads.
+   */
+  private Map<Class, EventHandler[]> dispatchTables = new ConcurrentHashMap<Class, EventHandler[]>();
+
   public EventBus(EventHandler[] handlers) {
     this.registeredHandlers = handlers;
   }
@@ -44,20 +51,29 @@ public class EventBus {
   }
 
   private void doFireEvent(BatchEvent event) {
-    List<EventHandler> handlers = getDispatchList(event.getType());
-    for (EventHandler handler : handlers) {
-      event.dispatch(handler);
+    EventHandler[] handlers = getDispatchList(event.getType());
+    for (int i = 0; i < handlers.length; i++) {
+      event.dispatch(handlers[i]);
+    }
+  }
+
+  private EventHandler[] getDispatchList(Class<? extends EventHandler> handlerType) {
+    EventHandler[] handlers = dispatchTables.get(handlerType);
+    if (handlers == null) {
+      handlers = computeDispatchList(handlerType);
+      dispatchTables.put(handlerType, handlers);
     }
+    return handlers;
   }
 
-  private List<EventHandler> getDispatchList(Class<? extends EventHandler> handlerType) {
+  private EventHandler[] computeDispatchList(Class<? extends EventHandler> handlerType) {
     List<EventHandler> result = Lists.newArrayList();
     for (EventHandler handler : registeredHandlers) {
       if (handlerType.isAssignableFrom(handler.getClass())) {
         result.add(handler);
       }
     }
-    return result;
+    return result.toArray(new EventHandler[result.size()]);
   }
 
 }
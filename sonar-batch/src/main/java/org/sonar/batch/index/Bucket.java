@@ -19,8 +19,6 @@
  */
 package org.sonar.batch.index;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import org.sonar.api.measures.Measure;
 import org.sonar.api.measures.MeasuresFilter;
@@ -29,15 +27,15 @@ import org.sonar.api.resources.Resource;
 import org.sonar.api.rules.Violation;
 import org.sonar.api.utils.SonarException;
 
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
 public final class Bucket {
 
   private Resource resource;
-  private ListMultimap<String, Measure> measuresByMetric = ArrayListMultimap.create();
-  private List<Violation> violations = Lists.newLinkedList();
+  private CompactMeasures measures = new CompactMeasures();
+  private List<Violation> violations = Lists.newArrayList();
+  private ViolationsSpill.Segment spilledViolations;
 
   private Bucket parent;
   private List<Bucket> children;
@@ -84,32 +82,38 @@ public final class Bucket {
     violations.add(violation);
   }
 
+  /**
+   * In-memory violations only. See {@link #getSpilledViolations()}.
+   */
   public List<Violation> getViolations() {
     return violations;
   }
 
+  ViolationsSpill.Segment getSpilledViolations() {
+    return spilledViolations;
+  }
+
+  /**
+   * In-memory violations are replaced by their location in the spill file.
+   */
+  void setSpilledViolations(ViolationsSpill.Segment segment) {
+    this.spilledViolations = segment;
+    this.violations = Lists.newArrayList();
+  }
+
   public void addMeasure(Measure measure) {
-    List<Measure> metricMeasures = measuresByMetric.get(measure.getMetric().getKey());
-
-    boolean add = true;
-    if (metricMeasures != null) {
-      int index = metricMeasures.indexOf(measure);
-      if (index > -1) {
-        if (metricMeasures.get(index) == measure) {
-          add = false;
-        } else {
-          throw new SonarException("Can not add twice the same measure on " + resource + ": " + measure);
-        }
-      }
-    }
-    if (add) {
-      measuresByMetric.put(measure.getMetric().getKey(), measure);
+    Measure existing = measures.find(measure);
+    if (existing == null) {
+      measures.add(measure);
+    } else if (existing != measure) {
+      throw new SonarException("Can not add twice the same measure on " + resource + ": " + measure);
     }
   }
 
   public void clear() {
-    measuresByMetric = null;
+    measures = null;
     violations = null;
+    spilledViolations = null;
     children = null;
     if (parent != null) {
       parent.removeChild(this);
@@ -118,11 +122,11 @@ public final class Bucket {
   }
 
   public <M> M getMeasures(final MeasuresFilter<M> filter) {
-    Collection<Measure> unfiltered;
+    List<Measure> unfiltered;
     if (filter instanceof MeasuresFilters.MetricFilter) {
-      unfiltered = measuresByMetric.get(((MeasuresFilters.MetricFilter) filter).filterOnMetricKey());
+      unfiltered = measures.get(((MeasuresFilters.MetricFilter) filter).filterOnMetricKey());
     } else {
-      unfiltered = measuresByMetric.values();
+      unfiltered = measures.values();
     }
     return filter.filter(unfiltered);
   }
@@ -0,0 +1,130 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.batch.index;
+
+import org.sonar.api.measures.Measure;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Measures of a resource, stored in a single array sorted by metric key. It replaces a multimap of lists in order
+ * to keep a few references per measure instead of several objects per metric, which matters when the index
+ * contains one bucket per file.
+ *
+ * @since 2.11
+ */
+final class CompactMeasures {
+
+  private static final Measure[] EMPTY = new Measure[0];
+  private static final int INITIAL_CAPACITY = 4;
+
+  private Measure[] measures = EMPTY;
+  private int size = 0;
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Measures of the same metric are kept in insertion order.
+   */
+  void add(Measure measure) {
+    int insertionIndex = upperBound(measure.getMetricKey());
+    ensureCapacity(size + 1);
+    System.arraycopy(measures, insertionIndex, measures, insertionIndex + 1, size - insertionIndex);
+    measures[insertionIndex] = measure;
+    size++;
+  }
+
+  /**
+   * @return the stored measure equal to the given one, else null
+   */
+  Measure find(Measure measure) {
+    String metricKey = measure.getMetricKey();
+    for (int i = lowerBound(metricKey); i < size && metricKey.equals(measures[i].getMetricKey()); i++) {
+      if (measures[i].equals(measure)) {
+        return measures[i];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Copy of the measures of the given metric, as the returned list can be read after the index lock is released.
+   */
+  List<Measure> get(String metricKey) {
+    return copy(lowerBound(metricKey), upperBound(metricKey));
+  }
+
+  /**
+   * Copy of all the measures, see {@link #get(String)}.
+   */
+  List<Measure> values() {
+    return copy(0, size);
+  }
+
+  private List<Measure> copy(int from, int to) {
+    if (from == to) {
+      return Collections.emptyList();
+    }
+    Measure[] copy = new Measure[to - from];
+    System.arraycopy(measures, from, copy, 0, copy.length);
+    return Arrays.asList(copy);
+  }
+
+  private int lowerBound(String metricKey) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (measures[mid].getMetricKey().compareTo(metricKey) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private int upperBound(String metricKey) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (measures[mid].getMetricKey().compareTo(metricKey) <= 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > measures.length) {
+      int newCapacity = Math.max(INITIAL_CAPACITY, measures.length + (measures.length >> 1) + 1);
+      Measure[] newMeasures = new Measure[Math.max(newCapacity, capacity)];
+      System.arraycopy(measures, 0, newMeasures, 0, size);
+      measures = newMeasures;
+    }
+  }
+}
@@ -19,6 +19,8 @@
  */
 package org.sonar.batch.index;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -55,15 +57,29 @@ import org.sonar.batch.DefaultResourceCreationLock;
 import org.sonar.batch.ProjectTree;
 import org.sonar.batch.ResourceFilters;
 import org.sonar.batch.ViolationFilters;
+import org.sonar.batch.bootstrap.TempDirectories;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
+/**
+ * Buckets, dependencies and persistence are guarded by the index monitor, so that measures and violations
+ * can be saved from decorators executed concurrently (see {@link org.sonar.batch.phases.DecoratorsExecutor}).
+ */
 public class DefaultIndex extends SonarIndex {
 
   private static final Logger LOG = LoggerFactory.getLogger(DefaultIndex.class);
 
+  /**
+   * Maximum number of violations kept in memory for the current module. When exceeded, the violations of the files
+   * that are already decorated are moved to a temp file and reloaded when requested. The default value 0 disables it.
+   *
+   * @since 2.11
+   */
+  public static final String MAX_VIOLATIONS_IN_MEMORY_PROPERTY = "sonar.index.maxViolationsInMemory";
+  public static final int MAX_VIOLATIONS_IN_MEMORY_DEFAULT_VALUE = 0;
+
   private RulesProfile profile;
   private PersistenceManager persistence;
   private DefaultResourceCreationLock lock;
@@ -81,6 +97,16 @@ public class DefaultIndex extends SonarIndex {
   private Map<Resource, Map<Resource, Dependency>> incomingDependenciesByResource = Maps.newHashMap();
   private ProjectTree projectTree;
 
+  // violations spill
+  private TempDirectories tempDirectories;
+  private int maxViolationsInMemory = MAX_VIOLATIONS_IN_MEMORY_DEFAULT_VALUE;
+  private int violationsInMemory = 0;
+  private List<Bucket> decoratedBuckets = Lists.newArrayList();
+  private ViolationsSpill violationsSpill;
+
+  // index of a module analysed concurrently with other modules
+  private boolean moduleIndex = false;
+
   public DefaultIndex(PersistenceManager persistence, DefaultResourceCreationLock lock, ProjectTree projectTree, MetricFinder metricFinder) {
     this.persistence = persistence;
     this.lock = lock;
@@ -88,9 +114,60 @@ public class DefaultIndex extends SonarIndex {
     this.metricFinder = metricFinder;
   }
 
+  public DefaultIndex(PersistenceManager persistence, DefaultResourceCreationLock lock, ProjectTree projectTree, MetricFinder metricFinder,
+                      TempDirectories tempDirectories) {
+    this(persistence, lock, projectTree, metricFinder);
+    this.tempDirectories = tempDirectories;
+  }
+
   public void start() {
-    Project rootProject = projectTree.getRootProject();
-    doStart(rootProject);
+    if (!moduleIndex) {
+      Project rootProject = projectTree.getRootProject();
+      doStart(rootProject);
+    }
+  }
+
+  /**
+   * Creates the index of a module analysed concurrently with other modules. It shares the buckets of projects with
+   * this index but keeps its own files, directories and dependencies. Projects are not persisted again.
+   *
+   * @since 2.11
+   */
+  public synchronized DefaultIndex newModuleIndex(PersistenceManager modulePersistence, DefaultResourceCreationLock moduleLock) {
+    DefaultIndex index = new DefaultIndex(modulePersistence, moduleLock, projectTree, metricFinder, tempDirectories);
+    index.moduleIndex = true;
+    index.currentProject = currentProject;
+    for (Map.Entry<Resource, Bucket> entry : buckets.entrySet()) {
+      if (ResourceUtils.isSet(entry.getKey())) {
+        index.buckets.put(entry.getKey(), entry.getValue());
+      }
+    }
+    for (Dependency dependency : getDependenciesBetweenProjects()) {
+      index.registerDependency(dependency);
+    }
+    return index;
+  }
+
+  /**
+   * Keeps the libraries and the dependencies between projects registered by a module index once the module is
+   * analysed, as {@link #clear()} does when modules are analysed one after the other.
+   *
+   * @since 2.11
+   */
+  public synchronized void mergeModuleIndex(DefaultIndex index) {
+    synchronized (index) {
+      for (Map.Entry<Resource, Bucket> entry : index.buckets.entrySet()) {
+        if (ResourceUtils.isSet(entry.getKey()) && !buckets.containsKey(entry.getKey())) {
+          buckets.put(entry.getKey(), entry.getValue());
+        }
+      }
+      for (Dependency dependency : index.getDependenciesBetweenProjects()) {
+        if (!dependencies.contains(dependency)) {
+          dependency.setId(null);
+          registerDependency(dependency);
+        }
+      }
+    }
   }
 
   void doStart(Project rootProject) {
@@ -122,12 +199,15 @@ public class DefaultIndex extends SonarIndex {
     this.resourceFilters = resourceFilters;
     this.violationFilters = violationFilters;
     this.profile = profile;
+    if (project.getConfiguration() != null) {
+      this.maxViolationsInMemory = project.getConfiguration().getInt(MAX_VIOLATIONS_IN_MEMORY_PROPERTY, MAX_VIOLATIONS_IN_MEMORY_DEFAULT_VALUE);
+    }
   }
 
   /**
    * Keep only project stuff
    */
-  public void clear() {
+  public synchronized void clear() {
     Iterator<Map.Entry<Resource, Bucket>> it = buckets.entrySet().iterator();
     while (it.hasNext()) {
       Map.Entry<Resource, Bucket> entry = it.next();
@@ -147,10 +227,17 @@ public class DefaultIndex extends SonarIndex {
       registerDependency(projectDependency);
     }
 
+    decoratedBuckets.clear();
+    violationsInMemory = 0;
+    if (violationsSpill != null) {
+      violationsSpill.close();
+      violationsSpill = null;
+    }
+
     lock.unlock();
   }
 
-  public Measure getMeasure(Resource resource, Metric metric) {
+  public synchronized Measure getMeasure(Resource resource, Metric metric) {
     Bucket bucket = buckets.get(resource);
     if (bucket != null) {
       Measure measure = bucket.getMeasures(MeasuresFilters.metric(metric));
@@ -161,7 +248,7 @@ public class DefaultIndex extends SonarIndex {
     return null;
   }
 
-  public <M> M getMeasures(Resource resource, MeasuresFilter<M> filter) {
+  public synchronized <M> M getMeasures(Resource resource, MeasuresFilter<M> filter) {
     Bucket bucket = buckets.get(resource);
     if (bucket != null) {
       // TODO the data measures which are not kept in memory are not reloaded yet. Use getMeasure().
@@ -173,7 +260,7 @@ public class DefaultIndex extends SonarIndex {
   /**
    * the measure is updated if it's already registered.
    */
-  public Measure addMeasure(Resource resource, Measure measure) {
+  public synchronized Measure addMeasure(Resource resource, Measure measure) {
     Bucket bucket = checkIndexed(resource);
     if (bucket != null && !bucket.isExcluded()) {
       Metric metric = metricFinder.findByKey(measure.getMetricKey());
@@ -198,7 +285,7 @@ public class DefaultIndex extends SonarIndex {
   //
   //
 
-  public Dependency addDependency(Dependency dependency) {
+  public synchronized Dependency addDependency(Dependency dependency) {
     Dependency existingDep = getEdge(dependency.getFrom(), dependency.getTo());
     if (existingDep != null) {
       return existingDep;
@@ -246,11 +333,11 @@ public class DefaultIndex extends SonarIndex {
     incomingDeps.put(dependency.getFrom(), dependency);
   }
 
-  public Set<Dependency> getDependencies() {
+  public synchronized Set<Dependency> getDependencies() {
     return dependencies;
   }
 
-  public Dependency getEdge(Resource from, Resource to) {
+  public synchronized Dependency getEdge(Resource from, Resource to) {
     Map<Resource, Dependency> map = outgoingDependenciesByResource.get(from);
     if (map != null) {
       return map.get(to);
@@ -258,15 +345,15 @@ public class DefaultIndex extends SonarIndex {
     return null;
   }
 
-  public boolean hasEdge(Resource from, Resource to) {
+  public synchronized boolean hasEdge(Resource from, Resource to) {
     return getEdge(from, to) != null;
   }
 
-  public Set<Resource> getVertices() {
+  public synchronized Set<Resource> getVertices() {
     return buckets.keySet();
   }
 
-  public Collection<Dependency> getOutgoingEdges(Resource from) {
+  public synchronized Collection<Dependency> getOutgoingEdges(Resource from) {
     Map<Resource, Dependency> deps = outgoingDependenciesByResource.get(from);
     if (deps != null) {
       return deps.values();
@@ -274,7 +361,7 @@ public class DefaultIndex extends SonarIndex {
     return Collections.emptyList();
   }
 
-  public Collection<Dependency> getIncomingEdges(Resource to) {
+  public synchronized Collection<Dependency> getIncomingEdges(Resource to) {
     Map<Resource, Dependency> deps = incomingDependenciesByResource.get(to);
     if (deps != null) {
       return deps.values();
@@ -303,7 +390,7 @@ public class DefaultIndex extends SonarIndex {
   /**
    * {@inheritDoc}
    */
-  public List<Violation> getViolations(ViolationQuery violationQuery) {
+  public synchronized List<Violation> getViolations(ViolationQuery violationQuery) {
     Resource resource = violationQuery.getResource();
     if (resource == null) {
       throw new IllegalArgumentException("A resource must be set on the ViolationQuery in order to search for violations.");
@@ -314,7 +401,7 @@ public class DefaultIndex extends SonarIndex {
     }
     List<Violation> filteredViolations = Lists.newArrayList();
     ViolationQuery.SwitchMode mode = violationQuery.getSwitchMode();
-    for (Violation violation : bucket.getViolations()) {
+    for (Violation violation : getViolations(bucket)) {
       if (mode== ViolationQuery.SwitchMode.BOTH ||
           (mode== ViolationQuery.SwitchMode.OFF && violation.isSwitchedOff()) ||
           (mode== ViolationQuery.SwitchMode.ON && !violation.isSwitchedOff())) {
@@ -324,7 +411,7 @@ public class DefaultIndex extends SonarIndex {
     return filteredViolations;
   }
 
-  public void addViolation(Violation violation, boolean force) {
+  public synchronized void addViolation(Violation violation, boolean force) {
     Resource resource = violation.getResource();
     if (resource == null) {
       violation.setResource(currentProject);
@@ -361,6 +448,61 @@ public class DefaultIndex extends SonarIndex {
 
   private void doAddViolation(Violation violation, Bucket bucket) {
     bucket.addViolation(violation);
+    violationsInMemory++;
+  }
+
+  private List<Violation> getViolations(Bucket bucket) {
+    if (bucket.getSpilledViolations() == null) {
+      return bucket.getViolations();
+    }
+    List<Violation> violations = violationsSpill.read(bucket.getSpilledViolations(), bucket.getResource());
+    violations.addAll(bucket.getViolations());
+    return violations;
+  }
+
+  /**
+   * Called by {@link org.sonar.batch.phases.DecoratorsExecutor} when all the decorators have been executed on a resource.
+   * Violations of decorated files are not used anymore by decorators, so they can be moved to disk.
+   *
+   * @since 2.11
+   */
+  public synchronized void setDecorated(Resource resource) {
+    if (maxViolationsInMemory > 0 && tempDirectories != null && Scopes.isFile(resource)) {
+      Bucket bucket = buckets.get(resource);
+      if (bucket != null && bucket.getSpilledViolations() == null && !bucket.getViolations().isEmpty()) {
+        decoratedBuckets.add(bucket);
+        if (violationsInMemory > maxViolationsInMemory) {
+          spillViolations();
+        }
+      }
+    }
+  }
+
+  private File createSpillFile() {
+    if (!moduleIndex) {
+      return tempDirectories.getFile("index", "violations.bin");
+    }
+    // modules analysed concurrently must not share the same file. Projects have no id in dry run.
+    try {
+      return File.createTempFile("violations-", ".bin", tempDirectories.getDir("index"));
+    } catch (IOException e) {
+      throw new SonarException("Can not create the temp file of violations", e);
+    }
+  }
+
+  private void spillViolations() {
+    if (violationsSpill == null) {
+      violationsSpill = new ViolationsSpill(createSpillFile());
+    }
+    int spilled = 0;
+    for (Bucket bucket : decoratedBuckets) {
+      List<Violation> violations = bucket.getViolations();
+      bucket.setSpilledViolations(violationsSpill.write(violations));
+      spilled += violations.size();
+    }
+    violationsInMemory -= spilled;
+    decoratedBuckets.clear();
+    LOG.debug("{} violations moved to {}", spilled, violationsSpill.getFile());
   }
 
   //
@@ -403,26 +545,36 @@ public class DefaultIndex extends SonarIndex {
     return null;
   }
 
-  public void setSource(Resource reference, String source) {
+  public synchronized void setSource(Resource reference, String source) {
     Bucket bucket = checkIndexed(reference);
     if (bucket != null && !bucket.isExcluded()) {
       persistence.setSource(reference, source);
     }
   }
 
-  public String getSource(Resource resource) {
+  public synchronized String getSource(Resource resource) {
     return persistence.getSource(resource);
   }
 
+  /**
+   * Hashes of the lines of the source, see {@link LineHashes}. They are cached when the source is saved, so the source
+   * is not reloaded from database.
+   *
+   * @since 2.11
+   */
+  public synchronized long[] getLineHashes(Resource resource) {
+    return persistence.getLineHashes(resource);
+  }
+
   /**
    * Does nothing if the resource is already registered.
    */
-  public Resource addResource(Resource resource) {
+  public synchronized Resource addResource(Resource resource) {
     Bucket bucket = doIndex(resource);
     return bucket != null ? bucket.getResource() : null;
   }
 
-  public <R extends Resource> R getResource(R reference) {
+  public synchronized <R extends Resource> R getResource(R reference) {
     Bucket bucket = buckets.get(reference);
     if (bucket != null) {
       return (R) bucket.getResource();
@@ -453,7 +605,7 @@ public class DefaultIndex extends SonarIndex {
     return getChildren(resource, false);
   }
 
-  public List<Resource> getChildren(Resource resource, boolean acceptExcluded) {
+  public synchronized List<Resource> getChildren(Resource resource, boolean acceptExcluded) {
     List<Resource> children = Lists.newLinkedList();
     Bucket bucket = getBucket(resource, acceptExcluded);
     if (bucket != null) {
@@ -466,7 +618,7 @@ public class DefaultIndex extends SonarIndex {
     return children;
   }
 
-  public Resource getParent(Resource resource) {
+  public synchronized Resource getParent(Resource resource) {
     Bucket bucket = getBucket(resource, false);
     if (bucket != null && bucket.getParent() != null) {
       return bucket.getParent().getResource();
@@ -474,7 +626,7 @@ public class DefaultIndex extends SonarIndex {
     return null;
   }
 
-  public boolean index(Resource resource) {
+  public synchronized boolean index(Resource resource) {
     Bucket bucket = doIndex(resource);
     return bucket != null && !bucket.isExcluded();
   }
@@ -486,7 +638,7 @@ public class DefaultIndex extends SonarIndex {
     return doIndex(resource, resource.getParent());
   }
 
-  public boolean index(Resource resource, Resource parentReference) {
+  public synchronized boolean index(Resource resource, Resource parentReference) {
     Bucket bucket = doIndex(resource, parentReference);
     return bucket != null && !bucket.isExcluded();
   }
@@ -548,16 +700,16 @@ public class DefaultIndex extends SonarIndex {
     return bucket;
   }
 
-  public boolean isExcluded(Resource reference) {
+  public synchronized boolean isExcluded(Resource reference) {
     Bucket bucket = getBucket(reference, true);
     return bucket != null && bucket.isExcluded();
   }
 
-  public boolean isIndexed(Resource reference, boolean acceptExcluded) {
+  public synchronized boolean isIndexed(Resource reference, boolean acceptExcluded) {
     return getBucket(reference, acceptExcluded) != null;
   }
 
-  private Bucket getBucket(Resource resource, boolean acceptExcluded) {
+  Bucket getBucket(Resource resource, boolean acceptExcluded) {
     Bucket bucket = null;
     if (resource != null) {
       bucket = buckets.get(resource);
@@ -82,6 +82,10 @@ public final class DefaultPersistenceManager implements PersistenceManager {
     return sourcePersister.getSource(resource);
   }
 
+  public long[] getLineHashes(Resource resource) {
+    return sourcePersister.getLineHashes(resource);
+  }
+
   public void saveMeasure(Resource resource, Measure measure) {
     if (ResourceUtils.isPersistable(resource)) {
       measurePersister.saveMeasure(resource, measure);
@@ -20,8 +20,11 @@
 package org.sonar.batch.index;
 
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.apache.commons.configuration.Configuration;
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.StringUtils;
+import org.sonar.api.database.DatabaseProperties;
 import org.sonar.api.database.DatabaseSession;
 import org.sonar.api.database.model.ResourceModel;
 import org.sonar.api.database.model.Snapshot;
@@ -38,15 +41,76 @@ import org.sonar.api.resources.Scopes;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public final class DefaultResourcePersister implements ResourcePersister {
 
+  /**
+   * When enabled, the existing files and directories of a module are loaded with a single request, and new resources
+   * and snapshots are committed every {@link DatabaseProperties#PROP_BULK_COMMIT_SIZE} resources instead of one by one.
+   *
+   * @since 2.11
+   */
+  public static final String PRELOAD_RESOURCES_PROPERTY = "sonar.preloadResources";
+  public static final boolean PRELOAD_RESOURCES_DEFAULT_VALUE = false;
+
   private DatabaseSession session;
 
   private Map<Resource, Snapshot> snapshotsByResource = Maps.newHashMap();
 
+  private boolean preloadResources = PRELOAD_RESOURCES_DEFAULT_VALUE;
+  private int bulkCommitSize = DatabaseProperties.PROP_BULK_COMMIT_SIZE_DEFAULT_VALUE;
+  private Set<Integer> preloadedProjectIds = Sets.newHashSet();
+  private Map<String, ResourceModel> preloadedModelsByKey = Maps.newHashMap();
+  private int uncommittedResources = 0;
+
+  // shared by the persisters of the modules analysed concurrently, so that a library is created only once
+  private final Object libraryLock;
+
   public DefaultResourcePersister(DatabaseSession session) {
+    this(session, new Object());
+  }
+
+  private DefaultResourcePersister(DatabaseSession session, Object libraryLock) {
     this.session = session;
+    this.libraryLock = libraryLock;
+  }
+
+  public DefaultResourcePersister(DatabaseSession session, Configuration configuration) {
+    this(session);
+    this.preloadResources = configuration.getBoolean(PRELOAD_RESOURCES_PROPERTY, PRELOAD_RESOURCES_DEFAULT_VALUE);
+    this.bulkCommitSize = configuration.getInt(DatabaseProperties.PROP_BULK_COMMIT_SIZE, DatabaseProperties.PROP_BULK_COMMIT_SIZE_DEFAULT_VALUE);
+  }
+
+  void setPreloadResources(boolean preloadResources, int bulkCommitSize) {
+    this.preloadResources = preloadResources;
+    this.bulkCommitSize = bulkCommitSize;
+  }
+
+  /**
+   * Creates the persister of a module analysed concurrently with other modules. It knows the snapshots of the
+   * projects already saved by this persister.
+   *
+   * @since 2.11
+   */
+  public synchronized DefaultResourcePersister newModulePersister() {
+    DefaultResourcePersister persister = new DefaultResourcePersister(session, libraryLock);
+    persister.setPreloadResources(preloadResources, bulkCommitSize);
+    persister.snapshotsByResource.putAll(snapshotsByResource);
+    return persister;
+  }
+
+  /**
+   * Keeps the snapshots of the libraries saved by a module persister once the module is analysed.
+   *
+   * @since 2.11
+   */
+  public synchronized void mergeModulePersister(DefaultResourcePersister persister) {
+    for (Map.Entry<Resource, Snapshot> entry : persister.snapshotsByResource.entrySet()) {
+      if (ResourceUtils.isSet(entry.getKey()) && !snapshotsByResource.containsKey(entry.getKey())) {
+        snapshotsByResource.put(entry.getKey(), entry.getValue());
+      }
+    }
   }
 
   public Snapshot saveProject(Project project, Project parent) {
@@ -139,6 +203,12 @@ public final class DefaultResourcePersister implements ResourcePersister {
 
 
   private Snapshot persistLibrary(Project project, Library library) {
+    synchronized (libraryLock) {
+      return doPersistLibrary(project, library);
+    }
+  }
+
+  private Snapshot doPersistLibrary(Project project, Library library) {
     ResourceModel model = findOrCreateModel(library);
     model = session.save(model);
     library.setId(model.getId()); // TODO to be removed
@@ -179,19 +249,83 @@ public final class DefaultResourcePersister implements ResourcePersister {
    * Everything except project and library
    */
   private Snapshot persistFileOrDirectory(Project project, Resource resource, Resource parentReference) {
-    ResourceModel model = findOrCreateModel(resource);
     Snapshot projectSnapshot = snapshotsByResource.get(project);
-    model.setRootId(projectSnapshot.getResourceId());
-    model = session.save(model);
+    ResourceModel model;
+    if (preloadResources) {
+      model = savePreloadedModel(resource, projectSnapshot.getResourceId());
+    } else {
+      model = findOrCreateModel(resource);
+      model.setRootId(projectSnapshot.getResourceId());
+      model = session.save(model);
+    }
     resource.setId(model.getId()); // TODO to be removed
 
     Snapshot parentSnapshot = (Snapshot) ObjectUtils.defaultIfNull(getSnapshot(parentReference), projectSnapshot);
     Snapshot snapshot = new Snapshot(model, parentSnapshot);
-    snapshot = session.save(snapshot);
-    session.commit();
+    if (preloadResources) {
+      session.saveWithoutFlush(snapshot);
+      uncommittedResources++;
+      if (uncommittedResources >= bulkCommitSize) {
+        session.commit();
+        uncommittedResources = 0;
+      }
+    } else {
+      snapshot = session.save(snapshot);
+      session.commit();
+    }
     return snapshot;
   }
 
+  private ResourceModel savePreloadedModel(Resource resource, Integer projectId) {
+    preloadModels(projectId);
+
+    ResourceModel model = preloadedModelsByKey.remove(resource.getEffectiveKey());
+    if (model == null) {
+      // the resource can exist with another root, for example when it has been moved from another module
+      model = findOrCreateModel(resource);
+      model.setRootId(projectId);
+      if (model.getId() == null) {
+        session.saveWithoutFlush(model);
+      }
+
+    } else {
+      ResourceModel previous = (ResourceModel) model.clone();
+      mergeModel(model, resource);
+      model.setRootId(projectId);
+      if (hasChanged(previous, model)) {
+        // the model is detached if the session has been committed since preloading
+        model = (ResourceModel) session.merge(model);
+      }
+    }
+    return model;
+  }
+
+  private void preloadModels(Integer projectId) {
+    if (preloadedProjectIds.add(projectId)) {
+      Query query = session.createQuery("SELECT r FROM " + ResourceModel.class.getSimpleName() + " r WHERE r.rootId=:rootId");
+      query.setParameter("rootId", projectId);
+      List<ResourceModel> models = query.getResultList();
+      for (ResourceModel model : models) {
+        if (preloadedModelsByKey.put(model.getKey(), model) != null) {
+          throw new SonarException("The resource '" + model.getKey() + "' is duplicated in database.");
+        }
+      }
+      // detach the preloaded models, so that they are not dirty-checked on each flush
+      session.commit();
+    }
+  }
+
+  static boolean hasChanged(ResourceModel previous, ResourceModel model) {
+    return !ObjectUtils.equals(previous.getEnabled(), model.getEnabled())
+        || !ObjectUtils.equals(previous.getRootId(), model.getRootId())
+        || !StringUtils.equals(previous.getName(), model.getName())
+        || !StringUtils.equals(previous.getLongName(), model.getLongName())
+        || !StringUtils.equals(previous.getDescription(), model.getDescription())
+        || !StringUtils.equals(previous.getScope(), model.getScope())
+        || !StringUtils.equals(previous.getQualifier(), model.getQualifier())
+        || !StringUtils.equals(previous.getLanguageKey(), model.getLanguageKey());
+  }
+
   public Snapshot getLastSnapshot(Snapshot snapshot, boolean onlyOlder) {
     String hql = "SELECT s FROM " + Snapshot.class.getSimpleName() + " s WHERE s.last=true AND s.resourceId=:resourceId";
     if (onlyOlder) {
@@ -206,6 +340,10 @@ public final class DefaultResourcePersister implements ResourcePersister {
   }
 
   public void clear() {
+    preloadedProjectIds.clear();
+    preloadedModelsByKey.clear();
+    uncommittedResources = 0;
+
     // we keep cache of projects
     for (Iterator<Map.Entry<Resource, Snapshot>> it = snapshotsByResource.entrySet().iterator(); it.hasNext();) {
       Map.Entry<Resource, Snapshot> entry = it.next();
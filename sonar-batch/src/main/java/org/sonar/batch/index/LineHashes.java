@@ -0,0 +1,77 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.batch.index;
+
+/**
+ * 64 bits FNV-1a hash of each line of a source, without spaces and tabs. Lines are split on CRLF, LF or CR. Hashes are computed
+ * from a single scan of the source, without regular expression nor intermediary strings.
+ *
+ * @since 2.11
+ */
+public final class LineHashes {
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private LineHashes() {
+    // only static methods
+  }
+
+  /**
+   * @return the hash of each line, or an empty array if the source is null
+   */
+  public static long[] of(String source) {
+    if (source == null) {
+      return new long[0];
+    }
+    long[] hashes = new long[countLines(source)];
+    int lineIndex = 0;
+    long hash = FNV_OFFSET_BASIS;
+    int length = source.length();
+    for (int i = 0; i < length; i++) {
+      char c = source.charAt(i);
+      if (c == '\r' || c == '\n') {
+        hashes[lineIndex++] = hash;
+        hash = FNV_OFFSET_BASIS;
+        if (c == '\r' && i + 1 < length && source.charAt(i + 1) == '\n') {
+          i++;
+        }
+      } else if (c != ' ' && c != '\t') {
+        hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+        hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+      }
+    }
+    hashes[lineIndex] = hash;
+    return hashes;
+  }
+
+  private static int countLines(String source) {
+    int lines = 1;
+    int length = source.length();
+    for (int i = 0; i < length; i++) {
+      char c = source.charAt(i);
+      if (c == '\n' || (c == '\r' && (i + 1 == length || source.charAt(i + 1) != '\n'))) {
+        lines++;
+      }
+    }
+    return lines;
+  }
+
+}
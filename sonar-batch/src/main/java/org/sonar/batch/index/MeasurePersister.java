@@ -21,9 +21,12 @@ package org.sonar.batch.index;
 
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.SetMultimap;
+import org.apache.commons.configuration.Configuration;
 import org.apache.commons.lang.math.NumberUtils;
 import org.slf4j.LoggerFactory;
+import org.sonar.api.database.DatabaseProperties;
 import org.sonar.api.database.DatabaseSession;
+import org.sonar.api.database.model.MeasureData;
 import org.sonar.api.database.model.MeasureModel;
 import org.sonar.api.database.model.Snapshot;
 import org.sonar.api.measures.Measure;
@@ -46,6 +49,7 @@ public final class MeasurePersister {
   private ResourcePersister resourcePersister;
   private RuleFinder ruleFinder;
   private MemoryOptimizer memoryOptimizer;
+  private int bulkCommitSize = DatabaseProperties.PROP_BULK_COMMIT_SIZE_DEFAULT_VALUE;
 
 
   public MeasurePersister(DatabaseSession session, ResourcePersister resourcePersister, RuleFinder ruleFinder, MemoryOptimizer memoryOptimizer) {
@@ -55,6 +59,16 @@ public final class MeasurePersister {
     this.memoryOptimizer = memoryOptimizer;
   }
 
+  public MeasurePersister(DatabaseSession session, ResourcePersister resourcePersister, RuleFinder ruleFinder, MemoryOptimizer memoryOptimizer,
+                          Configuration configuration) {
+    this(session, resourcePersister, ruleFinder, memoryOptimizer);
+    this.bulkCommitSize = configuration.getInt(DatabaseProperties.PROP_BULK_COMMIT_SIZE, DatabaseProperties.PROP_BULK_COMMIT_SIZE_DEFAULT_VALUE);
+  }
+
+  void setBulkCommitSize(int bulkCommitSize) {
+    this.bulkCommitSize = bulkCommitSize;
+  }
+
   public void setDelayedMode(boolean delayedMode) {
     this.delayedMode = delayedMode;
   }
@@ -113,9 +127,14 @@ public final class MeasurePersister {
         (measure.getVariation5() == null || NumberUtils.compare(measure.getVariation5().doubleValue(), 0.0) == 0);
   }
 
+  /**
+   * Delayed measures are saved without intermediary flushes, so that Hibernate groups the inserts into JDBC batches.
+   * The transaction is committed every {@link DatabaseProperties#PROP_BULK_COMMIT_SIZE} rows.
+   */
   public void dump() {
     LoggerFactory.getLogger(getClass()).debug("{} measures to dump", unsavedMeasuresByResource.size());
     Map<Resource, Collection<Measure>> map = unsavedMeasuresByResource.asMap();
+    int uncommittedRows = 0;
     for (Map.Entry<Resource, Collection<Measure>> entry : map.entrySet()) {
       Resource resource = entry.getKey();
       Snapshot snapshot = resourcePersister.getSnapshot(entry.getKey());
@@ -123,7 +142,11 @@ public final class MeasurePersister {
         if (shouldPersistMeasure(resource, measure)) {
           MeasureModel model = createModel(measure);
           model.setSnapshotId(snapshot.getId());
-          model.save(session);
+          uncommittedRows += saveWithoutFlush(model);
+          if (uncommittedRows >= bulkCommitSize) {
+            session.commit();
+            uncommittedRows = 0;
+          }
         }
       }
     }
@@ -132,6 +155,25 @@ public final class MeasurePersister {
     unsavedMeasuresByResource.clear();
   }
 
+  /**
+   * Same as {@link MeasureModel#save(DatabaseSession)}, but without flushing the session.
+   *
+   * @return the number of saved rows
+   */
+  private int saveWithoutFlush(MeasureModel model) {
+    MeasureData data = model.getMeasureData();
+    model.setMeasureData(null);
+    session.saveWithoutFlush(model);
+    if (data == null) {
+      return 1;
+    }
+    data.setMeasure(model);
+    data.setSnapshotId(model.getSnapshotId());
+    session.saveWithoutFlush(data);
+    model.setMeasureData(data);
+    return 2;
+  }
+
   MeasureModel createModel(Measure measure) {
     return mergeModel(measure, new MeasureModel());
   }
@@ -42,7 +42,16 @@ public class MemoryOptimizer implements SensorExecutionHandler, DecoratorExecuti
 
   private static final Logger LOG = LoggerFactory.getLogger(MemoryOptimizer.class);
 
-  private List<Measure> loadedMeasures = Lists.newArrayList();
+  /**
+   * Measures reloaded by the current thread. When resources are decorated concurrently, a decorator only flushes the
+   * measures it reloaded, not the ones that decorators executed on other threads are reading.
+   */
+  private ThreadLocal<List<Measure>> loadedMeasures = new ThreadLocal<List<Measure>>() {
+    @Override
+    protected List<Measure> initialValue() {
+      return Lists.newArrayList();
+    }
+  };
   private Map<Long, Integer> dataIdByMeasureId = Maps.newHashMap();
   private DatabaseSession session;
 
@@ -78,20 +87,31 @@ public class MemoryOptimizer implements SensorExecutionHandler, DecoratorExecuti
           LOG.debug("Reload the data measure: " + measure.getMetricKey() + ", id=" + measure.getId());
         }
         measure.setData(data.getText());
-        loadedMeasures.add(measure);
+        loadedMeasures.get().add(measure);
       }
     }
     return measure;
   }
 
   public void flushMemory() {
-    if (LOG.isDebugEnabled() && !loadedMeasures.isEmpty()) {
-      LOG.debug("Flush " + loadedMeasures.size() + " data measures from memory: ");
+    List<Measure> measures = loadedMeasures.get();
+    if (LOG.isDebugEnabled() && !measures.isEmpty()) {
+      LOG.debug("Flush " + measures.size() + " data measures from memory: ");
     }
-    for (Measure measure : loadedMeasures) {
+    for (Measure measure : measures) {
       measure.unsetData();
     }
-    loadedMeasures.clear();
+    measures.clear();
+  }
+
+  /**
+   * Keeps track of the data evicted by the optimizer of a module analysed concurrently with other modules, so that
+   * the measures of the module can be reloaded once it is analysed.
+   *
+   * @since 2.11
+   */
+  public synchronized void mergeModuleOptimizer(MemoryOptimizer optimizer) {
+    dataIdByMeasureId.putAll(optimizer.dataIdByMeasureId);
   }
 
   boolean isTracked(Long measureId) {
@@ -44,6 +44,8 @@ public interface PersistenceManager {
 
   String getSource(Resource resource);
 
+  long[] getLineHashes(Resource resource);
+
   void saveMeasure(Resource resource, Measure measure);
 
   Measure reloadMeasure(Measure measure);
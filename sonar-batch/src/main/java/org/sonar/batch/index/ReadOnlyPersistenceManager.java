@@ -61,6 +61,10 @@ public final class ReadOnlyPersistenceManager implements PersistenceManager {
     return sources.get(resource);
   }
 
+  public long[] getLineHashes(Resource resource) {
+    return LineHashes.of(getSource(resource));
+  }
+
   public void saveMeasure(Resource resource, Measure measure) {
   }
 
@@ -20,44 +20,106 @@
 package org.sonar.batch.index;
 
 import com.google.common.collect.Sets;
+import org.apache.commons.configuration.Configuration;
+import org.sonar.api.database.DatabaseProperties;
 import org.sonar.api.database.DatabaseSession;
 import org.sonar.api.database.model.Snapshot;
 import org.sonar.api.database.model.SnapshotSource;
 import org.sonar.api.resources.DuplicatedSourceException;
 import org.sonar.api.resources.Resource;
 
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 public final class SourcePersister {
 
+  /**
+   * Maximum number of files whose line hashes are kept in memory after their source is saved, so that sources are not reloaded
+   * from database by violation tracking. Values are soft references, so the cache is also bounded by the heap.
+   */
+  static final int LINE_HASHES_CACHE_SIZE = 1000;
+
+  /**
+   * Sources are also committed when their total length exceeds this number of characters, as uncommitted sources are kept
+   * by the database session.
+   */
+  static final int MAX_UNCOMMITTED_CHARS = 2 * 1024 * 1024;
+
   private DatabaseSession session;
   private Set<Integer> savedSnapshotIds = Sets.newHashSet();
   private ResourcePersister resourcePersister;
+  private int bulkCommitSize = DatabaseProperties.PROP_BULK_COMMIT_SIZE_DEFAULT_VALUE;
+  private int uncommittedSources = 0;
+  private int uncommittedChars = 0;
+  private Map<Integer, SoftReference<long[]>> lineHashesBySnapshotId = new LinkedHashMap<Integer, SoftReference<long[]>>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Integer, SoftReference<long[]>> eldest) {
+      return size() > LINE_HASHES_CACHE_SIZE;
+    }
+  };
 
   public SourcePersister(DatabaseSession session, ResourcePersister resourcePersister) {
     this.session = session;
     this.resourcePersister = resourcePersister;
   }
 
+  public SourcePersister(DatabaseSession session, ResourcePersister resourcePersister, Configuration configuration) {
+    this(session, resourcePersister);
+    this.bulkCommitSize = configuration.getInt(DatabaseProperties.PROP_BULK_COMMIT_SIZE, DatabaseProperties.PROP_BULK_COMMIT_SIZE_DEFAULT_VALUE);
+  }
+
+  void setBulkCommitSize(int bulkCommitSize) {
+    this.bulkCommitSize = bulkCommitSize;
+  }
+
+  /**
+   * Sources are committed by bulk of {@link DatabaseProperties#PROP_BULK_COMMIT_SIZE} files, or of {@link #MAX_UNCOMMITTED_CHARS}
+   * characters.
+   */
   public void saveSource(Resource resource, String source) {
     Snapshot snapshot = resourcePersister.getSnapshotOrFail(resource);
     if (isCached(snapshot)) {
       throw new DuplicatedSourceException(resource);
     }
-    session.save(new SnapshotSource(snapshot.getId(), source));
-    session.commit();
+    session.saveWithoutFlush(new SnapshotSource(snapshot.getId(), source));
+    uncommittedSources++;
+    uncommittedChars += (source != null ? source.length() : 0);
+    if (uncommittedSources >= bulkCommitSize || uncommittedChars >= MAX_UNCOMMITTED_CHARS) {
+      session.commit();
+      uncommittedSources = 0;
+      uncommittedChars = 0;
+    }
     addToCache(snapshot);
+    lineHashesBySnapshotId.put(snapshot.getId(), new SoftReference<long[]>(LineHashes.of(source)));
   }
 
   public String getSource(Resource resource) {
-    SnapshotSource source = null;
     Snapshot snapshot = resourcePersister.getSnapshot(resource);
-    if (snapshot!=null && snapshot.getId()!=null) {
-      source = session.getSingleResult(SnapshotSource.class, "snapshotId", snapshot.getId());
+    if (snapshot == null || snapshot.getId() == null) {
+      return null;
     }
+    SnapshotSource source = session.getSingleResult(SnapshotSource.class, "snapshotId", snapshot.getId());
     return source!=null ? source.getData() : null;
   }
 
+  /**
+   * @see LineHashes
+   * @since 2.11
+   */
+  public long[] getLineHashes(Resource resource) {
+    Snapshot snapshot = resourcePersister.getSnapshot(resource);
+    if (snapshot != null && snapshot.getId() != null) {
+      SoftReference<long[]> reference = lineHashesBySnapshotId.get(snapshot.getId());
+      long[] cachedHashes = (reference != null ? reference.get() : null);
+      if (cachedHashes != null) {
+        return cachedHashes;
+      }
+    }
+    return LineHashes.of(getSource(resource));
+  }
+
   private boolean isCached(Snapshot snapshot) {
     return savedSnapshotIds.contains(snapshot.getId());
   }
@@ -68,5 +130,8 @@ public final class SourcePersister {
 
   public void clear() {
     savedSnapshotIds.clear();
+    lineHashesBySnapshotId.clear();
+    uncommittedSources = 0;
+    uncommittedChars = 0;
   }
 }
@@ -0,0 +1,218 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.batch.index;
+
+import com.google.common.collect.Lists;
+import org.sonar.api.resources.Resource;
+import org.sonar.api.rules.Rule;
+import org.sonar.api.rules.RulePriority;
+import org.sonar.api.rules.Violation;
+import org.sonar.api.utils.SonarException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only temp file that stores the violations of buckets which are already decorated. Violations are
+ * reloaded on demand and are then new instances. Rules are not serialized : they are referenced by their position
+ * in an in-memory list, so reloaded violations share the same Rule instances than the original ones.
+ *
+ * @since 2.11
+ */
+final class ViolationsSpill {
+
+  private static final int NULL_LENGTH = -1;
+
+  private final File file;
+  private RandomAccessFile randomAccessFile;
+  private FileChannel channel;
+  private long position = 0L;
+  private List<Rule> rules = Lists.newArrayList();
+  private Map<Rule, Integer> indexByRule = new IdentityHashMap<Rule, Integer>();
+
+  ViolationsSpill(File file) {
+    this.file = file;
+  }
+
+  File getFile() {
+    return file;
+  }
+
+  Segment write(List<Violation> violations) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream output = new DataOutputStream(bytes);
+      for (Violation violation : violations) {
+        writeViolation(output, violation);
+      }
+      output.flush();
+
+      ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+      Segment segment = new Segment(position, buffer.remaining(), violations.size());
+      while (buffer.hasRemaining()) {
+        position += getChannel().write(buffer, position);
+      }
+      return segment;
+
+    } catch (IOException e) {
+      throw new SonarException("Fail to write violations to " + file, e);
+    }
+  }
+
+  List<Violation> read(Segment segment, Resource resource) {
+    try {
+      ByteBuffer buffer = ByteBuffer.allocate(segment.length);
+      while (buffer.hasRemaining()) {
+        if (getChannel().read(buffer, segment.position + buffer.position()) < 0) {
+          throw new EOFException();
+        }
+      }
+      DataInputStream input = new DataInputStream(new ByteArrayInputStream(buffer.array()));
+      List<Violation> violations = Lists.newArrayListWithCapacity(segment.count);
+      for (int i = 0; i < segment.count; i++) {
+        violations.add(readViolation(input, resource));
+      }
+      return violations;
+
+    } catch (IOException e) {
+      throw new SonarException("Fail to read violations from " + file, e);
+    }
+  }
+
+  void close() {
+    if (randomAccessFile != null) {
+      try {
+        randomAccessFile.close();
+      } catch (IOException e) {
+        // ignore, the file is deleted
+      }
+      randomAccessFile = null;
+      channel = null;
+    }
+    file.delete();
+    position = 0L;
+    rules.clear();
+    indexByRule.clear();
+  }
+
+  private FileChannel getChannel() throws IOException {
+    if (channel == null) {
+      randomAccessFile = new RandomAccessFile(file, "rw");
+      randomAccessFile.setLength(0L);
+      channel = randomAccessFile.getChannel();
+    }
+    return channel;
+  }
+
+  private void writeViolation(DataOutputStream output, Violation violation) throws IOException {
+    output.writeInt(indexOf(violation.getRule()));
+    writeString(output, violation.getMessage());
+    output.writeInt(violation.getSeverity() != null ? violation.getSeverity().ordinal() : NULL_LENGTH);
+    output.writeBoolean(violation.getLineId() != null);
+    if (violation.getLineId() != null) {
+      output.writeInt(violation.getLineId());
+    }
+    output.writeBoolean(violation.getCost() != null);
+    if (violation.getCost() != null) {
+      output.writeDouble(violation.getCost());
+    }
+    output.writeBoolean(violation.getCreatedAt() != null);
+    if (violation.getCreatedAt() != null) {
+      output.writeLong(violation.getCreatedAt().getTime());
+    }
+    output.writeBoolean(violation.isSwitchedOff());
+    writeString(output, violation.getChecksum());
+    output.writeBoolean(violation.isNew());
+  }
+
+  private Violation readViolation(DataInputStream input, Resource resource) throws IOException {
+    Violation violation = Violation.create(rules.get(input.readInt()), resource);
+    violation.setMessage(readString(input));
+    int severity = input.readInt();
+    if (severity != NULL_LENGTH) {
+      violation.setSeverity(RulePriority.values()[severity]);
+    }
+    if (input.readBoolean()) {
+      violation.setLineId(input.readInt());
+    }
+    if (input.readBoolean()) {
+      violation.setCost(input.readDouble());
+    }
+    if (input.readBoolean()) {
+      violation.setCreatedAt(new Date(input.readLong()));
+    }
+    violation.setSwitchedOff(input.readBoolean());
+    violation.setChecksum(readString(input));
+    violation.setNew(input.readBoolean());
+    return violation;
+  }
+
+  private int indexOf(Rule rule) {
+    Integer index = indexByRule.get(rule);
+    if (index == null) {
+      index = rules.size();
+      rules.add(rule);
+      indexByRule.put(rule, index);
+    }
+    return index;
+  }
+
+  // DataOutput#writeUTF() is limited to 64Kb
+  private static void writeString(DataOutputStream output, String s) throws IOException {
+    if (s == null) {
+      output.writeInt(NULL_LENGTH);
+    } else {
+      byte[] bytes = s.getBytes("UTF-8");
+      output.writeInt(bytes.length);
+      output.write(bytes);
+    }
+  }
+
+  private static String readString(DataInputStream input) throws IOException {
+    int length = input.readInt();
+    if (length == NULL_LENGTH) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    input.readFully(bytes);
+    return new String(bytes, "UTF-8");
+  }
+
+  static final class Segment {
+    private final long position;
+    private final int length;
+    private final int count;
+
+    private Segment(long position, int length, int count) {
+      this.position = position;
+      this.length = length;
+      this.count = count;
+    }
+
+    int getCount() {
+      return count;
+    }
+  }
+}
@@ -25,22 +25,40 @@ import org.sonar.api.batch.BatchExtensionDictionnary;
 import org.sonar.api.batch.Decorator;
 import org.sonar.api.batch.DecoratorContext;
 import org.sonar.api.batch.SonarIndex;
+import org.sonar.api.batch.ThreadSafe;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
+import org.sonar.api.utils.ConcurrentUtils;
 import org.sonar.api.utils.SonarException;
 import org.sonar.batch.DecoratorsSelector;
 import org.sonar.batch.DefaultDecoratorContext;
 import org.sonar.batch.events.EventBus;
+import org.sonar.batch.index.DefaultIndex;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class DecoratorsExecutor implements BatchComponent {
 
+  /**
+   * Number of threads used to decorate the children of a module. The default value 1 keeps the historical
+   * single-threaded behavior. With greater values, only the decorators annotated with {@link ThreadSafe} are executed
+   * concurrently. The other ones are executed one at a time, under the lock of the index.
+   * This number of threads is used by each module analysed concurrently, see
+   * {@link org.sonar.batch.bootstrap.BatchModule#MODULE_THREADS_PROPERTY}.
+   */
+  public static final String THREADS_PROPERTY = "sonar.decorators.threads";
+  public static final int THREADS_DEFAULT_VALUE = 1;
+
   private DecoratorsSelector decoratorsSelector;
   private SonarIndex index;
   private EventBus eventBus;
   private Project project;
+  private ExecutorService executorService;
 
   public DecoratorsExecutor(BatchExtensionDictionnary extensionDictionnary, Project project, SonarIndex index, EventBus eventBus) {
     this.decoratorsSelector = new DecoratorsSelector(extensionDictionnary);
@@ -52,16 +70,39 @@ public class DecoratorsExecutor implements BatchComponent {
   public void execute() {
     Collection<Decorator> decorators = decoratorsSelector.select(project);
     eventBus.fireEvent(new DecoratorsPhaseEvent(Lists.newArrayList(decorators), true));
-    decorateResource(project, decorators, true);
+    int threads = getThreads();
+    if (threads > 1) {
+      executorService = Executors.newFixedThreadPool(threads);
+    }
+    try {
+      decorateResource(project, decorators, true);
+    } finally {
+      if (executorService != null) {
+        executorService.shutdownNow();
+        executorService = null;
+      }
+    }
     eventBus.fireEvent(new DecoratorsPhaseEvent(Lists.newArrayList(decorators), false));
   }
 
+  int getThreads() {
+    if (project.getConfiguration() == null) {
+      return THREADS_DEFAULT_VALUE;
+    }
+    return project.getConfiguration().getInt(THREADS_PROPERTY, THREADS_DEFAULT_VALUE);
+  }
+
   DecoratorContext decorateResource(Resource resource, Collection<Decorator> decorators, boolean executeDecorators) {
-    List<DecoratorContext> childrenContexts = Lists.newArrayList();
-    for (Resource child : index.getChildren(resource)) {
-      boolean isModule = (child instanceof Project);
-      DefaultDecoratorContext childContext = (DefaultDecoratorContext) decorateResource(child, decorators, !isModule);
-      childrenContexts.add(childContext.setReadOnly(true));
+    List<DecoratorContext> childrenContexts;
+    if (executorService != null && executeDecorators && resource instanceof Project) {
+      childrenContexts = decorateChildrenConcurrently(resource, decorators);
+    } else {
+      childrenContexts = Lists.newArrayList();
+      for (Resource child : index.getChildren(resource)) {
+        boolean isModule = (child instanceof Project);
+        DefaultDecoratorContext childContext = (DefaultDecoratorContext) decorateResource(child, decorators, !isModule);
+        childrenContexts.add(childContext.setReadOnly(true));
+      }
     }
 
     DefaultDecoratorContext context = new DefaultDecoratorContext(resource, index, childrenContexts);
@@ -69,20 +110,85 @@ public class DecoratorsExecutor implements BatchComponent {
       for (Decorator decorator : decorators) {
         executeDecorator(decorator, context, resource);
       }
+      if (index instanceof DefaultIndex) {
+        ((DefaultIndex) index).setDecorated(resource);
+      }
     }
     return context;
   }
 
+  /**
+   * Sibling subtrees (packages, directories) of a module are independent, so each of them is decorated on a worker thread.
+   * Within a subtree, resources are still decorated depth-first and decorators are still executed in the order
+   * computed from @DependsUpon/@DependedUpon. Sub-modules are already decorated, so they are kept on the current thread.
+   * Contexts are returned in the same order than the sequential mode.
+   */
+  private List<DecoratorContext> decorateChildrenConcurrently(Resource resource, final Collection<Decorator> decorators) {
+    List<Object> contextsOrFutures = Lists.newArrayList();
+    for (final Resource child : index.getChildren(resource)) {
+      if (child instanceof Project) {
+        contextsOrFutures.add(decorateResource(child, decorators, false));
+      } else {
+        contextsOrFutures.add(executorService.submit(new Callable<DecoratorContext>() {
+          public DecoratorContext call() {
+            return decorateResource(child, decorators, true);
+          }
+        }));
+      }
+    }
+
+    List<DecoratorContext> childrenContexts = Lists.newArrayList();
+    for (Object contextOrFuture : contextsOrFutures) {
+      DefaultDecoratorContext childContext;
+      if (contextOrFuture instanceof Future) {
+        childContext = (DefaultDecoratorContext) ConcurrentUtils.getResult((Future<DecoratorContext>) contextOrFuture, "Fail to decorate resources");
+      } else {
+        childContext = (DefaultDecoratorContext) contextOrFuture;
+      }
+      childrenContexts.add(childContext.setReadOnly(true));
+    }
+    return childrenContexts;
+  }
+
   void executeDecorator(Decorator decorator, DefaultDecoratorContext context, Resource resource) {
+    if (executorService != null && !isThreadSafe(decorator)) {
+      synchronized (index) {
+        doExecuteDecorator(decorator, context, resource);
+      }
+    } else {
+      doExecuteDecorator(decorator, context, resource);
+    }
+  }
+
+  static boolean isThreadSafe(Decorator decorator) {
+    // the annotation is not inherited: a subclass can add state to a thread-safe decorator
+    return decorator.getClass().isAnnotationPresent(ThreadSafe.class);
+  }
+
+  private void doExecuteDecorator(Decorator decorator, DefaultDecoratorContext context, Resource resource) {
     try {
-      eventBus.fireEvent(new DecoratorExecutionEvent(decorator, true));
+      fireDecoratorExecutionEvent(decorator, true);
       decorator.decorate(resource, context);
-      eventBus.fireEvent(new DecoratorExecutionEvent(decorator, false));
-      
+      fireDecoratorExecutionEvent(decorator, false);
+
     } catch (Exception e) {
       // SONAR-2278 the resource should not be lost in exception stacktrace.
       throw new SonarException("Fail to decorate '" + resource + "'", e);
     }
   }
 
+  /**
+   * When resources are decorated concurrently, events are fired under the index lock, like in {@link SensorsExecutor},
+   * as their handlers share state with the index, for example the measures reloaded by the memory optimizer.
+   */
+  private void fireDecoratorExecutionEvent(Decorator decorator, boolean start) {
+    if (executorService == null) {
+      eventBus.fireEvent(new DecoratorExecutionEvent(decorator, start));
+    } else {
+      synchronized (index) {
+        eventBus.fireEvent(new DecoratorExecutionEvent(decorator, start));
+      }
+    }
+  }
+
 }
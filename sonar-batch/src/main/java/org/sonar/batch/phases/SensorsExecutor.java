@@ -20,54 +20,213 @@
 package org.sonar.batch.phases;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.BatchComponent;
 import org.sonar.api.batch.BatchExtensionDictionnary;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
+import org.sonar.api.batch.SonarIndex;
+import org.sonar.api.batch.ThreadSafe;
 import org.sonar.api.batch.bootstrap.ProjectDefinition;
 import org.sonar.api.batch.maven.DependsUponMavenPlugin;
 import org.sonar.api.batch.maven.MavenPluginHandler;
 import org.sonar.api.resources.Project;
+import org.sonar.api.utils.ConcurrentUtils;
+import org.sonar.api.utils.SonarException;
 import org.sonar.api.utils.TimeProfiler;
+import org.sonar.api.utils.dag.DirectAcyclicGraph;
+import org.sonar.api.utils.dag.Node;
 import org.sonar.batch.MavenPluginExecutor;
 import org.sonar.batch.events.EventBus;
 
 import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class SensorsExecutor implements BatchComponent {
   private static final Logger LOG = LoggerFactory.getLogger(SensorsExecutor.class);
 
+  /**
+   * Number of threads used to execute the sensors of a module. Sensors that do not depend upon each other, directly or
+   * through the objects declared by @DependsUpon/@DependedUpon, are executed concurrently. The default value 1 keeps the
+   * historical single-threaded behavior. Only the sensors annotated with {@link ThreadSafe} are executed concurrently with
+   * other sensors, the others are executed alone. When modules are analysed concurrently, each module has its own
+   * threads (see {@link org.sonar.batch.bootstrap.BatchModule#MODULE_THREADS_PROPERTY}).
+   * <p/>
+   * The index is not locked while a sensor is executed. A sensor which locks the index must not wait for its own threads
+   * while it holds the lock, as these threads would wait for the lock as soon as they use the sensor context.
+   *
+   * @since 2.11
+   */
+  public static final String THREADS_PROPERTY = "sonar.sensors.threads";
+  public static final int THREADS_DEFAULT_VALUE = 1;
+
   private MavenPluginExecutor mavenExecutor;
   private EventBus eventBus;
   private Project project;
   private ProjectDefinition projectDefinition;
   private BatchExtensionDictionnary selector;
+  private SonarIndex index;
+  private final ReadWriteLock sensorsLock = new ReentrantReadWriteLock();
 
-  public SensorsExecutor(BatchExtensionDictionnary selector, Project project, ProjectDefinition projectDefinition, MavenPluginExecutor mavenExecutor, EventBus eventBus) {
+  public SensorsExecutor(BatchExtensionDictionnary selector, Project project, ProjectDefinition projectDefinition, MavenPluginExecutor mavenExecutor,
+                         EventBus eventBus, SonarIndex index) {
     this.selector = selector;
     this.mavenExecutor = mavenExecutor;
     this.eventBus = eventBus;
     this.project = project;
     this.projectDefinition = projectDefinition;
+    this.index = index;
   }
 
   public void execute(SensorContext context) {
     Collection<Sensor> sensors = selector.select(Sensor.class, project, true);
     eventBus.fireEvent(new SensorsPhaseEvent(Lists.newArrayList(sensors), true));
 
-    for (Sensor sensor : sensors) {
-      executeMavenPlugin(sensor);
+    int threads = getThreads();
+    if (threads > 1 && sensors.size() > 1) {
+      executeConcurrently(sensors, context, threads);
+    } else {
+      for (Sensor sensor : sensors) {
+        executeMavenPlugin(sensor);
 
-      eventBus.fireEvent(new SensorExecutionEvent(sensor, true));
-      sensor.analyse(project, context);
-      eventBus.fireEvent(new SensorExecutionEvent(sensor, false));
+        eventBus.fireEvent(new SensorExecutionEvent(sensor, true));
+        sensor.analyse(project, context);
+        eventBus.fireEvent(new SensorExecutionEvent(sensor, false));
+      }
     }
 
     eventBus.fireEvent(new SensorsPhaseEvent(Lists.newArrayList(sensors), false));
   }
 
+  int getThreads() {
+    if (project.getConfiguration() == null) {
+      return THREADS_DEFAULT_VALUE;
+    }
+    return project.getConfiguration().getInt(THREADS_PROPERTY, THREADS_DEFAULT_VALUE);
+  }
+
+  /**
+   * A sensor is submitted once all the sensors it depends upon are executed. Maven plugins are executed one at a time.
+   * Execution events are fired under the index lock, as their handlers commit the database session used by the index.
+   * Sensors which are not thread-safe, for example because they use the database session, are executed alone, like in the
+   * sequential mode: they take the write lock of the executor, while thread-safe sensors share its read lock. The index
+   * lock is not held during the execution of sensors, so that their own threads can use the sensor context.
+   */
+  private void executeConcurrently(Collection<Sensor> sensors, final SensorContext context, int threads) {
+    Map<Sensor, List<Sensor>> dependents = new IdentityHashMap<Sensor, List<Sensor>>();
+    Map<Sensor, Integer> pendingDependencies = new IdentityHashMap<Sensor, Integer>();
+    for (Sensor sensor : sensors) {
+      dependents.put(sensor, Lists.<Sensor>newArrayList());
+    }
+    Map<Sensor, Set<Sensor>> dependencies = getDependencies(sensors);
+    for (Sensor sensor : sensors) {
+      Set<Sensor> sensorDependencies = dependencies.get(sensor);
+      pendingDependencies.put(sensor, sensorDependencies.size());
+      for (Sensor dependency : sensorDependencies) {
+        dependents.get(dependency).add(sensor);
+      }
+    }
+
+    ExecutorService executorService = Executors.newFixedThreadPool(Math.min(threads, sensors.size()));
+    CompletionService<Sensor> completionService = new ExecutorCompletionService<Sensor>(executorService);
+    try {
+      int running = 0;
+      for (Sensor sensor : sensors) {
+        if (pendingDependencies.get(sensor) == 0) {
+          submit(completionService, sensor, context);
+          running++;
+        }
+      }
+      while (running > 0) {
+        Sensor executed = ConcurrentUtils.getResult(completionService.take(), "Fail to execute sensors");
+        running--;
+        for (Sensor dependent : dependents.get(executed)) {
+          int pending = pendingDependencies.get(dependent) - 1;
+          pendingDependencies.put(dependent, pending);
+          if (pending == 0) {
+            submit(completionService, dependent, context);
+            running++;
+          }
+        }
+      }
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SonarException("Interrupted while executing sensors", e);
+
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private void submit(CompletionService<Sensor> completionService, final Sensor sensor, final SensorContext context) {
+    completionService.submit(new Callable<Sensor>() {
+      public Sensor call() {
+        synchronized (mavenExecutor) {
+          executeMavenPlugin(sensor);
+        }
+        Lock lock = isThreadSafe(sensor) ? sensorsLock.readLock() : sensorsLock.writeLock();
+        lock.lock();
+        try {
+          synchronized (index) {
+            eventBus.fireEvent(new SensorExecutionEvent(sensor, true));
+          }
+          sensor.analyse(project, context);
+          synchronized (index) {
+            eventBus.fireEvent(new SensorExecutionEvent(sensor, false));
+          }
+        } finally {
+          lock.unlock();
+        }
+        return sensor;
+      }
+    });
+  }
+
+  static boolean isThreadSafe(Sensor sensor) {
+    // the annotation is not inherited: a subclass can add state to a thread-safe sensor
+    return sensor.getClass().isAnnotationPresent(ThreadSafe.class);
+  }
+
+  /**
+   * For each sensor, the sensors it depends upon, either directly or through other nodes of the dependency graph,
+   * for example a metric or a phase.
+   */
+  Map<Sensor, Set<Sensor>> getDependencies(Collection<Sensor> sensors) {
+    DirectAcyclicGraph dag = selector.getDependencyGraph(sensors);
+    Map<Sensor, Set<Sensor>> result = new IdentityHashMap<Sensor, Set<Sensor>>();
+    for (Sensor sensor : sensors) {
+      result.put(sensor, Sets.<Sensor>newLinkedHashSet());
+    }
+    for (Sensor sensor : sensors) {
+      collectDependencies(dag.add(sensor), result, result.get(sensor), Sets.<Node>newHashSet());
+    }
+    return result;
+  }
+
+  private static void collectDependencies(Node node, Map<Sensor, Set<Sensor>> sensors, Set<Sensor> dependencies, Set<Node> visited) {
+    for (Node dependency : node.getDependencies()) {
+      if (sensors.containsKey(dependency.getObject())) {
+        dependencies.add((Sensor) dependency.getObject());
+      } else if (visited.add(dependency)) {
+        collectDependencies(dependency, sensors, dependencies, visited);
+      }
+    }
+  }
+
   private void executeMavenPlugin(Sensor sensor) {
     if (sensor instanceof DependsUponMavenPlugin) {
       MavenPluginHandler handler = ((DependsUponMavenPlugin) sensor).getMavenPluginHandler(project);
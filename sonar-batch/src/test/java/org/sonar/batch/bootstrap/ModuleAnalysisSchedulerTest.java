@@ -0,0 +1,87 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.batch.bootstrap;
+
+import org.junit.Test;
+import org.sonar.api.resources.Project;
+import org.sonar.api.utils.SonarException;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ModuleAnalysisSchedulerTest {
+
+  @Test
+  public void shouldAnalyseModulesBeforeTheirParent() {
+    Project root = new Project("root");
+    Project parent = new Project("parent").setParent(root);
+    Project child1 = new Project("child1").setParent(parent);
+    Project child2 = new Project("child2").setParent(parent);
+    Project other = new Project("other").setParent(root);
+
+    final List<Project> analysed = new CopyOnWriteArrayList<Project>();
+    new ModuleAnalysisScheduler(3, new ModuleAnalysisScheduler.ModuleAnalysis() {
+      public void analyze(Project module) {
+        analysed.add(module);
+      }
+    }).execute(root);
+
+    assertThat(analysed.size(), is(4));
+    assertThat(analysed.contains(root), is(false));
+    assertThat(analysed.contains(other), is(true));
+    assertThat(analysed.indexOf(parent) > analysed.indexOf(child1), is(true));
+    assertThat(analysed.indexOf(parent) > analysed.indexOf(child2), is(true));
+  }
+
+  @Test
+  public void shouldDoNothingWhenNoModules() {
+    new ModuleAnalysisScheduler(3, new ModuleAnalysisScheduler.ModuleAnalysis() {
+      public void analyze(Project module) {
+        fail();
+      }
+    }).execute(new Project("root"));
+  }
+
+  @Test
+  public void shouldSkipModulesAndRethrowFirstFailure() {
+    Project root = new Project("root");
+    Project parent = new Project("parent").setParent(root);
+    new Project("child").setParent(parent);
+
+    final List<Project> analysed = new CopyOnWriteArrayList<Project>();
+    try {
+      new ModuleAnalysisScheduler(2, new ModuleAnalysisScheduler.ModuleAnalysis() {
+        public void analyze(Project module) {
+          analysed.add(module);
+          throw new SonarException("failure of " + module.getKey());
+        }
+      }).execute(root);
+      fail();
+
+    } catch (SonarException e) {
+      assertThat(e.getMessage(), is("failure of child"));
+      assertThat(analysed.size(), is(1));
+    }
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.batch.bootstrap;
+
+import org.junit.Test;
+import org.sonar.api.database.DatabaseSession;
+import org.sonar.jpa.session.DatabaseSessionFactory;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ModuleDatabaseSessionTest {
+
+  @Test
+  public void shouldDelegateToBatchSessionWhenNoModuleIsBound() {
+    DatabaseSession batchSession = mock(DatabaseSession.class);
+    ModuleDatabaseSession session = new ModuleDatabaseSession(newFactory(batchSession));
+
+    session.commit();
+
+    verify(batchSession).commit();
+  }
+
+  @Test
+  public void shouldDelegateToSessionOfModule() {
+    DatabaseSession batchSession = mock(DatabaseSession.class);
+    DatabaseSession moduleSession = mock(DatabaseSession.class);
+    ModuleDatabaseSession session = new ModuleDatabaseSession(newFactory(batchSession));
+
+    session.bind(moduleSession);
+    session.commit();
+    session.unbind();
+    session.rollback();
+
+    verify(moduleSession).commit();
+    verify(batchSession, never()).commit();
+    verify(batchSession).rollback();
+  }
+
+  @Test
+  public void threadsStartedByModuleShouldInheritItsSession() throws InterruptedException {
+    DatabaseSession batchSession = mock(DatabaseSession.class);
+    DatabaseSession moduleSession = mock(DatabaseSession.class);
+    final ModuleDatabaseSession session = new ModuleDatabaseSession(newFactory(batchSession));
+
+    session.bind(moduleSession);
+    Thread thread = new Thread() {
+      @Override
+      public void run() {
+        session.commit();
+      }
+    };
+    thread.start();
+    thread.join();
+    session.unbind();
+
+    verify(moduleSession).commit();
+    verify(batchSession, never()).commit();
+  }
+
+  private static DatabaseSessionFactory newFactory(DatabaseSession batchSession) {
+    DatabaseSessionFactory factory = mock(DatabaseSessionFactory.class);
+    when(factory.getSession()).thenReturn(batchSession);
+    return factory;
+  }
+}
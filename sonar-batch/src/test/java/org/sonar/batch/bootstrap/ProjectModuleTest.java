@@ -0,0 +1,92 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.batch.bootstrap;
+
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.batch.bootstrap.ProjectDefinition;
+import org.sonar.api.measures.MetricFinder;
+import org.sonar.api.resources.Project;
+import org.sonar.batch.DefaultResourceCreationLock;
+import org.sonar.batch.ProjectTree;
+import org.sonar.batch.bootstrapper.EnvironmentInformation;
+import org.sonar.batch.index.DefaultIndex;
+import org.sonar.batch.index.PersistenceManager;
+import org.sonar.batch.index.ReadOnlyPersistenceManager;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ProjectModuleTest {
+
+  private Project project;
+  private Module batch;
+
+  @Before
+  public void initBatch() {
+    project = new Project("foo");
+    project.setConfiguration(new PropertiesConfiguration());
+    batch = new FakeBatchModule(project).init();
+  }
+
+  @Test
+  public void shouldShareBatchIndexWhenModulesAreAnalysedSequentially() {
+    Module module = batch.installChild(new ProjectModule(project, true));
+
+    assertThat(module.getComponent(DefaultIndex.class), sameInstance(batch.getComponent(DefaultIndex.class)));
+  }
+
+  @Test
+  public void shouldCreateModuleIndexWhenModulesAreAnalysedConcurrently() {
+    Module module = batch.installChild(new ProjectModule(project, true, true));
+
+    DefaultIndex moduleIndex = module.getComponent(DefaultIndex.class);
+    assertThat(moduleIndex, not(sameInstance(batch.getComponent(DefaultIndex.class))));
+    assertThat(module.getComponent(DefaultIndex.class), sameInstance(moduleIndex));
+    assertThat(module.getComponent(PersistenceManager.class), instanceOf(ReadOnlyPersistenceManager.class));
+    assertThat(module.getComponent(DefaultResourceCreationLock.class),
+        not(sameInstance(batch.getComponent(DefaultResourceCreationLock.class))));
+  }
+
+  private static class FakeBatchModule extends Module {
+    private final Project project;
+
+    FakeBatchModule(Project project) {
+      this.project = project;
+    }
+
+    @Override
+    protected void configure() {
+      ProjectTree projectTree = mock(ProjectTree.class);
+      when(projectTree.getProjectDefinition(project)).thenReturn(ProjectDefinition.create());
+      addComponent(projectTree);
+      addComponent(mock(PersistenceManager.class));
+      addComponent(mock(MetricFinder.class));
+      addComponent(DefaultResourceCreationLock.class);
+      addComponent(DefaultIndex.class);
+      addComponent(new ProjectExtensionInstaller(mock(BatchPluginRepository.class), new EnvironmentInformation("ant", "1.7"), new DryRun(true)));
+    }
+  }
+}
@@ -22,9 +22,14 @@ package org.sonar.batch.components;
 import org.junit.Test;
 import org.sonar.api.database.model.Snapshot;
 import org.sonar.api.measures.Metric;
+import org.sonar.api.resources.JavaFile;
+import org.sonar.api.resources.JavaPackage;
+import org.sonar.api.resources.Project;
+import org.sonar.api.resources.Resource;
 import org.sonar.jpa.test.AbstractDbUnitTestCase;
 
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 
 import static org.hamcrest.CoreMatchers.anyOf;
@@ -37,6 +42,7 @@ public class PastMeasuresLoaderTest extends AbstractDbUnitTestCase {
 
   private static final int PROJECT_SNAPSHOT_ID = 1000;
   private static final String PROJECT_KEY = "project";
+  private static final String PACKAGE_KEY = "project:org.foo";
   private static final String FILE_KEY = "project:org.foo.Bar";
 
   @Test
@@ -83,6 +89,45 @@ public class PastMeasuresLoaderTest extends AbstractDbUnitTestCase {
     assertThat(PastMeasuresLoader.getValue(pastMeasure), is(80.0));
   }
 
+  @Test
+  public void shouldPreloadPastMeasuresOfProjectsAndDirectories() {
+    setupData("shared");
+
+    List<Metric> metrics = selectMetrics();
+    Snapshot projectSnapshot = getSession().getSingleResult(Snapshot.class, "id", PROJECT_SNAPSHOT_ID);
+    PastSnapshot pastSnapshot = new PastSnapshot("days", new Date(), projectSnapshot);
+
+    PastMeasuresLoader loader = new PastMeasuresLoader(getSession(), metrics).setPreload(true);
+    List<Object[]> projectMeasures = loader.getPastMeasures(new Project(PROJECT_KEY).setEffectiveKey(PROJECT_KEY), pastSnapshot);
+    List<Object[]> packageMeasures = loader.getPastMeasures(new JavaPackage("org.foo").setEffectiveKey(PACKAGE_KEY), pastSnapshot);
+    List<Object[]> fileMeasures = loader.getPastMeasures(new JavaFile("org.foo.Bar").setEffectiveKey(FILE_KEY), pastSnapshot);
+
+    assertThat(projectMeasures.size(), is(2));
+    assertThat(getValue(projectMeasures, 1), is(60.0));
+    assertThat(getValue(projectMeasures, 2), is(80.0));
+
+    assertThat(packageMeasures.size(), is(2));
+    assertThat(getValue(packageMeasures, 1), is(20.0));
+    assertThat(getValue(packageMeasures, 2), is(70.0));
+
+    // files are not preloaded
+    assertThat(fileMeasures.size(), is(2));
+    assertThat(getValue(fileMeasures, 1), is(5.0));
+    assertThat(getValue(fileMeasures, 2), is(60.0));
+  }
+
+  @Test
+  public void shouldReturnNoPreloadedMeasuresOfUnknownResource() {
+    setupData("shared");
+
+    Snapshot projectSnapshot = getSession().getSingleResult(Snapshot.class, "id", PROJECT_SNAPSHOT_ID);
+    PastSnapshot pastSnapshot = new PastSnapshot("days", new Date(), projectSnapshot);
+
+    PastMeasuresLoader loader = new PastMeasuresLoader(getSession(), selectMetrics()).setPreload(true);
+    Resource unknown = new JavaPackage("org.unknown").setEffectiveKey("project:org.unknown");
+    assertThat(loader.getPastMeasures(unknown, pastSnapshot).size(), is(0));
+  }
+
   @Test
   public void shouldKeepOnlyNumericalMetrics() {
     Metric ncloc = new Metric("ncloc", Metric.ValueType.INT);
@@ -99,6 +144,15 @@ public class PastMeasuresLoaderTest extends AbstractDbUnitTestCase {
     assertThat(loader.getMetrics(), hasItems(ncloc, complexity));
   }
 
+  private static Double getValue(List<Object[]> measures, int metricId) {
+    for (Object[] measure : measures) {
+      if (PastMeasuresLoader.getMetricId(measure) == metricId) {
+        return PastMeasuresLoader.getValue(measure);
+      }
+    }
+    return null;
+  }
+
   private List<Metric> selectMetrics() {
     return getSession().getResults(Metric.class);
   }
@@ -22,6 +22,7 @@ package org.sonar.batch.events;
 import org.sonar.api.batch.events.EventHandler;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import org.junit.Test;
@@ -43,6 +44,18 @@ public class EventBusTest {
     verify(secondHandler).onEvent(secondEvent);
   }
 
+  @Test
+  public void shouldNotifyEachTimeEventIsFired() {
+    FirstHandler firstHandler = mock(FirstHandler.class);
+    EventBus eventBus = new EventBus(new EventHandler[] { firstHandler });
+
+    FirstEvent firstEvent = new FirstEvent();
+    eventBus.fireEvent(firstEvent);
+    eventBus.fireEvent(firstEvent);
+
+    verify(firstHandler, times(2)).onEvent(firstEvent);
+  }
+
   interface FirstHandler extends EventHandler {
     void onEvent(FirstEvent event);
   }
@@ -0,0 +1,105 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.batch.index;
+
+import org.junit.Test;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.measures.RuleMeasure;
+import org.sonar.api.rules.Rule;
+import org.sonar.api.rules.RulePriority;
+
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class CompactMeasuresTest {
+
+  private Metric ncloc = new Metric("ncloc");
+  private Metric lines = new Metric("lines");
+  private Metric violations = new Metric("violations");
+
+  @Test
+  public void shouldGroupMeasuresByMetric() {
+    CompactMeasures measures = new CompactMeasures();
+    Measure nclocMeasure = new Measure(ncloc, 30.0);
+    Measure linesMeasure = new Measure(lines, 50.0);
+    RuleMeasure ruleMeasure1 = RuleMeasure.createForRule(violations, Rule.create("checkstyle", "one", "One"), 3.0);
+    RuleMeasure ruleMeasure2 = RuleMeasure.createForRule(violations, Rule.create("checkstyle", "two", "Two"), 4.0);
+    measures.add(ruleMeasure1);
+    measures.add(nclocMeasure);
+    measures.add(ruleMeasure2);
+    measures.add(linesMeasure);
+
+    assertThat(measures.size(), is(4));
+    assertThat(measures.values().size(), is(4));
+    assertThat(measures.get("ncloc").size(), is(1));
+    assertThat(measures.get("ncloc").get(0), is(nclocMeasure));
+    assertThat(measures.get("lines").get(0), is(linesMeasure));
+
+    // insertion order is kept for a given metric
+    assertThat(measures.get("violations").size(), is(2));
+    assertThat(measures.get("violations").get(0), is((Measure) ruleMeasure1));
+    assertThat(measures.get("violations").get(1), is((Measure) ruleMeasure2));
+
+    assertThat(measures.get("unknown").isEmpty(), is(true));
+  }
+
+  @Test
+  public void shouldFindEqualMeasure() {
+    CompactMeasures measures = new CompactMeasures();
+    RuleMeasure ruleMeasure = RuleMeasure.createForPriority(violations, RulePriority.MAJOR, 3.0);
+    measures.add(ruleMeasure);
+    measures.add(new Measure(ncloc, 30.0));
+
+    assertThat(measures.find(RuleMeasure.createForPriority(violations, RulePriority.MAJOR, 8.0)), is((Measure) ruleMeasure));
+    assertThat(measures.find(RuleMeasure.createForPriority(violations, RulePriority.MINOR, 3.0)), nullValue());
+    assertThat(measures.find(new Measure(lines, 3.0)), nullValue());
+  }
+
+  @Test
+  public void shouldGrow() {
+    CompactMeasures measures = new CompactMeasures();
+    for (int i = 0; i < 100; i++) {
+      measures.add(new Measure(new Metric("metric" + i), (double) i));
+    }
+    assertThat(measures.size(), is(100));
+    assertThat(measures.get("metric42").get(0).getValue(), is(42.0));
+  }
+
+  @Test
+  public void shouldNotChangeReturnedMeasuresWhenAdding() {
+    CompactMeasures measures = new CompactMeasures();
+    Measure linesMeasure = new Measure(lines, 50.0);
+    measures.add(linesMeasure);
+    List<Measure> values = measures.values();
+    List<Measure> linesMeasures = measures.get("lines");
+
+    // inserted before the measure of lines
+    measures.add(new Measure(new Metric("complexity"), 10.0));
+
+    assertThat(values.size(), is(1));
+    assertThat(values.get(0), is(linesMeasure));
+    assertThat(linesMeasures.size(), is(1));
+    assertThat(linesMeasures.get(0), is(linesMeasure));
+  }
+}
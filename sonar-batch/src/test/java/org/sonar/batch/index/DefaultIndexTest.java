@@ -25,10 +25,12 @@ import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import org.apache.commons.configuration.PropertiesConfiguration;
 import org.apache.commons.lang.StringUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.sonar.api.batch.ResourceFilter;
+import org.sonar.api.design.Dependency;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Measure;
 import org.sonar.api.measures.MeasuresFilters;
@@ -51,6 +53,9 @@ import org.sonar.batch.DefaultResourceCreationLock;
 import org.sonar.batch.ProjectTree;
 import org.sonar.batch.ResourceFilters;
 import org.sonar.batch.ViolationFilters;
+import org.sonar.batch.bootstrap.TempDirectories;
+
+import java.io.IOException;
 
 public class DefaultIndexTest {
 
@@ -92,6 +97,26 @@ public class DefaultIndexTest {
     assertThat(DefaultIndex.createUID(project, library), is("junit:junit"));
   }
 
+  @Test
+  public void shouldShareProjectsWithModuleIndex() {
+    Project project = index.getProject();
+    DefaultIndex moduleIndex = index.newModuleIndex(mock(PersistenceManager.class), new DefaultResourceCreationLock());
+    moduleIndex.setCurrentProject(project, new ResourceFilters(new ResourceFilter[0]), new ViolationFilters(), RulesProfile.create());
+
+    File file = new File("org/foo/Bar.java");
+    assertThat(moduleIndex.index(file), is(true));
+    assertThat(moduleIndex.isIndexed(project, false), is(true));
+    assertThat(index.isIndexed(file, true), is(false));
+
+    Library library = new Library("junit:junit", "4.8");
+    moduleIndex.addDependency(new Dependency(project, library));
+    moduleIndex.clear();
+    index.mergeModuleIndex(moduleIndex);
+
+    assertThat(index.isIndexed(library, true), is(true));
+    assertThat(index.getOutgoingEdges(project).size(), is(1));
+  }
+
   @Test
   public void shouldIndexParentOfDeprecatedFiles() {
     File file = new File("org/foo/Bar.java");
@@ -230,6 +255,81 @@ public class DefaultIndexTest {
     assertThat(index.getViolations(ViolationQuery.create().forResource(file).setSwitchedOff(true)).size(), is(2));
   }
 
+  @Test
+  public void shouldMoveViolationsOfDecoratedFilesToDisk() throws IOException {
+    TempDirectories tempDirectories = new TempDirectories();
+    try {
+      index = new DefaultIndex(mock(PersistenceManager.class), lock, mock(ProjectTree.class), mock(MetricFinder.class), tempDirectories);
+      Project project = new Project("project");
+      PropertiesConfiguration configuration = new PropertiesConfiguration();
+      configuration.setProperty(DefaultIndex.MAX_VIOLATIONS_IN_MEMORY_PROPERTY, 1);
+      project.setConfiguration(configuration);
+      RulesProfile rulesProfile = RulesProfile.create();
+      rulesProfile.activateRule(rule, null);
+      index.setCurrentProject(project, new ResourceFilters(new ResourceFilter[0]), new ViolationFilters(), rulesProfile);
+      index.doStart(project);
+
+      File file = new File("org/foo/Bar.java");
+      index.addViolation(Violation.create(rule, file).setMessage("first").setLineId(3));
+      index.addViolation(Violation.create(rule, file).setMessage("second").setSwitchedOff(true));
+      index.setDecorated(file);
+
+      assertThat(index.getBucket(file, true).getViolations().size(), is(0));
+      assertThat(index.getViolations(ViolationQuery.create().forResource(file).setSwitchedOff(false)).get(0).getMessage(), is("first"));
+      assertThat(index.getViolations(ViolationQuery.create().forResource(file).setSwitchedOff(false)).get(0).getLineId(), is(3));
+      assertThat(index.getViolations(ViolationQuery.create().forResource(file).setSwitchedOff(true)).get(0).getMessage(), is("second"));
+
+      // violations added after decoration are kept in memory
+      index.addViolation(Violation.create(rule, file).setMessage("third"));
+      assertThat(index.getViolations(file).size(), is(2));
+
+      index.clear();
+      assertThat(tempDirectories.getFile("index", "violations.bin").exists(), is(false));
+    } finally {
+      tempDirectories.stop();
+    }
+  }
+
+  @Test
+  public void moduleIndexesShouldNotShareTheFileOfViolations() throws IOException {
+    TempDirectories tempDirectories = new TempDirectories();
+    try {
+      index = new DefaultIndex(mock(PersistenceManager.class), lock, mock(ProjectTree.class), mock(MetricFinder.class), tempDirectories);
+      // projects have no id in dry run
+      Project project = new Project("project");
+      PropertiesConfiguration configuration = new PropertiesConfiguration();
+      configuration.setProperty(DefaultIndex.MAX_VIOLATIONS_IN_MEMORY_PROPERTY, 1);
+      project.setConfiguration(configuration);
+      RulesProfile rulesProfile = RulesProfile.create();
+      rulesProfile.activateRule(rule, null);
+      index.setCurrentProject(project, new ResourceFilters(new ResourceFilter[0]), new ViolationFilters(), rulesProfile);
+      index.doStart(project);
+
+      for (int i = 0; i < 2; i++) {
+        DefaultIndex moduleIndex = index.newModuleIndex(mock(PersistenceManager.class), new DefaultResourceCreationLock());
+        moduleIndex.setCurrentProject(project, new ResourceFilters(new ResourceFilter[0]), new ViolationFilters(), rulesProfile);
+        File file = new File("org/foo/Bar.java");
+        moduleIndex.addViolation(Violation.create(rule, file).setMessage("first"));
+        moduleIndex.addViolation(Violation.create(rule, file).setMessage("second"));
+        moduleIndex.setDecorated(file);
+      }
+
+      assertThat(tempDirectories.getDir("index").list().length, is(2));
+    } finally {
+      tempDirectories.stop();
+    }
+  }
+
+  @Test
+  public void shouldKeepViolationsInMemoryByDefault() {
+    File file = new File("org/foo/Bar.java");
+    index.addViolation(Violation.create(rule, file));
+    index.addViolation(Violation.create(rule, file));
+    index.setDecorated(file);
+
+    assertThat(index.getBucket(file, true).getViolations().size(), is(2));
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testGetViolationsWithQueryWithNoResource() {
     index.getViolations(ViolationQuery.create());
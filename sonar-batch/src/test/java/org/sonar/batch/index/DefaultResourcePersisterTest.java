@@ -21,6 +21,8 @@ package org.sonar.batch.index;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.sonar.api.database.model.ResourceModel;
+import org.sonar.api.database.model.Snapshot;
 import org.sonar.api.resources.JavaFile;
 import org.sonar.api.resources.JavaPackage;
 import org.sonar.api.resources.Library;
@@ -33,6 +35,7 @@ import java.text.SimpleDateFormat;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.sameInstance;
 
 public class DefaultResourcePersisterTest extends AbstractDbUnitTestCase {
 
@@ -96,6 +99,55 @@ public class DefaultResourcePersisterTest extends AbstractDbUnitTestCase {
     checkTables("shouldSaveNewDirectory", "projects", "snapshots");
   }
 
+  @Test
+  public void shouldSaveNewDirectoryWhenPreloadingResources() {
+    setupData("shared");
+
+    DefaultResourcePersister persister = new DefaultResourcePersister(getSession());
+    persister.setPreloadResources(true, 1000);
+    persister.saveProject(singleProject, null);
+    persister.saveResource(singleProject, new JavaPackage("org.foo").setEffectiveKey("foo:org.foo"));
+
+    checkTables("shouldSaveNewDirectory", "projects", "snapshots");
+  }
+
+  @Test
+  public void shouldUpdatePreloadedResource() {
+    setupData("shouldUpdatePreloadedResource");
+
+    DefaultResourcePersister persister = new DefaultResourcePersister(getSession());
+    persister.setPreloadResources(true, 1000);
+    persister.saveProject(singleProject, null);
+    persister.saveResource(singleProject, new JavaPackage("org.foo").setEffectiveKey("foo:org.foo"));
+    getSession().commit();
+
+    checkTables("shouldUpdatePreloadedResource", "projects", "snapshots");
+  }
+
+  @Test
+  public void shouldReuseResourceOfAnotherRootWhenPreloadingResources() {
+    setupData("shouldReuseResourceOfAnotherRoot");
+
+    DefaultResourcePersister persister = new DefaultResourcePersister(getSession());
+    persister.setPreloadResources(true, 1000);
+    persister.saveProject(singleProject, null);
+    persister.saveResource(singleProject, new JavaPackage("org.foo").setEffectiveKey("foo:org.foo"));
+    getSession().commit();
+
+    checkTables("shouldReuseResourceOfAnotherRoot", "projects", "snapshots");
+  }
+
+  @Test
+  public void shouldDetectChangesOfPreloadedResource() {
+    ResourceModel model = DefaultResourcePersister.createModel(new JavaPackage("org.foo").setEffectiveKey("foo:org.foo"));
+    model.setRootId(1001);
+    ResourceModel previous = (ResourceModel) model.clone();
+    assertThat(DefaultResourcePersister.hasChanged(previous, model), is(false));
+
+    model.setLongName("org.bar");
+    assertThat(DefaultResourcePersister.hasChanged(previous, model), is(true));
+  }
+
   @Test
   public void shouldSaveNewLibrary() {
     setupData("shared");
@@ -109,6 +161,25 @@ public class DefaultResourcePersisterTest extends AbstractDbUnitTestCase {
     checkTables("shouldSaveNewLibrary", "projects", "snapshots");
   }
 
+  @Test
+  public void shouldShareProjectsAndLibrariesWithModulePersister() {
+    setupData("shared");
+
+    DefaultResourcePersister persister = new DefaultResourcePersister(getSession());
+    Snapshot rootSnapshot = persister.saveProject(multiModuleProject, null);
+    DefaultResourcePersister modulePersister = persister.newModulePersister();
+    assertThat(modulePersister.getSnapshot(multiModuleProject), sameInstance(rootSnapshot));
+
+    modulePersister.saveProject(moduleA, multiModuleProject);
+    Library library = new Library("junit:junit", "4.8.2");
+    Snapshot librarySnapshot = modulePersister.saveResource(moduleA, library.setEffectiveKey("junit:junit"));
+    modulePersister.saveResource(moduleA, new JavaPackage("org.foo").setEffectiveKey("a:org.foo"));
+    persister.mergeModulePersister(modulePersister);
+
+    assertThat(persister.getSnapshot(library), sameInstance(librarySnapshot));
+    assertThat(persister.getSnapshot(new JavaPackage("org.foo")) == null, is(true));
+  }
+
   @Test
   public void shouldClearResourcesExceptProjects() {
     setupData("shared");
@@ -144,6 +144,18 @@ public class MeasurePersisterTest extends AbstractDbUnitTestCase {
     checkTables("shouldDelaySaving", "project_measures");
   }
 
+  @Test
+  public void shouldCommitDelayedMeasuresByBulk() {
+    measurePersister.setDelayedMode(true);
+    measurePersister.setBulkCommitSize(1);
+
+    measurePersister.saveMeasure(project, new Measure(ncloc).setValue(1234.0));
+    measurePersister.saveMeasure(aPackage, new Measure(ncloc).setValue(50.0));
+
+    measurePersister.dump();
+    checkTables("shouldDelaySaving", "project_measures");
+  }
+
   @Test
   public void shouldNotDelaySavingWithDatabaseOnlyMeasure() {
     measurePersister.setDelayedMode(true);
@@ -84,6 +84,21 @@ public class MemoryOptimizerTest extends AbstractDbUnitTestCase {
     assertThat(measure.getData(), nullValue());
   }
 
+  @Test
+  public void shouldTrackMeasuresEvictedByModuleOptimizer() {
+    MemoryOptimizer optimizer = new MemoryOptimizer(getSession());
+    MemoryOptimizer moduleOptimizer = new MemoryOptimizer(getSession());
+    Measure measure = new Measure(CoreMetrics.CONDITIONS_BY_LINE)
+        .setData("10=23")
+        .setPersistenceMode(PersistenceMode.DATABASE)
+        .setId(12345L);
+    moduleOptimizer.evictDataMeasure(measure, newPersistedModel());
+
+    optimizer.mergeModuleOptimizer(moduleOptimizer);
+
+    assertThat(optimizer.isTracked(12345L), is(true));
+  }
+
   private MeasureModel newPersistedModel() {
     MeasureModel model = new MeasureModel();
     model.setId(12345L);
@@ -19,8 +19,10 @@
  */
 package org.sonar.batch.index;
 
+import org.apache.commons.lang.StringUtils;
 import org.junit.Before;
 import org.junit.Test;
+import org.sonar.api.database.DatabaseSession;
 import org.sonar.api.database.model.Snapshot;
 import org.sonar.api.resources.DuplicatedSourceException;
 import org.sonar.api.resources.JavaFile;
@@ -29,19 +31,26 @@ import org.sonar.api.resources.Resource;
 import org.sonar.api.utils.SonarException;
 import org.sonar.jpa.test.AbstractDbUnitTestCase;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class SourcePersisterTest extends AbstractDbUnitTestCase {
 
   private SourcePersister sourcePersister;
+  private ResourcePersister resourcePersister;
+  private Snapshot snapshot;
 
   @Before
   public void before() {
     setupData("shared");
-    Snapshot snapshot = getSession().getSingleResult(Snapshot.class, "id", 1000);
-    ResourcePersister resourcePersister = mock(ResourcePersister.class);
+    snapshot = getSession().getSingleResult(Snapshot.class, "id", 1000);
+    resourcePersister = mock(ResourcePersister.class);
     when(resourcePersister.getSnapshotOrFail((Resource) anyObject())).thenReturn(snapshot);
     sourcePersister = new SourcePersister(getSession(), resourcePersister);
   }
@@ -52,6 +61,40 @@ public class SourcePersisterTest extends AbstractDbUnitTestCase {
     checkTables("shouldSaveSource", "snapshot_sources");
   }
 
+  @Test
+  public void shouldCommitSourcesByBulk() {
+    sourcePersister.setBulkCommitSize(1);
+    sourcePersister.saveSource(new JavaFile("org.foo.Bar"), "this is the file content");
+    checkTables("shouldSaveSource", "snapshot_sources");
+  }
+
+  @Test
+  public void shouldCommitLargeSources() {
+    DatabaseSession session = mock(DatabaseSession.class);
+    SourcePersister persister = new SourcePersister(session, resourcePersister);
+    persister.saveSource(new JavaFile("org.foo.Bar"), "small");
+    verify(session, never()).commit();
+
+    JavaFile largeFile = new JavaFile("org.foo.Large");
+    Snapshot largeSnapshot = new Snapshot();
+    largeSnapshot.setId(1001);
+    when(resourcePersister.getSnapshotOrFail(largeFile)).thenReturn(largeSnapshot);
+    persister.saveSource(largeFile, StringUtils.repeat("x", SourcePersister.MAX_UNCOMMITTED_CHARS));
+    verify(session).commit();
+  }
+
+  @Test
+  public void shouldCacheLineHashesOfSavedSource() {
+    JavaFile file = new JavaFile("org.foo.Bar");
+    when(resourcePersister.getSnapshot(file)).thenReturn(snapshot);
+    sourcePersister.saveSource(file, "this is\nthe file content");
+
+    long[] lineHashes = sourcePersister.getLineHashes(file);
+    assertThat(lineHashes, is(LineHashes.of("this is\nthe file content")));
+    assertThat(sourcePersister.getLineHashes(file), sameInstance(lineHashes));
+    assertThat(sourcePersister.getSource(file), is("this is\nthe file content"));
+  }
+
   @Test(expected = DuplicatedSourceException.class)
   public void shouldFailIfSourceSavedSeveralTimes() {
     JavaFile file = new JavaFile("org.foo.Bar");
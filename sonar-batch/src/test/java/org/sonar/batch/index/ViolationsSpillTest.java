@@ -0,0 +1,131 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.batch.index;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.resources.JavaFile;
+import org.sonar.api.resources.Resource;
+import org.sonar.api.rules.Rule;
+import org.sonar.api.rules.RulePriority;
+import org.sonar.api.rules.Violation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class ViolationsSpillTest {
+
+  private ViolationsSpill spill;
+
+  @Before
+  public void createSpill() throws IOException {
+    spill = new ViolationsSpill(File.createTempFile("violations", ".bin"));
+  }
+
+  @After
+  public void closeSpill() {
+    spill.close();
+  }
+
+  @Test
+  public void shouldWriteAndReadViolations() {
+    Rule rule = Rule.create("repo", "rule", "Rule");
+    Resource file = new JavaFile("org.foo.Bar");
+    Date createdAt = new Date();
+    Violation violation = Violation.create(rule, file)
+        .setMessage("Message with accents: éè")
+        .setSeverity(RulePriority.CRITICAL)
+        .setLineId(12)
+        .setCost(3.5)
+        .setCreatedAt(createdAt)
+        .setSwitchedOff(true)
+        .setChecksum("h1:ff")
+        .setNew(true);
+    Violation emptyViolation = Violation.create(rule, file);
+
+    ViolationsSpill.Segment segment = spill.write(Arrays.asList(violation, emptyViolation));
+    assertThat(segment.getCount(), is(2));
+
+    List<Violation> violations = spill.read(segment, file);
+    assertThat(violations.size(), is(2));
+
+    Violation reloaded = violations.get(0);
+    assertThat(reloaded.getRule(), sameInstance(rule));
+    assertThat(reloaded.getResource(), sameInstance(file));
+    assertThat(reloaded.getMessage(), is("Message with accents: éè"));
+    assertThat(reloaded.getSeverity(), is(RulePriority.CRITICAL));
+    assertThat(reloaded.getLineId(), is(12));
+    assertThat(reloaded.getCost(), is(3.5));
+    assertThat(reloaded.getCreatedAt(), is(createdAt));
+    assertThat(reloaded.isSwitchedOff(), is(true));
+    assertThat(reloaded.getChecksum(), is("h1:ff"));
+    assertThat(reloaded.isNew(), is(true));
+
+    Violation reloadedEmpty = violations.get(1);
+    assertThat(reloadedEmpty.getMessage(), nullValue());
+    assertThat(reloadedEmpty.getSeverity(), nullValue());
+    assertThat(reloadedEmpty.getLineId(), nullValue());
+    assertThat(reloadedEmpty.getCost(), nullValue());
+    assertThat(reloadedEmpty.getCreatedAt(), nullValue());
+    assertThat(reloadedEmpty.isSwitchedOff(), is(false));
+    assertThat(reloadedEmpty.getChecksum(), nullValue());
+    assertThat(reloadedEmpty.isNew(), is(false));
+  }
+
+  @Test
+  public void shouldReadSegmentsIndependently() {
+    Rule rule1 = Rule.create("repo", "rule1", "Rule 1");
+    Rule rule2 = Rule.create("repo", "rule2", "Rule 2");
+    Resource file1 = new JavaFile("org.foo.Bar");
+    Resource file2 = new JavaFile("org.foo.Baz");
+
+    ViolationsSpill.Segment segment1 = spill.write(Arrays.asList(Violation.create(rule1, file1).setMessage("first")));
+    ViolationsSpill.Segment segment2 = spill.write(Arrays.asList(
+        Violation.create(rule2, file2).setMessage("second"), Violation.create(rule1, file2).setMessage("third")));
+
+    List<Violation> violations2 = spill.read(segment2, file2);
+    assertThat(violations2.size(), is(2));
+    assertThat(violations2.get(0).getMessage(), is("second"));
+    assertThat(violations2.get(0).getRule(), sameInstance(rule2));
+    assertThat(violations2.get(1).getRule(), sameInstance(rule1));
+
+    List<Violation> violations1 = spill.read(segment1, file1);
+    assertThat(violations1.size(), is(1));
+    assertThat(violations1.get(0).getMessage(), is("first"));
+  }
+
+  @Test
+  public void shouldDeleteFileOnClose() {
+    spill.write(Arrays.asList(Violation.create(Rule.create("repo", "rule", "Rule"), new JavaFile("org.foo.Bar"))));
+    assertThat(spill.getFile().exists(), is(true));
+
+    spill.close();
+    assertThat(spill.getFile().exists(), is(false));
+  }
+}
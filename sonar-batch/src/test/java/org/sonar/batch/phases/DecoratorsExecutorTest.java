@@ -19,24 +19,46 @@
  */
 package org.sonar.batch.phases;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.configuration.PropertiesConfiguration;
 import org.junit.Test;
 import org.sonar.api.batch.BatchExtensionDictionnary;
 import org.sonar.api.batch.Decorator;
 import org.sonar.api.batch.DecoratorContext;
 import org.sonar.api.batch.SonarIndex;
+import org.sonar.api.batch.ThreadSafe;
+import org.sonar.api.batch.events.EventHandler;
+import org.sonar.api.database.DatabaseSession;
+import org.sonar.api.database.model.MeasureData;
+import org.sonar.api.database.model.MeasureModel;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.PersistenceMode;
 import org.sonar.api.resources.File;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
 import org.sonar.api.utils.SonarException;
 import org.sonar.batch.DefaultDecoratorContext;
 import org.sonar.batch.events.EventBus;
+import org.sonar.batch.index.MemoryOptimizer;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.core.Is.is;
 import static org.hamcrest.number.OrderingComparisons.greaterThanOrEqualTo;
 import static org.hamcrest.number.OrderingComparisons.lessThan;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.junit.matchers.JUnitMatchers.containsString;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Mockito.when;
 
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -76,6 +98,189 @@ public class DecoratorsExecutorTest {
     }
   }
 
+  @Test
+  public void shouldDecorateChildrenConcurrently() {
+    PropertiesConfiguration conf = new PropertiesConfiguration();
+    conf.setProperty(DecoratorsExecutor.THREADS_PROPERTY, "4");
+    Project project = new Project("key");
+    project.setConfiguration(conf);
+
+    List<Resource> files = Lists.newArrayList();
+    for (int i = 0; i < 20; i++) {
+      files.add(new File("org/foo/Bar" + i + ".java"));
+    }
+    SonarIndex index = mockIndex(project, files);
+
+    RecordingDecorator decorator = new RecordingDecorator();
+    BatchExtensionDictionnary dictionnary = mockDictionnary(project, decorator);
+
+    new DecoratorsExecutor(dictionnary, project, index, mock(EventBus.class)).execute();
+
+    assertThat(decorator.resources.size(), is(21));
+    assertThat(decorator.resources.containsAll(files), is(true));
+    // the parent is decorated after all its children
+    assertThat(decorator.resources.get(20), is((Resource) project));
+    assertThat(decorator.childrenOfProject, is(20));
+  }
+
+  @Test
+  public void shouldNotExecuteConcurrentlyDecoratorsWhichAreNotThreadSafe() {
+    PropertiesConfiguration conf = new PropertiesConfiguration();
+    conf.setProperty(DecoratorsExecutor.THREADS_PROPERTY, "4");
+    Project project = new Project("key");
+    project.setConfiguration(conf);
+
+    List<Resource> files = Lists.newArrayList();
+    for (int i = 0; i < 20; i++) {
+      files.add(new File("org/foo/Bar" + i + ".java"));
+    }
+    SonarIndex index = mockIndex(project, files);
+
+    OverlapDecorator decorator = new OverlapDecorator();
+    new DecoratorsExecutor(mockDictionnary(project, decorator), project, index, mock(EventBus.class)).execute();
+
+    assertThat(decorator.executions.get(), is(21));
+    assertThat(decorator.overlaps.get(), is(0));
+  }
+
+  @Test
+  public void shouldNotFlushDataMeasuresReloadedByOtherThreads() {
+    PropertiesConfiguration conf = new PropertiesConfiguration();
+    conf.setProperty(DecoratorsExecutor.THREADS_PROPERTY, "4");
+    Project project = new Project("key");
+    project.setConfiguration(conf);
+
+    List<Resource> files = Lists.newArrayList();
+    for (int i = 0; i < 20; i++) {
+      files.add(new File("org/foo/Bar" + i + ".java"));
+    }
+    SonarIndex index = mockIndex(project, files);
+
+    DatabaseSession session = mock(DatabaseSession.class);
+    MeasureData data = new MeasureData(null, "10=23");
+    when(session.getSingleResult(MeasureData.class, "id", 500)).thenReturn(data);
+    MemoryOptimizer optimizer = new MemoryOptimizer(session);
+    DataMeasureDecorator decorator = new DataMeasureDecorator(index, optimizer);
+    for (int i = 0; i < files.size(); i++) {
+      Measure measure = new Measure(CoreMetrics.CONDITIONS_BY_LINE).setData("10=23").setPersistenceMode(PersistenceMode.DATABASE).setId((long) i);
+      MeasureModel model = new MeasureModel();
+      MeasureData measureData = new MeasureData();
+      measureData.setId(500);
+      model.setMeasureData(measureData);
+      optimizer.evictDataMeasure(measure, model);
+      decorator.measures.put(files.get(i), measure);
+    }
+
+    new DecoratorsExecutor(mockDictionnary(project, decorator), project, index, new EventBus(new EventHandler[]{optimizer})).execute();
+
+    assertThat(decorator.executions.get(), is(20));
+    assertThat(decorator.lostData.get(), is(0));
+    for (Measure measure : decorator.measures.values()) {
+      assertThat(measure.hasData(), is(false));
+    }
+  }
+
+  @Test
+  public void shouldDetectThreadSafeDecorators() {
+    assertThat(DecoratorsExecutor.isThreadSafe(new RecordingDecorator()), is(true));
+    assertThat(DecoratorsExecutor.isThreadSafe(new Decorator1()), is(false));
+  }
+
+  private static SonarIndex mockIndex(Project project, List<Resource> files) {
+    SonarIndex index = mock(SonarIndex.class);
+    when(index.getChildren(project)).thenReturn((Collection) files);
+    for (Resource file : files) {
+      when(index.getChildren(file)).thenReturn(Collections.<Resource>emptyList());
+    }
+    return index;
+  }
+
+  private static BatchExtensionDictionnary mockDictionnary(Project project, Decorator decorator) {
+    BatchExtensionDictionnary dictionnary = mock(BatchExtensionDictionnary.class);
+    when(dictionnary.select(Decorator.class, project, false)).thenReturn(Arrays.<Decorator>asList(decorator));
+    when(dictionnary.sort(anyCollection())).thenReturn((Collection) Arrays.asList(decorator));
+    return dictionnary;
+  }
+
+  @ThreadSafe
+  static class RecordingDecorator implements Decorator {
+    List<Resource> resources = Collections.synchronizedList(Lists.<Resource>newArrayList());
+    int childrenOfProject = -1;
+
+    public void decorate(Resource resource, DecoratorContext context) {
+      resources.add(resource);
+      if (resource instanceof Project) {
+        childrenOfProject = context.getChildren().size();
+      }
+    }
+
+    public boolean shouldExecuteOnProject(Project project) {
+      return true;
+    }
+  }
+
+  /**
+   * Reads the data measure of each file, which is reloaded through the index like in {@link org.sonar.batch.index.DefaultIndex#getMeasure}.
+   */
+  @ThreadSafe
+  static class DataMeasureDecorator implements Decorator {
+    Map<Resource, Measure> measures = Maps.newHashMap();
+    AtomicInteger executions = new AtomicInteger();
+    AtomicInteger lostData = new AtomicInteger();
+    private final SonarIndex index;
+    private final MemoryOptimizer optimizer;
+
+    DataMeasureDecorator(SonarIndex index, MemoryOptimizer optimizer) {
+      this.index = index;
+      this.optimizer = optimizer;
+    }
+
+    public void decorate(Resource resource, DecoratorContext context) {
+      Measure measure = measures.get(resource);
+      if (measure != null) {
+        synchronized (index) {
+          optimizer.reloadMeasure(measure);
+        }
+        try {
+          Thread.sleep(2);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        if (measure.getData() == null) {
+          lostData.incrementAndGet();
+        }
+        executions.incrementAndGet();
+      }
+    }
+
+    public boolean shouldExecuteOnProject(Project project) {
+      return true;
+    }
+  }
+
+  static class OverlapDecorator implements Decorator {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger executions = new AtomicInteger();
+    AtomicInteger overlaps = new AtomicInteger();
+
+    public void decorate(Resource resource, DecoratorContext context) {
+      if (running.incrementAndGet() > 1) {
+        overlaps.incrementAndGet();
+      }
+      try {
+        Thread.sleep(2);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      executions.incrementAndGet();
+      running.decrementAndGet();
+    }
+
+    public boolean shouldExecuteOnProject(Project project) {
+      return true;
+    }
+  }
+
   static class Decorator1 implements Decorator {
     public void decorate(Resource resource, DecoratorContext context) {
     }
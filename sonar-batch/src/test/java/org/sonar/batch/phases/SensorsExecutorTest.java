@@ -0,0 +1,287 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.batch.phases;
+
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.junit.Test;
+import org.sonar.api.batch.BatchExtensionDictionnary;
+import org.sonar.api.batch.Sensor;
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.batch.SonarIndex;
+import org.sonar.api.batch.ThreadSafe;
+import org.sonar.api.batch.bootstrap.ProjectDefinition;
+import org.sonar.api.batch.events.EventHandler;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.resources.Project;
+import org.sonar.api.utils.dag.DirectAcyclicGraph;
+import org.sonar.batch.MavenPluginExecutor;
+import org.sonar.batch.events.EventBus;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SensorsExecutorTest {
+
+  @Test
+  public void shouldFindDependenciesThroughIntermediateObjects() {
+    List<String> executed = new CopyOnWriteArrayList<String>();
+    FakeSensor a = new FakeSensor("a", executed);
+    FakeSensor b = new FakeSensor("b", executed);
+    FakeSensor c = new FakeSensor("c", executed);
+    List<Sensor> sensors = Arrays.<Sensor>asList(a, b, c);
+
+    SensorsExecutor executor = newExecutor(sensors, newGraph(a, b, c), new Project("foo"));
+    Map<Sensor, Set<Sensor>> dependencies = executor.getDependencies(sensors);
+
+    assertThat(dependencies.get(a).isEmpty(), is(true));
+    assertThat(dependencies.get(b).size(), is(1));
+    assertThat(dependencies.get(b).contains(a), is(true));
+    assertThat(dependencies.get(c).isEmpty(), is(true));
+  }
+
+  @Test
+  public void shouldExecuteSensorsConcurrentlyAfterTheirDependencies() {
+    List<String> executed = new CopyOnWriteArrayList<String>();
+    FakeSensor a = new FakeSensor("a", executed);
+    FakeSensor b = new FakeSensor("b", executed);
+    FakeSensor c = new FakeSensor("c", executed);
+    List<Sensor> sensors = Arrays.<Sensor>asList(a, b, c);
+
+    PropertiesConfiguration conf = new PropertiesConfiguration();
+    conf.setProperty(SensorsExecutor.THREADS_PROPERTY, "3");
+    Project project = new Project("foo");
+    project.setConfiguration(conf);
+
+    SensorsExecutor executor = newExecutor(sensors, newGraph(a, b, c), project);
+    executor.execute(mock(SensorContext.class));
+
+    assertThat(executed.size(), is(3));
+    assertThat(executed.indexOf("b") > executed.indexOf("a"), is(true));
+  }
+
+  @Test
+  public void shouldNotExecuteConcurrentlySensorsWhichAreNotThreadSafe() {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger overlaps = new AtomicInteger();
+    List<Sensor> sensors = Arrays.<Sensor>asList(new OverlapSensor(running, overlaps), new OverlapSensor(running, overlaps),
+        new OverlapSensor(running, overlaps), new OverlapSensor(running, overlaps));
+    DirectAcyclicGraph dag = new DirectAcyclicGraph();
+    for (Sensor sensor : sensors) {
+      dag.add(sensor);
+    }
+
+    PropertiesConfiguration conf = new PropertiesConfiguration();
+    conf.setProperty(SensorsExecutor.THREADS_PROPERTY, "4");
+    Project project = new Project("foo");
+    project.setConfiguration(conf);
+
+    newExecutor(sensors, dag, project).execute(mock(SensorContext.class));
+
+    assertThat(overlaps.get(), is(0));
+  }
+
+  @Test
+  public void shouldNotExecuteThreadSafeSensorsWithSensorsWhichAreNotThreadSafe() {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger overlaps = new AtomicInteger();
+    List<Sensor> sensors = Arrays.<Sensor>asList(new ThreadSafeSensor(running), new OverlapSensor(running, overlaps),
+        new ThreadSafeSensor(running), new OverlapSensor(running, overlaps), new ThreadSafeSensor(running));
+    DirectAcyclicGraph dag = new DirectAcyclicGraph();
+    for (Sensor sensor : sensors) {
+      dag.add(sensor);
+    }
+
+    PropertiesConfiguration conf = new PropertiesConfiguration();
+    conf.setProperty(SensorsExecutor.THREADS_PROPERTY, "5");
+    Project project = new Project("foo");
+    project.setConfiguration(conf);
+
+    newExecutor(sensors, dag, project).execute(mock(SensorContext.class));
+
+    assertThat(overlaps.get(), is(0));
+  }
+
+  @Test(timeout = 10000)
+  public void shouldNotLockIndexDuringExecutionOfSensors() {
+    SonarIndex index = mock(SonarIndex.class);
+    List<Sensor> sensors = Arrays.<Sensor>asList(new IndexWorkerSensor(index), new IndexWorkerSensor(index));
+    DirectAcyclicGraph dag = new DirectAcyclicGraph();
+    for (Sensor sensor : sensors) {
+      dag.add(sensor);
+    }
+
+    PropertiesConfiguration conf = new PropertiesConfiguration();
+    conf.setProperty(SensorsExecutor.THREADS_PROPERTY, "2");
+    Project project = new Project("foo");
+    project.setConfiguration(conf);
+
+    newExecutor(sensors, dag, project, index).execute(mock(SensorContext.class));
+  }
+
+  @Test
+  public void shouldDetectThreadSafeSensors() {
+    assertThat(SensorsExecutor.isThreadSafe(new FakeSensor("a", null)), is(true));
+    assertThat(SensorsExecutor.isThreadSafe(new OverlapSensor(null, null)), is(false));
+  }
+
+  /**
+   * b depends upon a through the ncloc metric, c is independent
+   */
+  private static DirectAcyclicGraph newGraph(Sensor a, Sensor b, Sensor c) {
+    DirectAcyclicGraph dag = new DirectAcyclicGraph();
+    dag.add(a);
+    dag.add(CoreMetrics.NCLOC, a);
+    dag.add(b, CoreMetrics.NCLOC);
+    dag.add(c);
+    return dag;
+  }
+
+  private static SensorsExecutor newExecutor(List<Sensor> sensors, DirectAcyclicGraph dag, Project project) {
+    return newExecutor(sensors, dag, project, mock(SonarIndex.class));
+  }
+
+  private static SensorsExecutor newExecutor(List<Sensor> sensors, DirectAcyclicGraph dag, Project project, SonarIndex index) {
+    BatchExtensionDictionnary selector = mock(BatchExtensionDictionnary.class);
+    when(selector.select(Sensor.class, project, true)).thenReturn(sensors);
+    when(selector.getDependencyGraph(sensors)).thenReturn(dag);
+    return new SensorsExecutor(selector, project, ProjectDefinition.create(), mock(MavenPluginExecutor.class),
+        new EventBus(new EventHandler[0]), index);
+  }
+
+  @ThreadSafe
+  private static class FakeSensor implements Sensor {
+    private final String name;
+    private final List<String> executed;
+
+    FakeSensor(String name, List<String> executed) {
+      this.name = name;
+      this.executed = executed;
+    }
+
+    public boolean shouldExecuteOnProject(Project project) {
+      return true;
+    }
+
+    public void analyse(Project project, SensorContext context) {
+      if ("a".equals(name)) {
+        try {
+          // give b a chance to be executed before a if dependencies were ignored
+          Thread.sleep(50);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      executed.add(name);
+    }
+  }
+
+  private static class OverlapSensor implements Sensor {
+    private final AtomicInteger running;
+    private final AtomicInteger overlaps;
+
+    OverlapSensor(AtomicInteger running, AtomicInteger overlaps) {
+      this.running = running;
+      this.overlaps = overlaps;
+    }
+
+    public boolean shouldExecuteOnProject(Project project) {
+      return true;
+    }
+
+    public void analyse(Project project, SensorContext context) {
+      if (running.incrementAndGet() > 1) {
+        overlaps.incrementAndGet();
+      }
+      try {
+        Thread.sleep(20);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (running.get() > 1) {
+        overlaps.incrementAndGet();
+      }
+      running.decrementAndGet();
+    }
+  }
+
+  @ThreadSafe
+  private static class ThreadSafeSensor implements Sensor {
+    private final AtomicInteger running;
+
+    ThreadSafeSensor(AtomicInteger running) {
+      this.running = running;
+    }
+
+    public boolean shouldExecuteOnProject(Project project) {
+      return true;
+    }
+
+    public void analyse(Project project, SensorContext context) {
+      running.incrementAndGet();
+      try {
+        Thread.sleep(20);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      running.decrementAndGet();
+    }
+  }
+
+  /**
+   * Waits for a thread which uses the index, like a sensor which saves violations from its own pool of threads.
+   */
+  private static class IndexWorkerSensor implements Sensor {
+    private final SonarIndex index;
+
+    IndexWorkerSensor(SonarIndex index) {
+      this.index = index;
+    }
+
+    public boolean shouldExecuteOnProject(Project project) {
+      return true;
+    }
+
+    public void analyse(Project project, SensorContext context) {
+      Thread worker = new Thread() {
+        @Override
+        public void run() {
+          synchronized (index) {
+            index.getChildren(null);
+          }
+        }
+      };
+      worker.start();
+      try {
+        worker.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -19,10 +19,18 @@
  */
 package org.sonar.channel;
 
+import java.io.CharArrayReader;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.FilterReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
 
 import org.apache.commons.io.IOUtils;
 
@@ -53,12 +61,39 @@ public class CodeBuffer implements CharSequence {
   private StringBuilder recordedCharacters = new StringBuilder();
 
   protected CodeBuffer(Reader initialCodeReader, CodeReaderConfiguration configuration) {
+    this(initialCodeReader, null, configuration);
+  }
+
+  /**
+   * Reads the whole file at once: the file is read, or memory-mapped when it is bigger than {@link #MAPPING_THRESHOLD}, and decoded in a
+   * single pass. Decoded characters are used as buffer, so they
+   * are never copied, the capacity of buffer from configuration is ignored and {@link #subSequence(int, int)} remains valid until the end.
+   * When configuration contains code reader filters, they are applied to the decoded characters as usual.
+   * 
+   * @since 2.11
+   */
+  protected CodeBuffer(File file, Charset charset, CodeReaderConfiguration configuration) {
+    this(null, decode(file, charset), configuration);
+  }
+
+  private CodeBuffer(Reader initialCodeReader, CharBuffer decodedCode, CodeReaderConfiguration configuration) {
     lastChar = -1;
     cursor = new Cursor();
-    bufferCapacity = configuration.getBufferCapacity();
     tabWidth = configuration.getTabWidth();
+    if (decodedCode != null && configuration.getCodeReaderFilters().length == 0) {
+      code = null;
+      buffer = decodedCode.array();
+      bufferPosition = decodedCode.arrayOffset() + decodedCode.position();
+      bufferSize = decodedCode.arrayOffset() + decodedCode.limit();
+      bufferCapacity = buffer.length;
+      return;
+    }
+    bufferCapacity = configuration.getBufferCapacity();
     buffer = new char[bufferCapacity];
     Reader reader = initialCodeReader;
+    if (decodedCode != null) {
+      reader = new CharArrayReader(decodedCode.array(), decodedCode.arrayOffset() + decodedCode.position(), decodedCode.remaining());
+    }
     for (CodeReaderFilter<?> codeReaderFilter : configuration.getCodeReaderFilters()) {
       reader = new Filter(reader, codeReaderFilter, configuration);
     }
@@ -66,6 +101,35 @@ public class CodeBuffer implements CharSequence {
     fillBuffer();
   }
 
+  /**
+   * Size in bytes from which files are memory-mapped. A mapping is released only when its buffer is garbage collected, so smaller files,
+   * which are most of the source files, are read into a plain array.
+   */
+  static final long MAPPING_THRESHOLD = 1024 * 1024;
+
+  private static CharBuffer decode(File file, Charset charset) {
+    FileInputStream input = null;
+    try {
+      input = new FileInputStream(file);
+      FileChannel channel = input.getChannel();
+      ByteBuffer bytes;
+      if (channel.size() < MAPPING_THRESHOLD) {
+        bytes = ByteBuffer.wrap(IOUtils.toByteArray(input));
+      } else {
+        bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      }
+      // same behaviour as InputStreamReader for malformed input
+      return charset.newDecoder()
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE)
+          .decode(bytes);
+    } catch (IOException e) {
+      throw new ChannelException(e.getMessage(), e);
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
+  }
+
   protected CodeBuffer(String code, CodeReaderConfiguration configuration) {
     this(new StringReader(code), configuration);
   }
@@ -79,7 +143,7 @@ public class CodeBuffer implements CharSequence {
     if (bufferPosition == bufferSize) {
       fillBuffer();
     }
-    if (bufferSize == 0) {
+    if (bufferPosition == bufferSize) {
       return -1;
     }
     int character = buffer[bufferPosition++];
@@ -104,6 +168,10 @@ public class CodeBuffer implements CharSequence {
   }
 
   private int fillBuffer() {
+    if (code == null) {
+      // whole file is already in buffer
+      return 0;
+    }
     try {
       int offset = bufferSize - bufferPosition;
       if (offset != 0) {
@@ -245,11 +313,18 @@ public class CodeBuffer implements CharSequence {
    * http://jira.codehaus.org/browse/SONAR-2010)
    */
   public final int length() {
-    return (bufferSize == bufferCapacity ? Integer.MAX_VALUE : bufferSize - bufferPosition);
+    return (code != null && bufferSize == bufferCapacity ? Integer.MAX_VALUE : bufferSize - bufferPosition);
   }
 
+  /**
+   * Returns the characters between the given indexes after the cursor without consuming them. Characters are not copied: the returned
+   * sequence is a view of the buffer, which is valid until the buffer is refilled, i.e. until the end for a file read at once.
+   */
   public final CharSequence subSequence(int start, int end) {
-    throw new UnsupportedOperationException();
+    if (start < 0 || start > end || (end > start && intAt(end - 1) == -1)) {
+      throw new IndexOutOfBoundsException("start " + start + ", end " + end);
+    }
+    return CharBuffer.wrap(buffer, bufferPosition + start, end - start);
   }
 
   @Override
@@ -19,8 +19,10 @@
  */
 package org.sonar.channel;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.charset.Charset;
 import java.util.regex.Matcher;
 
 /**
@@ -69,6 +71,21 @@ public class CodeReader extends CodeBuffer {
     super(code, configuration);
   }
 
+  /**
+   * Creates a code reader, which reads the whole file at once from a memory-mapped file.
+   * 
+   * @param file
+   *          the file to read code from
+   * @param charset
+   *          the encoding of file
+   * @param configuration
+   *          the configuration parameters, except buffer capacity, which is not used
+   * @since 2.11
+   */
+  public CodeReader(File file, Charset charset, CodeReaderConfiguration configuration) {
+    super(file, charset, configuration);
+  }
+
   /**
    * Read and consume the next character
    * 
@@ -83,6 +100,20 @@ public class CodeReader extends CodeBuffer {
     }
   }
 
+  /**
+   * Read and consume the given number of characters. The position of the first one is available with {@link #getPreviousCursor()}.
+   */
+  final void pop(int length, Appendable appendable) {
+    previousCursor = getCursor().clone();
+    try {
+      for (int i = 0; i < length; i++) {
+        appendable.append((char) pop());
+      }
+    } catch (IOException e) {
+      throw new ChannelException(e.getMessage(), e);
+    }
+  }
+
   /**
    * Read without consuming the next characters
    * 
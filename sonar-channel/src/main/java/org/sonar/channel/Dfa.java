@@ -0,0 +1,758 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.channel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Deterministic finite automaton, which recognizes a set of regular expressions at once. Each regular expression is a rule, and
+ * the automaton reports the longest match and, in case of tie, the first rule.
+ * <p>
+ * Only the subset of {@link java.util.regex.Pattern} syntax, which doesn't require backtracking, is supported: characters and escapes,
+ * character classes (including \s, \d, \w, \p{javaXxx} and their negations), dot, groups, alternation and quantifiers *, +, ?, {n},
+ * {n,} and {n,m}. Possessive quantifiers are accepted and behave as greedy ones. Reluctant quantifiers, anchors, back references,
+ * look-around and flags lead to an {@link IllegalArgumentException}.
+ * </p>
+ * 
+ * @since 2.11
+ */
+final class Dfa {
+
+  private static final int MAX_CHAR = Character.MAX_VALUE;
+  private static final int ASCII_SIZE = 128;
+
+  /**
+   * Lower bounds of the intervals of characters, which are equivalent for all the transitions of automaton.
+   */
+  private final int[] classStarts;
+  private final int[] asciiClasses = new int[ASCII_SIZE];
+  private final int classesCount;
+
+  /**
+   * Transitions, indexed by state * classesCount + class of character. Value -1 means that there is no transition.
+   */
+  private final int[] transitions;
+
+  /**
+   * For each state - index of the rule, which is recognized in this state, or -1.
+   */
+  private final int[] rules;
+
+  private Dfa(int[] classStarts, int[] transitions, int[] rules) {
+    this.classStarts = classStarts;
+    this.classesCount = classStarts.length;
+    this.transitions = transitions;
+    this.rules = rules;
+    for (int c = 0; c < ASCII_SIZE; c++) {
+      asciiClasses[c] = searchClass(c);
+    }
+  }
+
+  /**
+   * @return the state reached from the given one with the given character, or -1
+   */
+  int next(int state, char c) {
+    int characterClass = c < ASCII_SIZE ? asciiClasses[c] : searchClass(c);
+    return transitions[state * classesCount + characterClass];
+  }
+
+  /**
+   * @return the index of the rule recognized in the given state, or -1
+   */
+  int getRule(int state) {
+    return rules[state];
+  }
+
+  int getStatesCount() {
+    return rules.length;
+  }
+
+  private int searchClass(int c) {
+    int low = 0;
+    int high = classStarts.length - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (classStarts[mid] <= c) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Compiles the given regular expressions into a single automaton, where the start state is 0.
+   * 
+   * @throws IllegalArgumentException if one of regular expressions uses an unsupported construct
+   */
+  static Dfa compile(String... regexps) {
+    Nfa nfa = new Nfa();
+    int start = nfa.newState();
+    for (int rule = 0; rule < regexps.length; rule++) {
+      Node node = new Parser(regexps[rule]).parse();
+      int ruleStart = nfa.newState();
+      nfa.epsilon(start, ruleStart);
+      int ruleEnd = node.build(nfa, ruleStart);
+      nfa.rules.set(ruleEnd, rule);
+    }
+    return nfa.toDfa(start);
+  }
+
+  /**
+   * Nondeterministic automaton, built with Thompson's construction.
+   */
+  private static final class Nfa {
+    private final List<List<Integer>> epsilons = new ArrayList<List<Integer>>();
+    private final List<int[]> ranges = new ArrayList<int[]>();
+    private final List<Integer> targets = new ArrayList<Integer>();
+    private final List<Integer> rules = new ArrayList<Integer>();
+
+    int newState() {
+      epsilons.add(new ArrayList<Integer>(2));
+      ranges.add(null);
+      targets.add(-1);
+      rules.add(-1);
+      return epsilons.size() - 1;
+    }
+
+    void epsilon(int from, int to) {
+      epsilons.get(from).add(to);
+    }
+
+    void transition(int from, int[] characters, int to) {
+      ranges.set(from, characters);
+      targets.set(from, to);
+    }
+
+    private void closure(BitSet states) {
+      int[] stack = new int[epsilons.size()];
+      int size = 0;
+      for (int state = states.nextSetBit(0); state >= 0; state = states.nextSetBit(state + 1)) {
+        stack[size++] = state;
+      }
+      while (size > 0) {
+        int state = stack[--size];
+        for (int next : epsilons.get(state)) {
+          if (!states.get(next)) {
+            states.set(next);
+            stack[size++] = next;
+          }
+        }
+      }
+    }
+
+    Dfa toDfa(int start) {
+      int[] classStarts = computeClassStarts();
+
+      List<BitSet> dfaStates = new ArrayList<BitSet>();
+      Map<BitSet, Integer> dfaStateIndexes = new HashMap<BitSet, Integer>();
+      List<int[]> dfaTransitions = new ArrayList<int[]>();
+
+      BitSet initial = new BitSet();
+      initial.set(start);
+      closure(initial);
+      dfaStates.add(initial);
+      dfaStateIndexes.put(initial, 0);
+
+      BitSet[] classesByState = computeClassesByState(classStarts);
+      for (int i = 0; i < dfaStates.size(); i++) {
+        BitSet current = dfaStates.get(i);
+        BitSet[] nextByClass = new BitSet[classStarts.length];
+        for (int state = current.nextSetBit(0); state >= 0; state = current.nextSetBit(state + 1)) {
+          BitSet classes = classesByState[state];
+          if (classes != null) {
+            for (int characterClass = classes.nextSetBit(0); characterClass >= 0; characterClass = classes.nextSetBit(characterClass + 1)) {
+              if (nextByClass[characterClass] == null) {
+                nextByClass[characterClass] = new BitSet();
+              }
+              nextByClass[characterClass].set(targets.get(state));
+            }
+          }
+        }
+        int[] row = new int[classStarts.length];
+        for (int characterClass = 0; characterClass < classStarts.length; characterClass++) {
+          BitSet next = nextByClass[characterClass];
+          if (next == null) {
+            row[characterClass] = -1;
+          } else {
+            closure(next);
+            Integer index = dfaStateIndexes.get(next);
+            if (index == null) {
+              index = dfaStates.size();
+              dfaStates.add(next);
+              dfaStateIndexes.put(next, index);
+            }
+            row[characterClass] = index;
+          }
+        }
+        dfaTransitions.add(row);
+      }
+
+      int[] transitionsTable = new int[dfaStates.size() * classStarts.length];
+      int[] dfaRules = new int[dfaStates.size()];
+      for (int i = 0; i < dfaStates.size(); i++) {
+        System.arraycopy(dfaTransitions.get(i), 0, transitionsTable, i * classStarts.length, classStarts.length);
+        dfaRules[i] = -1;
+        BitSet states = dfaStates.get(i);
+        for (int state = states.nextSetBit(0); state >= 0; state = states.nextSetBit(state + 1)) {
+          int rule = rules.get(state);
+          if (rule >= 0 && (dfaRules[i] < 0 || rule < dfaRules[i])) {
+            dfaRules[i] = rule;
+          }
+        }
+      }
+      return new Dfa(classStarts, transitionsTable, dfaRules);
+    }
+
+    /**
+     * Since class starts include bounds of all intervals, each interval covers a contiguous sequence of classes.
+     */
+    private BitSet[] computeClassesByState(int[] classStarts) {
+      BitSet[] result = new BitSet[ranges.size()];
+      for (int state = 0; state < ranges.size(); state++) {
+        int[] characters = ranges.get(state);
+        if (characters != null) {
+          result[state] = new BitSet(classStarts.length);
+          for (int i = 0; i < characters.length; i += 2) {
+            int from = Arrays.binarySearch(classStarts, characters[i]);
+            int to = characters[i + 1] == MAX_CHAR ? classStarts.length : Arrays.binarySearch(classStarts, characters[i + 1] + 1);
+            result[state].set(from, to);
+          }
+        }
+      }
+      return result;
+    }
+
+    private int[] computeClassStarts() {
+      TreeSet<Integer> starts = new TreeSet<Integer>();
+      starts.add(0);
+      for (int[] characters : ranges) {
+        if (characters != null) {
+          for (int i = 0; i < characters.length; i += 2) {
+            starts.add(characters[i]);
+            if (characters[i + 1] < MAX_CHAR) {
+              starts.add(characters[i + 1] + 1);
+            }
+          }
+        }
+      }
+      int[] result = new int[starts.size()];
+      int i = 0;
+      for (Integer c : starts) {
+        result[i++] = c;
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Sets of characters, represented as sorted arrays of disjoint inclusive intervals [from1, to1, from2, to2, ...].
+   */
+  static final class CharacterRanges {
+
+    private CharacterRanges() {
+    }
+
+    static int[] of(int from, int to) {
+      return new int[] { from, to };
+    }
+
+    static int[] union(int[] first, int[] second) {
+      int[] all = new int[first.length + second.length];
+      System.arraycopy(first, 0, all, 0, first.length);
+      System.arraycopy(second, 0, all, first.length, second.length);
+      int count = all.length / 2;
+      long[] intervals = new long[count];
+      for (int i = 0; i < count; i++) {
+        intervals[i] = ((long) all[2 * i] << 32) | all[2 * i + 1];
+      }
+      Arrays.sort(intervals);
+      int[] result = new int[all.length];
+      int size = 0;
+      for (long interval : intervals) {
+        int from = (int) (interval >>> 32);
+        int to = (int) interval;
+        if (size > 0 && from <= result[size - 1] + 1) {
+          result[size - 1] = Math.max(result[size - 1], to);
+        } else {
+          result[size++] = from;
+          result[size++] = to;
+        }
+      }
+      int[] trimmed = new int[size];
+      System.arraycopy(result, 0, trimmed, 0, size);
+      return trimmed;
+    }
+
+    static int[] complement(int[] ranges) {
+      int[] result = new int[ranges.length + 2];
+      int size = 0;
+      int next = 0;
+      for (int i = 0; i < ranges.length; i += 2) {
+        if (ranges[i] > next) {
+          result[size++] = next;
+          result[size++] = ranges[i] - 1;
+        }
+        next = ranges[i + 1] + 1;
+      }
+      if (next <= MAX_CHAR) {
+        result[size++] = next;
+        result[size++] = MAX_CHAR;
+      }
+      int[] trimmed = new int[size];
+      System.arraycopy(result, 0, trimmed, 0, size);
+      return trimmed;
+    }
+
+    static int[] matching(CharacterPredicate predicate) {
+      List<Integer> bounds = new ArrayList<Integer>();
+      boolean inside = false;
+      for (int c = 0; c <= MAX_CHAR; c++) {
+        boolean matches = predicate.matches((char) c);
+        if (matches != inside) {
+          bounds.add(matches ? c : c - 1);
+          inside = matches;
+        }
+      }
+      if (inside) {
+        bounds.add(MAX_CHAR);
+      }
+      int[] result = new int[bounds.size()];
+      for (int i = 0; i < result.length; i++) {
+        result[i] = bounds.get(i);
+      }
+      return result;
+    }
+  }
+
+  interface CharacterPredicate {
+    boolean matches(char c);
+  }
+
+  /**
+   * Node of the syntax tree of regular expression.
+   */
+  private abstract static class Node {
+    /**
+     * Adds states for this node to the automaton, starting from the given state.
+     * 
+     * @return the end state
+     */
+    abstract int build(Nfa nfa, int from);
+  }
+
+  private static final class CharactersNode extends Node {
+    private final int[] ranges;
+
+    CharactersNode(int[] ranges) {
+      this.ranges = ranges;
+    }
+
+    @Override
+    int build(Nfa nfa, int from) {
+      int to = nfa.newState();
+      nfa.transition(from, ranges, to);
+      return to;
+    }
+  }
+
+  private static final class ConcatenationNode extends Node {
+    private final List<Node> nodes;
+
+    ConcatenationNode(List<Node> nodes) {
+      this.nodes = nodes;
+    }
+
+    @Override
+    int build(Nfa nfa, int from) {
+      int current = from;
+      for (Node node : nodes) {
+        // each state has at most one transition on characters, so a fresh state is used for each part
+        int next = nfa.newState();
+        nfa.epsilon(current, next);
+        current = node.build(nfa, next);
+      }
+      return current;
+    }
+  }
+
+  private static final class AlternationNode extends Node {
+    private final List<Node> alternatives;
+
+    AlternationNode(List<Node> alternatives) {
+      this.alternatives = alternatives;
+    }
+
+    @Override
+    int build(Nfa nfa, int from) {
+      int to = nfa.newState();
+      for (Node alternative : alternatives) {
+        int start = nfa.newState();
+        nfa.epsilon(from, start);
+        nfa.epsilon(alternative.build(nfa, start), to);
+      }
+      return to;
+    }
+  }
+
+  private static final class RepetitionNode extends Node {
+    private final Node node;
+    private final int min;
+    /**
+     * -1 means no upper bound.
+     */
+    private final int max;
+
+    RepetitionNode(Node node, int min, int max) {
+      this.node = node;
+      this.min = min;
+      this.max = max;
+    }
+
+    @Override
+    int build(Nfa nfa, int from) {
+      int current = from;
+      for (int i = 0; i < min; i++) {
+        int start = nfa.newState();
+        nfa.epsilon(current, start);
+        current = node.build(nfa, start);
+      }
+      int to = nfa.newState();
+      nfa.epsilon(current, to);
+      if (max < 0) {
+        int start = nfa.newState();
+        nfa.epsilon(current, start);
+        int end = node.build(nfa, start);
+        nfa.epsilon(end, start);
+        nfa.epsilon(end, to);
+      } else {
+        for (int i = min; i < max; i++) {
+          int start = nfa.newState();
+          nfa.epsilon(current, start);
+          current = node.build(nfa, start);
+          nfa.epsilon(current, to);
+        }
+      }
+      return to;
+    }
+  }
+
+  /**
+   * Recursive descent parser of regular expressions.
+   */
+  private static final class Parser {
+    private static final int[] DIGITS = CharacterRanges.of('0', '9');
+    private static final int[] SPACES = CharacterRanges.union(CharacterRanges.of('\t', '\r'), CharacterRanges.of(' ', ' '));
+    private static final int[] WORD = CharacterRanges.union(CharacterRanges.union(CharacterRanges.of('a', 'z'), CharacterRanges.of('A', 'Z')),
+        CharacterRanges.union(DIGITS, CharacterRanges.of('_', '_')));
+    private static final int[] ANY_BUT_LINE_TERMINATORS = CharacterRanges.complement(CharacterRanges.union(
+        CharacterRanges.union(CharacterRanges.of('\n', '\n'), CharacterRanges.of('\r', '\r')),
+        CharacterRanges.union(CharacterRanges.of('\u0085', '\u0085'), CharacterRanges.of('\u2028', '\u2029'))));
+
+    private final String regex;
+    private int position = 0;
+
+    Parser(String regex) {
+      this.regex = regex;
+    }
+
+    Node parse() {
+      Node node = parseAlternation();
+      if (position < regex.length()) {
+        throw error("Unexpected character '" + regex.charAt(position) + "'");
+      }
+      return node;
+    }
+
+    private Node parseAlternation() {
+      List<Node> alternatives = new ArrayList<Node>();
+      alternatives.add(parseConcatenation());
+      while (position < regex.length() && regex.charAt(position) == '|') {
+        position++;
+        alternatives.add(parseConcatenation());
+      }
+      return alternatives.size() == 1 ? alternatives.get(0) : new AlternationNode(alternatives);
+    }
+
+    private Node parseConcatenation() {
+      List<Node> nodes = new ArrayList<Node>();
+      while (position < regex.length() && regex.charAt(position) != '|' && regex.charAt(position) != ')') {
+        nodes.add(parseRepetition());
+      }
+      return nodes.size() == 1 ? nodes.get(0) : new ConcatenationNode(nodes);
+    }
+
+    private Node parseRepetition() {
+      Node node = parseAtom();
+      while (position < regex.length()) {
+        char c = regex.charAt(position);
+        int min;
+        int max;
+        if (c == '*') {
+          min = 0;
+          max = -1;
+        } else if (c == '+') {
+          min = 1;
+          max = -1;
+        } else if (c == '?') {
+          min = 0;
+          max = 1;
+        } else if (c == '{') {
+          int end = regex.indexOf('}', position);
+          if (end < 0) {
+            throw error("Unclosed repetition");
+          }
+          String[] bounds = regex.substring(position + 1, end).split(",", -1);
+          try {
+            min = Integer.parseInt(bounds[0]);
+            max = bounds.length == 1 ? min : ("".equals(bounds[1]) ? -1 : Integer.parseInt(bounds[1]));
+          } catch (NumberFormatException e) {
+            throw error("Illegal repetition");
+          }
+          position = end;
+        } else {
+          break;
+        }
+        position++;
+        if (position < regex.length() && regex.charAt(position) == '?') {
+          throw error("Reluctant quantifiers are not supported");
+        }
+        if (position < regex.length() && regex.charAt(position) == '+') {
+          // possessive quantifier: without backtracking same as greedy one
+          position++;
+        }
+        node = new RepetitionNode(node, min, max);
+      }
+      return node;
+    }
+
+    private Node parseAtom() {
+      char c = regex.charAt(position++);
+      switch (c) {
+        case '(':
+          if (regex.startsWith("?:", position)) {
+            position += 2;
+          } else if (position < regex.length() && regex.charAt(position) == '?') {
+            throw error("Only non-capturing groups are supported");
+          }
+          Node node = parseAlternation();
+          if (position >= regex.length() || regex.charAt(position) != ')') {
+            throw error("Unclosed group");
+          }
+          position++;
+          return node;
+        case '[':
+          return new CharactersNode(parseClass());
+        case '.':
+          return new CharactersNode(ANY_BUT_LINE_TERMINATORS);
+        case '\\':
+          return new CharactersNode(parseEscape());
+        case '^':
+        case '$':
+          throw error("Anchors are not supported");
+        case '*':
+        case '+':
+        case '?':
+        case '{':
+          throw error("Dangling meta character '" + c + "'");
+        default:
+          return new CharactersNode(CharacterRanges.of(c, c));
+      }
+    }
+
+    private int[] parseClass() {
+      boolean negated = false;
+      if (position < regex.length() && regex.charAt(position) == '^') {
+        negated = true;
+        position++;
+      }
+      int[] result = new int[0];
+      boolean first = true;
+      while (true) {
+        if (position >= regex.length()) {
+          throw error("Unclosed character class");
+        }
+        char c = regex.charAt(position);
+        if (c == ']' && !first) {
+          position++;
+          break;
+        }
+        first = false;
+        if (c == '[') {
+          position++;
+          result = CharacterRanges.union(result, parseClass());
+          continue;
+        }
+        if (c == '&' && regex.startsWith("&&", position)) {
+          throw error("Intersection of character classes is not supported");
+        }
+        int[] item;
+        position++;
+        if (c == '\\') {
+          item = parseEscape();
+        } else {
+          item = CharacterRanges.of(c, c);
+        }
+        boolean singleCharacter = item.length == 2 && item[0] == item[1];
+        if (singleCharacter && position + 1 < regex.length() && regex.charAt(position) == '-' && regex.charAt(position + 1) != ']') {
+          position++;
+          char to = regex.charAt(position++);
+          int[] toItem = to == '\\' ? parseEscape() : CharacterRanges.of(to, to);
+          if (toItem.length != 2 || toItem[0] != toItem[1] || toItem[0] < item[0]) {
+            throw error("Illegal character range");
+          }
+          item = CharacterRanges.of(item[0], toItem[0]);
+        }
+        result = CharacterRanges.union(result, item);
+      }
+      return negated ? CharacterRanges.complement(result) : result;
+    }
+
+    private int[] parseEscape() {
+      if (position >= regex.length()) {
+        throw error("Unexpected end of regular expression");
+      }
+      char c = regex.charAt(position++);
+      switch (c) {
+        case 'd':
+          return DIGITS;
+        case 'D':
+          return CharacterRanges.complement(DIGITS);
+        case 's':
+          return SPACES;
+        case 'S':
+          return CharacterRanges.complement(SPACES);
+        case 'w':
+          return WORD;
+        case 'W':
+          return CharacterRanges.complement(WORD);
+        case 'p':
+          return parseProperty();
+        case 'P':
+          return CharacterRanges.complement(parseProperty());
+        case 't':
+          return CharacterRanges.of('\t', '\t');
+        case 'n':
+          return CharacterRanges.of('\n', '\n');
+        case 'r':
+          return CharacterRanges.of('\r', '\r');
+        case 'f':
+          return CharacterRanges.of('\f', '\f');
+        case 'a':
+          return CharacterRanges.of('\u0007', '\u0007');
+        case 'e':
+          return CharacterRanges.of('\u001B', '\u001B');
+        case 'x':
+          return parseHexadecimal(2);
+        case 'u':
+          return parseHexadecimal(4);
+        default:
+          if (Character.isLetterOrDigit(c)) {
+            throw error("Escape sequence \\" + c + " is not supported");
+          }
+          return CharacterRanges.of(c, c);
+      }
+    }
+
+    private int[] parseHexadecimal(int length) {
+      if (position + length > regex.length()) {
+        throw error("Illegal hexadecimal escape sequence");
+      }
+      try {
+        int c = Integer.parseInt(regex.substring(position, position + length), 16);
+        position += length;
+        return CharacterRanges.of(c, c);
+      } catch (NumberFormatException e) {
+        throw error("Illegal hexadecimal escape sequence");
+      }
+    }
+
+    private int[] parseProperty() {
+      int end = regex.indexOf('}', position);
+      if (!regex.startsWith("{", position) || end < 0) {
+        throw error("Illegal character property");
+      }
+      String name = regex.substring(position + 1, end);
+      position = end + 1;
+      CharacterPredicate predicate = JAVA_PROPERTIES.get(name);
+      if (predicate == null) {
+        throw error("Character property " + name + " is not supported");
+      }
+      return CharacterRanges.matching(predicate);
+    }
+
+    private IllegalArgumentException error(String message) {
+      return new IllegalArgumentException(message + " near index " + position + " of regular expression " + regex);
+    }
+  }
+
+  private static final Map<String, CharacterPredicate> JAVA_PROPERTIES = new HashMap<String, CharacterPredicate>();
+
+  static {
+    JAVA_PROPERTIES.put("javaJavaIdentifierStart", new CharacterPredicate() {
+      public boolean matches(char c) {
+        return Character.isJavaIdentifierStart(c);
+      }
+    });
+    JAVA_PROPERTIES.put("javaJavaIdentifierPart", new CharacterPredicate() {
+      public boolean matches(char c) {
+        return Character.isJavaIdentifierPart(c);
+      }
+    });
+    JAVA_PROPERTIES.put("javaLetter", new CharacterPredicate() {
+      public boolean matches(char c) {
+        return Character.isLetter(c);
+      }
+    });
+    JAVA_PROPERTIES.put("javaDigit", new CharacterPredicate() {
+      public boolean matches(char c) {
+        return Character.isDigit(c);
+      }
+    });
+    JAVA_PROPERTIES.put("javaLetterOrDigit", new CharacterPredicate() {
+      public boolean matches(char c) {
+        return Character.isLetterOrDigit(c);
+      }
+    });
+    JAVA_PROPERTIES.put("javaWhitespace", new CharacterPredicate() {
+      public boolean matches(char c) {
+        return Character.isWhitespace(c);
+      }
+    });
+    JAVA_PROPERTIES.put("javaLowerCase", new CharacterPredicate() {
+      public boolean matches(char c) {
+        return Character.isLowerCase(c);
+      }
+    });
+    JAVA_PROPERTIES.put("javaUpperCase", new CharacterPredicate() {
+      public boolean matches(char c) {
+        return Character.isUpperCase(c);
+      }
+    });
+  }
+
+}
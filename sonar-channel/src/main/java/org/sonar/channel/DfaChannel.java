@@ -0,0 +1,118 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.channel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replacement for a {@link ChannelDispatcher} of {@link RegexChannel}s: regular expressions of all rules (see {@link RegexRule}) are
+ * compiled into a single deterministic automaton, so each character is read only once whatever the number of rules, instead of running
+ * one {@link java.util.regex.Matcher} per channel.
+ * <p>
+ * Note that the rule, which consumes the longest sequence of characters, is chosen, and in case of tie the first one - whereas
+ * {@link ChannelDispatcher} chooses the first channel, which is able to consume characters. Regular expressions are restricted to
+ * constructs, which don't require backtracking (no reluctant quantifiers, anchors, back references or look-around).
+ * </p>
+ * 
+ * @since 2.11
+ */
+public final class DfaChannel<OUTPUT> extends Channel<OUTPUT> {
+
+  private final StringBuilder tmpBuilder = new StringBuilder();
+
+  @SuppressWarnings("rawtypes")
+  private final RegexRule[] rules;
+  private final Dfa dfa;
+
+  private DfaChannel(Builder builder) {
+    this.rules = builder.rules.toArray(new RegexRule[builder.rules.size()]);
+    String[] regexps = new String[rules.length];
+    for (int i = 0; i < rules.length; i++) {
+      regexps[i] = rules[i].getRegex();
+    }
+    this.dfa = Dfa.compile(regexps);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public boolean consume(CodeReader code, OUTPUT output) {
+    int rule = -1;
+    int length = 0;
+    int state = 0;
+    for (int i = 0; state >= 0; i++) {
+      int c = code.intAt(i);
+      if (c == -1) {
+        break;
+      }
+      state = dfa.next(state, (char) c);
+      if (state >= 0 && dfa.getRule(state) >= 0) {
+        rule = dfa.getRule(state);
+        length = i + 1;
+      }
+    }
+    if (rule < 0) {
+      return false;
+    }
+    code.pop(length, tmpBuilder);
+    rules[rule].consume(code, tmpBuilder, output);
+    tmpBuilder.delete(0, tmpBuilder.length());
+    return true;
+  }
+
+  /**
+   * Get a Builder instance to build a new DfaChannel
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static final class Builder {
+
+    @SuppressWarnings("rawtypes")
+    private List<RegexRule> rules = new ArrayList<RegexRule>();
+
+    private Builder() {
+    }
+
+    @SuppressWarnings("rawtypes")
+    public Builder addRule(RegexRule rule) {
+      rules.add(rule);
+      return this;
+    }
+
+    @SuppressWarnings("rawtypes")
+    public Builder addRules(RegexRule... r) {
+      for (RegexRule rule : r) {
+        addRule(rule);
+      }
+      return this;
+    }
+
+    /**
+     * @throws IllegalArgumentException if regular expression of one of rules uses an unsupported construct
+     */
+    public <OUTPUT> DfaChannel<OUTPUT> build() {
+      return new DfaChannel<OUTPUT>(this);
+    }
+
+  }
+
+}
@@ -25,7 +25,7 @@ import java.util.regex.Pattern;
 /**
  * The RegexChannel can be used to be called each time the next characters in the character stream match a regular expression
  */
-public abstract class RegexChannel<OUTPUT> extends Channel<OUTPUT> {
+public abstract class RegexChannel<OUTPUT> extends Channel<OUTPUT> implements RegexRule<OUTPUT> {
 
   private final StringBuilder tmpBuilder = new StringBuilder();
   private final Matcher matcher;
@@ -71,4 +71,20 @@ public abstract class RegexChannel<OUTPUT> extends Channel<OUTPUT> {
    *          OUPUT object which can be optionally fed
    */
   protected abstract void consume(CharSequence token, OUTPUT output);
+
+  /**
+   * Delegates to {@link #consume(CharSequence, Object)}, so that the channel can be compiled with other ones by a {@link DfaChannel}.
+   * 
+   * @since 2.11
+   */
+  public void consume(CodeReader code, CharSequence token, OUTPUT output) {
+    consume(token, output);
+  }
+
+  /**
+   * @since 2.11
+   */
+  public String getRegex() {
+    return regex;
+  }
 }
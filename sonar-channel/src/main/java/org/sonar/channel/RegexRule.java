@@ -0,0 +1,48 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.channel;
+
+/**
+ * A regular expression and the action executed each time it matches the next characters in the character stream. Rules are compiled into
+ * a single automaton by {@link DfaChannel}.
+ * 
+ * @since 2.11
+ */
+public interface RegexRule<OUTPUT> {
+
+  /**
+   * Regular expression of this rule, see {@link DfaChannel} for the supported constructs.
+   */
+  String getRegex();
+
+  /**
+   * Called each time the regular expression of this rule matches the next characters in the character stream, once they have been
+   * consumed. The position of the token is available with {@link CodeReader#getPreviousCursor()}.
+   * 
+   * @param code
+   *          the character stream
+   * @param token
+   *          the token consumed in the character stream and matching the regular expression
+   * @param output
+   *          the OUTPUT object which can be optionally fed
+   */
+  void consume(CodeReader code, CharSequence token, OUTPUT output);
+
+}
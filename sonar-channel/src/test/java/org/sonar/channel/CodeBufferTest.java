@@ -23,15 +23,23 @@ import static junit.framework.Assert.assertEquals;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.util.regex.Pattern;
 
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class CodeBufferTest {
 
   private CodeReaderConfiguration defaulConfiguration = new CodeReaderConfiguration();
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   @Test
   public void testPop() {
     CodeBuffer code = new CodeBuffer("pa", defaulConfiguration);
@@ -217,6 +225,73 @@ public class CodeBufferTest {
     assertThat(new CodeBuffer(myCode, conf).length(), is(Integer.MAX_VALUE));
   }
 
+  @Test
+  public void shouldReadWholeFile() throws Exception {
+    CodeReaderConfiguration conf = new CodeReaderConfiguration();
+    conf.setBufferCapacity(2);
+    CodeBuffer code = new CodeBuffer(newFile("p\u00e9\r\nb", "UTF-8"), Charset.forName("UTF-8"), conf);
+    assertThat(code.length(), is(5));
+    assertThat(code.charAt(4), is('b'));
+    assertThat((char) code.pop(), is('p'));
+    assertThat((char) code.pop(), is('\u00e9'));
+    assertThat((char) code.pop(), is('\r'));
+    assertThat((char) code.pop(), is('\n'));
+    assertThat(code.getLinePosition(), is(2));
+    assertThat(code.length(), is(1));
+    assertThat((char) code.pop(), is('b'));
+    assertThat(code.peek(), is(-1));
+    assertThat(code.pop(), is(-1));
+    assertThat(code.length(), is(0));
+  }
+
+  @Test
+  public void shouldMapBigFile() throws Exception {
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < CodeBuffer.MAPPING_THRESHOLD; i++) {
+      content.append('a');
+    }
+    content.append("\nb");
+    CodeBuffer code = new CodeBuffer(newFile(content.toString(), "UTF-8"), Charset.forName("UTF-8"), defaulConfiguration);
+    assertThat(code.length(), is(content.length()));
+    assertThat(code.charAt(content.length() - 1), is('b'));
+  }
+
+  @Test
+  public void shouldApplyCodeReaderFilterToWholeFile() throws Exception {
+    CodeReaderConfiguration configuration = new CodeReaderConfiguration();
+    configuration.setCodeReaderFilters(new ReplaceNumbersFilter());
+    CodeBuffer code = new CodeBuffer(newFile("ab12", "ISO-8859-1"), Charset.forName("ISO-8859-1"), configuration);
+    assertThat((char) code.pop(), is('a'));
+    assertThat((char) code.pop(), is('b'));
+    assertThat((char) code.pop(), is('-'));
+    assertThat((char) code.pop(), is('-'));
+    assertThat(code.pop(), is(-1));
+  }
+
+  @Test
+  public void shouldReturnSubSequenceWithoutConsuming() throws Exception {
+    CodeBuffer code = new CodeBuffer(newFile("package org", "UTF-8"), Charset.forName("UTF-8"), defaulConfiguration);
+    code.pop();
+    assertThat(code.subSequence(0, 6).toString(), is("ackage"));
+    assertThat(code.subSequence(7, 10).toString(), is("org"));
+    assertThat(code.subSequence(3, 3).length(), is(0));
+    assertThat((char) code.peek(), is('a'));
+
+    CodeBuffer streamed = new CodeBuffer("package org", defaulConfiguration);
+    assertThat(streamed.subSequence(8, 11).toString(), is("org"));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void shouldNotReturnSubSequenceAfterEnd() {
+    new CodeBuffer("abc", defaulConfiguration).subSequence(1, 4);
+  }
+
+  private File newFile(String content, String encoding) throws IOException {
+    File file = temporaryFolder.newFile("code.txt");
+    FileUtils.writeStringToFile(file, content, encoding);
+    return file;
+  }
+
   @Test
   public void testSeveralCodeReaderFilter() throws Exception {
     CodeReaderConfiguration configuration = new CodeReaderConfiguration();
@@ -0,0 +1,143 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.channel;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class DfaChannelTest {
+
+  @Test
+  public void shouldMatch() {
+    DfaChannel<StringBuilder> channel = DfaChannel.builder().addRule(new TagChannel("w", "\\w++")).build();
+    ChannelDispatcher<StringBuilder> dispatcher = ChannelDispatcher.builder().addChannel(channel).addChannel(new BlackholeChannel()).build();
+    StringBuilder output = new StringBuilder();
+    dispatcher.consume(new CodeReader("my word"), output);
+    assertThat(output.toString(), is("<w>my</w> <w>word</w>"));
+  }
+
+  @Test
+  public void shouldChooseLongestMatch() {
+    DfaChannel<StringBuilder> channel = DfaChannel.builder()
+        .addRule(new TagChannel("eq", "="))
+        .addRule(new TagChannel("op", "==|=>"))
+        .build();
+    assertThat(consumeAll(channel, "===>"), is("<op>==</op><op>=></op>"));
+    assertThat(consumeAll(channel, "="), is("<eq>=</eq>"));
+  }
+
+  @Test
+  public void shouldChooseFirstChannelInCaseOfTie() {
+    DfaChannel<StringBuilder> channel = DfaChannel.builder()
+        .addRule(new TagChannel("k", "if|else"))
+        .addRule(new TagChannel("id", "[a-z]++"))
+        .build();
+    assertThat(consumeAll(channel, "if"), is("<k>if</k>"));
+    assertThat(consumeAll(channel, "iff"), is("<id>iff</id>"));
+    assertThat(consumeAll(channel, "i"), is("<id>i</id>"));
+  }
+
+  @Test
+  public void shouldNotConsumeWhenNoMatch() {
+    DfaChannel<StringBuilder> channel = DfaChannel.builder().addRule(new TagChannel("d", "[0-9]+")).build();
+    CodeReader code = new CodeReader("a1");
+    StringBuilder output = new StringBuilder();
+    assertThat(channel.consume(code, output), is(false));
+    assertThat(code.peek(), is((int) 'a'));
+    assertThat(output.toString(), is(""));
+  }
+
+  @Test
+  public void shouldUpdatePreviousCursor() {
+    DfaChannel<StringBuilder> channel = DfaChannel.builder().addRule(new TagChannel("s", "\\s+")).addRule(new TagChannel("w", "\\w+")).build();
+    CodeReader code = new CodeReader("a\n  b");
+    StringBuilder output = new StringBuilder();
+    channel.consume(code, output);
+    channel.consume(code, output);
+    channel.consume(code, output);
+    assertThat(code.getPreviousCursor().getLine(), is(2));
+    assertThat(code.getPreviousCursor().getColumn(), is(2));
+  }
+
+  @Test
+  public void shouldGivePositionOfTokenToRule() {
+    DfaChannel<StringBuilder> channel = DfaChannel.builder().addRule(new TagChannel("s", "\\s+")).addRule(new PositionRule("\\w+")).build();
+    assertThat(consumeAll(channel, "a\n  b"), is("a@1:0<s>\n  </s>b@2:2"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldFailOnUnsupportedRegularExpression() {
+    DfaChannel.builder().addRule(new TagChannel("c", "/\\*[\\s\\S]*?\\*/")).build();
+  }
+
+  private static String consumeAll(DfaChannel<StringBuilder> channel, String code) {
+    CodeReader reader = new CodeReader(code);
+    StringBuilder output = new StringBuilder();
+    boolean consumed = true;
+    while (consumed && reader.peek() != -1) {
+      consumed = channel.consume(reader, output);
+    }
+    return output.toString();
+  }
+
+  private static class TagChannel extends RegexChannel<StringBuilder> {
+
+    private final String tag;
+
+    public TagChannel(String tag, String regex) {
+      super(regex);
+      this.tag = tag;
+    }
+
+    @Override
+    protected void consume(CharSequence token, StringBuilder output) {
+      output.append("<" + tag + ">" + token + "</" + tag + ">");
+    }
+  }
+
+  private static class PositionRule implements RegexRule<StringBuilder> {
+
+    private final String regex;
+
+    public PositionRule(String regex) {
+      this.regex = regex;
+    }
+
+    public String getRegex() {
+      return regex;
+    }
+
+    public void consume(CodeReader code, CharSequence token, StringBuilder output) {
+      output.append(token + "@" + code.getPreviousCursor().getLine() + ":" + code.getPreviousCursor().getColumn());
+    }
+  }
+
+  private static class BlackholeChannel extends Channel<StringBuilder> {
+
+    @Override
+    public boolean consume(CodeReader code, StringBuilder output) {
+      output.append((char) code.pop());
+      return true;
+    }
+  }
+
+}
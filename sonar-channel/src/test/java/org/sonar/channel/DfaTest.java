@@ -0,0 +1,126 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.channel;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class DfaTest {
+
+  private static final String[] REGEXPS = {
+    "a*b",
+    "(ab|a)*c?",
+    "[a-c]{2,3}",
+    "[^a]+",
+    "a{2}|b{1,}",
+    "(?:a|b)c",
+    "[a-]x",
+    "[\\[\\]]+",
+    "//[^\\n\\r]*+",
+    "/\\*([^*]|\\*+[^*/])*\\*+/",
+    "\"([^\"\\\\]|\\\\[\\s\\S])*\"",
+    "\\p{javaJavaIdentifierStart}\\p{javaJavaIdentifierPart}*",
+    "[0-9_]+\\.([0-9_]+)?([Ee][+-]?[0-9_]+)?[fFdD]?",
+    "." };
+
+  private static final String ALPHABET = "abc/*\"\\\n .0123_eE+-fx[]\u00e9\u2028";
+
+  /**
+   * Length of longest match of automaton must be the length of longest prefix, which matches {@link Pattern}.
+   */
+  @Test
+  public void shouldFindLongestMatchLikePattern() {
+    Random random = new Random(1);
+    for (String regexp : REGEXPS) {
+      Dfa dfa = Dfa.compile(regexp);
+      Pattern pattern = Pattern.compile(regexp);
+      for (int test = 0; test < 1000; test++) {
+        StringBuilder input = new StringBuilder();
+        int length = random.nextInt(10);
+        for (int i = 0; i < length; i++) {
+          input.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        assertThat(regexp + " on " + input, longestMatch(dfa, input), is(longestMatch(pattern, input)));
+      }
+    }
+  }
+
+  @Test
+  public void shouldReportFirstRuleInCaseOfTie() {
+    Dfa dfa = Dfa.compile("if", "[a-z]+", "i");
+    int state = dfa.next(0, 'i');
+    assertThat(dfa.getRule(state), is(1));
+    state = dfa.next(state, 'f');
+    assertThat(dfa.getRule(state), is(0));
+    assertThat(dfa.next(0, '0'), is(-1));
+  }
+
+  @Test
+  public void shouldTreatPossessiveQuantifiersAsGreedy() {
+    assertThat(longestMatch(Dfa.compile("[0-9]++"), "123a"), is(3));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldNotSupportReluctantQuantifiers() {
+    Dfa.compile("a*?");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldNotSupportAnchors() {
+    Dfa.compile("^a");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldNotSupportLookAround() {
+    Dfa.compile("a(?=b)");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldFailOnUnclosedGroup() {
+    Dfa.compile("(a");
+  }
+
+  private static int longestMatch(Dfa dfa, CharSequence input) {
+    int result = 0;
+    int state = 0;
+    for (int i = 0; i < input.length() && state >= 0; i++) {
+      state = dfa.next(state, input.charAt(i));
+      if (state >= 0 && dfa.getRule(state) >= 0) {
+        result = i + 1;
+      }
+    }
+    return result;
+  }
+
+  private static int longestMatch(Pattern pattern, CharSequence input) {
+    for (int length = input.length(); length > 0; length--) {
+      if (pattern.matcher(input.subSequence(0, length)).matches()) {
+        return length;
+      }
+    }
+    return 0;
+  }
+
+}
@@ -38,7 +38,7 @@ public final class CacheRuleFinder extends DefaultRuleFinder {
   }
 
   @Override
-  public Rule findById(int ruleId) {
+  public synchronized Rule findById(int ruleId) {
     Rule rule = rulesById.get(ruleId);
     if (rule==null) {
       rule = doFindById(ruleId);
@@ -48,7 +48,7 @@ public final class CacheRuleFinder extends DefaultRuleFinder {
   }
 
   @Override
-  public Rule findByKey(String repositoryKey, String ruleKey) {
+  public synchronized Rule findByKey(String repositoryKey, String ruleKey) {
     Map<String,Rule> repository = loadRepository(repositoryKey);
     return repository.get(ruleKey);
   }
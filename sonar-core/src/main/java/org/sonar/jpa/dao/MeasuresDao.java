@@ -108,7 +108,7 @@ public class MeasuresDao extends BaseDao {
     }
   }
 
-  private Map<String, Metric> getMetricsByName() {
+  private synchronized Map<String, Metric> getMetricsByName() {
     if (metricsByName.isEmpty()) {
       List<Metric> metrics = getSession().getResults(Metric.class);
       for (Metric metric : metrics) {
@@ -55,12 +55,29 @@ public class BlockChunker {
     this.power = pow;
   }
 
-  public List<Block> chunk(String resourceId, List<Statement> statements) {
+  public List<Block> chunk(final String resourceId, List<Statement> statements) {
     if (statements.size() < blockSize) {
       return Collections.emptyList();
     }
+    final List<Block> blocks = Lists.newArrayListWithCapacity(statements.size() - blockSize + 1);
+    chunk(statements, new BlockHandler() {
+      public void handleBlock(long hash, int indexInFile, int firstLineNumber, int lastLineNumber) {
+        blocks.add(new Block(resourceId, new ByteArray(hash), indexInFile, firstLineNumber, lastLineNumber));
+      }
+    });
+    return blocks;
+  }
+
+  /**
+   * Same as {@link #chunk(String, List)}, but blocks are given to the handler as primitive values.
+   *
+   * @since 2.11
+   */
+  public void chunk(List<Statement> statements, BlockHandler handler) {
+    if (statements.size() < blockSize) {
+      return;
+    }
     Statement[] statementsArr = statements.toArray(new Statement[statements.size()]);
-    List<Block> blocks = Lists.newArrayListWithCapacity(statementsArr.length - blockSize + 1);
     long hash = 0;
     int first = 0;
     int last = 0;
@@ -73,11 +90,10 @@ public class BlockChunker {
       // add last statement to hash
       hash = hash * PRIME_BASE + lastStatement.getValue().hashCode();
       // create block
-      blocks.add(new Block(resourceId, new ByteArray(hash), first, firstStatement.getStartLine(), lastStatement.getEndLine()));
+      handler.handleBlock(hash, first, firstStatement.getStartLine(), lastStatement.getEndLine());
       // remove first statement from hash
       hash -= power * firstStatement.getValue().hashCode();
     }
-    return blocks;
   }
 
   public int getBlockSize() {
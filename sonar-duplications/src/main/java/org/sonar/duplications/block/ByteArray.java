@@ -20,7 +20,6 @@
 package org.sonar.duplications.block;
 
 import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
 import java.util.Arrays;
 
 /**
@@ -81,12 +80,11 @@ public final class ByteArray {
 
   public int[] toIntArray() {
     int size = (bytes.length / 4) + (bytes.length % 4 == 0 ? 0 : 1); // Pad the size to multiple of 4
-    ByteBuffer bb = ByteBuffer.allocate(size * 4);
-    bb.put(bytes);
-    bb.rewind();
-    IntBuffer ib = bb.asIntBuffer();
     int[] result = new int[size];
-    ib.get(result);
+    for (int i = 0; i < bytes.length; i++) {
+      // big-endian, as ByteBuffer
+      result[i >> 2] |= (bytes[i] & 0xff) << (24 - ((i & 3) << 3));
+    }
     return result;
   }
 
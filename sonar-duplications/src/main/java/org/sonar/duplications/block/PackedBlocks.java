@@ -0,0 +1,95 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.duplications.block;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Blocks of a file stored in flat arrays, see {@link BlockHandler}. Not thread-safe.
+ *
+ * @since 2.11
+ */
+public final class PackedBlocks implements BlockHandler {
+
+  private static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+  private long[] hashes;
+  private int[] data;
+  private int size = 0;
+
+  public PackedBlocks() {
+    this(DEFAULT_INITIAL_CAPACITY);
+  }
+
+  public PackedBlocks(int initialCapacity) {
+    int capacity = Math.max(1, initialCapacity);
+    hashes = new long[capacity];
+    data = new int[capacity * 3];
+  }
+
+  public void handleBlock(long hash, int indexInFile, int firstLineNumber, int lastLineNumber) {
+    if (size == hashes.length) {
+      int newCapacity = (hashes.length * 3) / 2 + 1;
+      long[] oldHashes = hashes;
+      hashes = new long[newCapacity];
+      System.arraycopy(oldHashes, 0, hashes, 0, size);
+      int[] oldData = data;
+      data = new int[newCapacity * 3];
+      System.arraycopy(oldData, 0, data, 0, size * 3);
+    }
+    hashes[size] = hash;
+    int offset = size * 3;
+    data[offset] = indexInFile;
+    data[offset + 1] = firstLineNumber;
+    data[offset + 2] = lastLineNumber;
+    size++;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public long getHash(int i) {
+    return hashes[i];
+  }
+
+  public int getIndexInFile(int i) {
+    return data[i * 3];
+  }
+
+  public int getFirstLineNumber(int i) {
+    return data[i * 3 + 1];
+  }
+
+  public int getLastLineNumber(int i) {
+    return data[i * 3 + 2];
+  }
+
+  public List<Block> toBlocks(String resourceId) {
+    List<Block> blocks = Lists.newArrayListWithCapacity(size);
+    for (int i = 0; i < size; i++) {
+      blocks.add(new Block(resourceId, new ByteArray(getHash(i)), getIndexInFile(i), getFirstLineNumber(i), getLastLineNumber(i)));
+    }
+    return blocks;
+  }
+
+}
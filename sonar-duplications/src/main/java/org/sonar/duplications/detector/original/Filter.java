@@ -42,7 +42,7 @@ import com.google.common.collect.Lists;
  * but we did not had an implementation with remove operation for the moment of testing.
  * </p>
  */
-final class Filter {
+public final class Filter {
 
   /**
    * Note that LinkedList should provide better performance here, because of use of operation remove.
@@ -0,0 +1,259 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.duplications.detector.suffix;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.detector.original.Filter;
+import org.sonar.duplications.detector.original.OriginalCloneDetectionAlgorithm;
+import org.sonar.duplications.index.CloneGroup;
+import org.sonar.duplications.index.CloneIndex;
+import org.sonar.duplications.index.ClonePart;
+import org.sonar.duplications.utils.FastStringComparator;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Alternative to {@link OriginalCloneDetectionAlgorithm}, which reports exactly the same clone groups.
+ * <p>
+ * Original algorithm intersects groups of blocks for each position in file and for each length of clone starting at this position,
+ * so its running time grows with the square of the length of clones, which is a problem for generated code.
+ * Here, for each position in file and for each block with the same hash, we compute the length of the longest common prefix
+ * of the sequence of hashes starting at this position and the sequence starting at this block.
+ * Those lengths are computed in a single pass from the end of file to its beginning, because common prefix at position i
+ * is one block longer than common prefix at position i + 1 of the next block from same resource.
+ * All clones, which start at a given position, can be deduced from those lengths.
+ * </p>
+ *
+ * @since 2.11
+ */
+public final class SuffixCloneDetectionAlgorithm {
+
+  /**
+   * Performs detection and returns list of clone groups between file (which represented as a collection of blocks) and index.
+   * Note that this method ignores blocks for this file, that will be retrieved from index.
+   */
+  public static List<CloneGroup> detect(CloneIndex cloneIndex, Collection<Block> fileBlocks) {
+    if (fileBlocks.isEmpty()) {
+      return Collections.emptyList();
+    }
+    SuffixCloneDetectionAlgorithm reporter = new SuffixCloneDetectionAlgorithm(cloneIndex, fileBlocks.iterator().next().getResourceId());
+    reporter.findClones(fileBlocks);
+    return reporter.filter.getResult();
+  }
+
+  private final CloneIndex cloneIndex;
+
+  private final String originResourceId;
+
+  private final Filter filter = new Filter();
+
+  /**
+   * For each position in file - blocks with same hash as block at this position, sorted by resource id and index in file.
+   */
+  private Block[][] groups;
+
+  /**
+   * For each position in file and for each block from corresponding group - length of common prefix.
+   */
+  private int[][] lengths;
+
+  private SuffixCloneDetectionAlgorithm(CloneIndex cloneIndex, String originResourceId) {
+    this.cloneIndex = cloneIndex;
+    this.originResourceId = originResourceId;
+  }
+
+  private void findClones(Collection<Block> fileBlocks) {
+    createGroups(fileBlocks);
+    computeLengths();
+    for (int position = 0; position < groups.length; position++) {
+      reportClonesStartingAt(position);
+    }
+  }
+
+  private void createGroups(Collection<Block> fileBlocks) {
+    Map<ByteArray, List<Block>> blocksByHash = Maps.newHashMap();
+    for (Block fileBlock : fileBlocks) {
+      ByteArray hash = fileBlock.getBlockHash();
+      List<Block> sameHash = blocksByHash.get(hash);
+      if (sameHash == null) {
+        sameHash = Lists.newArrayList();
+        blocksByHash.put(hash, sameHash);
+      }
+      sameHash.add(fileBlock);
+    }
+
+    Map<ByteArray, Block[]> groupsByHash = Maps.newHashMap();
+    for (Map.Entry<ByteArray, List<Block>> entry : blocksByHash.entrySet()) {
+      List<Block> sameHash = entry.getValue();
+      for (Block blockFromIndex : cloneIndex.getBySequenceHash(entry.getKey())) {
+        // skip blocks for this file if they come from index
+        if (!originResourceId.equals(blockFromIndex.getResourceId())) {
+          sameHash.add(blockFromIndex);
+        }
+      }
+      Block[] group = sameHash.toArray(new Block[sameHash.size()]);
+      Arrays.sort(group, BLOCK_COMPARATOR);
+      groupsByHash.put(entry.getKey(), group);
+    }
+
+    groups = new Block[fileBlocks.size()][];
+    for (Block fileBlock : fileBlocks) {
+      groups[fileBlock.getIndexInFile()] = groupsByHash.get(fileBlock.getBlockHash());
+    }
+  }
+
+  private void computeLengths() {
+    lengths = new int[groups.length][];
+    for (int position = groups.length - 1; position >= 0; position--) {
+      Block[] group = groups[position];
+      int[] groupLengths = new int[group.length];
+      for (int i = 0; i < group.length; i++) {
+        groupLengths[i] = 1;
+        if (position + 1 < groups.length) {
+          int next = indexOf(groups[position + 1], group[i].getResourceId(), group[i].getIndexInFile() + 1);
+          if (next >= 0) {
+            groupLengths[i] += lengths[position + 1][next];
+          }
+        }
+      }
+      lengths[position] = groupLengths;
+    }
+  }
+
+  /**
+   * Clone of length L starts at given position, when:
+   * <ul>
+   * <li>at least two blocks have common prefix of length L or more - otherwise there is no clone;</li>
+   * <li>at least one of them can't be extended to the previous position - otherwise clone was reported for previous position;</li>
+   * <li>no block from this file before given position has common prefix of length L or more - otherwise clone was reported for this block;</li>
+   * <li>at least one block has common prefix of length exactly L - otherwise clone can be prolonged.</li>
+   * </ul>
+   */
+  private void reportClonesStartingAt(int position) {
+    Block[] group = groups[position];
+    int[] groupLengths = lengths[position];
+    if (group.length < 2) {
+      return;
+    }
+
+    int longest = 0;
+    int secondLongest = 0;
+    int longestNotExtensible = 0;
+    int longestInFileBefore = 0;
+    for (int i = 0; i < group.length; i++) {
+      int length = groupLengths[i];
+      if (length > longest) {
+        secondLongest = longest;
+        longest = length;
+      } else if (length > secondLongest) {
+        secondLongest = length;
+      }
+      Block block = group[i];
+      if (position == 0 || indexOf(groups[position - 1], block.getResourceId(), block.getIndexInFile() - 1) < 0) {
+        longestNotExtensible = Math.max(longestNotExtensible, length);
+      }
+      if (originResourceId.equals(block.getResourceId()) && block.getIndexInFile() < position) {
+        longestInFileBefore = Math.max(longestInFileBefore, length);
+      }
+    }
+
+    int maxLength = Math.min(secondLongest, longestNotExtensible);
+    int[] sortedLengths = groupLengths.clone();
+    Arrays.sort(sortedLengths);
+    int previous = 0;
+    for (int length : sortedLengths) {
+      if (length != previous && length > longestInFileBefore && length <= maxLength) {
+        reportClone(position, length);
+      }
+      previous = length;
+    }
+  }
+
+  private void reportClone(int position, int cloneLength) {
+    Block[] beginGroup = groups[position];
+    int[] groupLengths = lengths[position];
+    Block[] endGroup = groups[position + cloneLength - 1];
+
+    ClonePart origin = null;
+    List<ClonePart> parts = Lists.newArrayList();
+
+    for (int i = 0; i < beginGroup.length; i++) {
+      if (groupLengths[i] < cloneLength) {
+        continue;
+      }
+      Block beginBlock = beginGroup[i];
+      Block endBlock = endGroup[indexOf(endGroup, beginBlock.getResourceId(), beginBlock.getIndexInFile() + cloneLength - 1)];
+      ClonePart part = new ClonePart(beginBlock.getResourceId(), beginBlock.getIndexInFile(), beginBlock.getFirstLineNumber(), endBlock.getLastLineNumber());
+      parts.add(part);
+
+      if (originResourceId.equals(part.getResourceId()) && (origin == null || part.getUnitStart() < origin.getUnitStart())) {
+        origin = part;
+      }
+    }
+
+    filter.add(new CloneGroup(cloneLength, origin, parts));
+  }
+
+  /**
+   * @return index of block with specified resource id and index in file, or negative value if group doesn't contain such block
+   */
+  private static int indexOf(Block[] group, String resourceId, int indexInFile) {
+    int low = 0;
+    int high = group.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      Block block = group[mid];
+      int c = RESOURCE_ID_COMPARATOR.compare(block.getResourceId(), resourceId);
+      if (c == 0) {
+        c = block.getIndexInFile() - indexInFile;
+      }
+      if (c < 0) {
+        low = mid + 1;
+      } else if (c > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  private static final Comparator<String> RESOURCE_ID_COMPARATOR = FastStringComparator.INSTANCE;
+
+  private static final Comparator<Block> BLOCK_COMPARATOR = new Comparator<Block>() {
+    public int compare(Block b1, Block b2) {
+      int c = RESOURCE_ID_COMPARATOR.compare(b1.getResourceId(), b2.getResourceId());
+      if (c == 0) {
+        return b1.getIndexInFile() - b2.getIndexInFile();
+      }
+      return c;
+    }
+  };
+
+}
@@ -41,6 +41,9 @@ import com.google.common.collect.Lists;
  * <p>
  * Note that this implementation currently does not support deletion, however it's possible to implement.
  * </p>
+ * <p>
+ * Insertions are not thread-safe, but queries can be executed concurrently once all the blocks are inserted.
+ * </p>
  */
 public class PackedMemoryCloneIndex extends AbstractCloneIndex {
 
@@ -55,7 +58,7 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
   /**
    * Indicates that index requires sorting to perform queries.
    */
-  private boolean sorted;
+  private volatile boolean sorted;
 
   /**
    * Current number of blocks in index.
@@ -94,17 +97,12 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
   public Collection<Block> getByResourceId(String resourceId) {
     ensureSorted();
 
-    // prepare resourceId for binary search
-    resourceIds[size] = resourceId;
-    resourceIdsIndex[size] = size;
-
-    int index = DataUtils.binarySearch(byResourceId);
+    int index = lowerBoundByResourceId(resourceId);
 
     List<Block> result = Lists.newArrayList();
-    int realIndex = resourceIdsIndex[index];
-    while (index < size && FastStringComparator.INSTANCE.compare(resourceIds[realIndex], resourceId) == 0) {
+    while (index < size && FastStringComparator.INSTANCE.compare(resourceIds[resourceIdsIndex[index]], resourceId) == 0) {
       // extract block (note that there is no need to extract resourceId)
-      int offset = realIndex * blockInts;
+      int offset = resourceIdsIndex[index] * blockInts;
       int[] hash = new int[hashInts];
       for (int j = 0; j < hashInts; j++) {
         hash[j] = blockData[offset++];
@@ -116,7 +114,6 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
       result.add(new Block(resourceId, new ByteArray(hash), indexInFile, firstLineNumber, lastLineNumber));
 
       index++;
-      realIndex = resourceIdsIndex[index];
     }
     return result;
   }
@@ -127,23 +124,18 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
   public Collection<Block> getBySequenceHash(ByteArray sequenceHash) {
     ensureSorted();
 
-    // prepare hash for binary search
     int[] hash = sequenceHash.toIntArray();
     if (hash.length != hashInts) {
       throw new IllegalArgumentException("Expected " + hashInts + " ints in hash, but got " + hash.length);
     }
-    int offset = size * blockInts;
-    for (int i = 0; i < hashInts; i++) {
-      blockData[offset++] = hash[i];
-    }
 
-    int index = DataUtils.binarySearch(byBlockHash);
+    int index = lowerBoundByHash(hash);
 
     List<Block> result = Lists.newArrayList();
-    while (index < size && !isLessByHash(size, index)) {
+    while (index < size && compareHash(index, hash) == 0) {
       // extract block (note that there is no need to extract hash)
       String resourceId = resourceIds[index];
-      offset = index * blockInts + hashInts;
+      int offset = index * blockInts + hashInts;
       int indexInFile = blockData[offset++];
       int firstLineNumber = blockData[offset++];
       int lastLineNumber = blockData[offset];
@@ -154,6 +146,51 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
     return result;
   }
 
+  /**
+   * Binary search which does not use a free slot of the arrays for the searched value,
+   * so that queries do not modify the index.
+   */
+  private int lowerBoundByHash(int[] hash) {
+    int lower = 0;
+    int upper = size;
+    while (lower < upper) {
+      int mid = (lower + upper) >> 1;
+      if (compareHash(mid, hash) < 0) {
+        lower = mid + 1;
+      } else {
+        upper = mid;
+      }
+    }
+    return lower;
+  }
+
+  private int compareHash(int index, int[] hash) {
+    int offset = index * blockInts;
+    for (int k = 0; k < hashInts; k++, offset++) {
+      if (blockData[offset] < hash[k]) {
+        return -1;
+      }
+      if (blockData[offset] > hash[k]) {
+        return 1;
+      }
+    }
+    return 0;
+  }
+
+  private int lowerBoundByResourceId(String resourceId) {
+    int lower = 0;
+    int upper = size;
+    while (lower < upper) {
+      int mid = (lower + upper) >> 1;
+      if (FastStringComparator.INSTANCE.compare(resourceIds[resourceIdsIndex[mid]], resourceId) < 0) {
+        lower = mid + 1;
+      } else {
+        upper = mid;
+      }
+    }
+    return lower;
+  }
+
   /**
    * {@inheritDoc}
    * <p>
@@ -161,23 +198,46 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
    * </p>
    */
   public void insert(Block block) {
-    sorted = false;
-    ensureCapacity();
-
-    resourceIds[size] = block.getResourceId();
-
     int[] hash = block.getBlockHash().toIntArray();
     if (hash.length != hashInts) {
       throw new IllegalArgumentException("Expected " + hashInts + " ints in hash, but got " + hash.length);
     }
-    int offset = size * blockInts;
+    int offset = prepareInsert(block.getResourceId());
     for (int i = 0; i < hashInts; i++) {
       blockData[offset++] = hash[i];
     }
-    blockData[offset++] = block.getIndexInFile();
-    blockData[offset++] = block.getFirstLineNumber();
-    blockData[offset] = block.getLastLineNumber();
+    completeInsert(offset, block.getIndexInFile(), block.getFirstLineNumber(), block.getLastLineNumber());
+  }
+
+  /**
+   * Same as {@link #insert(Block)} for a block with a 64-bits hash, without creating objects.
+   *
+   * @since 2.11
+   */
+  public void insert(String resourceId, long hash, int indexInFile, int firstLineNumber, int lastLineNumber) {
+    if (hashInts != 2) {
+      throw new IllegalArgumentException("Expected " + hashInts + " ints in hash, but got 2");
+    }
+    int offset = prepareInsert(resourceId);
+    blockData[offset++] = (int) (hash >>> 32);
+    blockData[offset++] = (int) hash;
+    completeInsert(offset, indexInFile, firstLineNumber, lastLineNumber);
+  }
+
+  /**
+   * @return offset of the hash of the new block
+   */
+  private int prepareInsert(String resourceId) {
+    sorted = false;
+    ensureCapacity();
+    resourceIds[size] = resourceId;
+    return size * blockInts;
+  }
 
+  private void completeInsert(int offset, int indexInFile, int firstLineNumber, int lastLineNumber) {
+    blockData[offset++] = indexInFile;
+    blockData[offset++] = firstLineNumber;
+    blockData[offset] = lastLineNumber;
     size++;
   }
 
@@ -203,15 +263,20 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
   }
 
   /**
-   * Performs sorting, if necessary.
+   * Performs sorting, if necessary. Once sorted, queries do not modify the index, so they can be executed
+   * concurrently as long as there is no insertion.
    */
   private void ensureSorted() {
+    if (!sorted) {
+      sort();
+    }
+  }
+
+  private synchronized void sort() {
     if (sorted) {
       return;
     }
 
-    ensureCapacity();
-
     DataUtils.sort(byBlockHash);
     for (int i = 0; i < size; i++) {
       resourceIdsIndex[i] = i;
@@ -46,12 +46,26 @@ public final class JavaTokenProducer {
   private static final String INT_SUFFIX = "[lL]";
 
   public static TokenChunker build() {
-    return TokenChunker.builder()
+    return build(false);
+  }
+
+  /**
+   * @param automaton whether rules are compiled into a single automaton (see {@link TokenChunker.Builder#useAutomaton()}), which produces
+   *          the same tokens
+   * @since 2.11
+   */
+  public static TokenChunker build(boolean automaton) {
+    TokenChunker.Builder builder = TokenChunker.builder();
+    if (automaton) {
+      builder.useAutomaton();
+    }
+    return builder
         // White Space
         .ignore("\\s")
         // Comments
         .ignore("//[^\\n\\r]*+")
-        .ignore("/\\*[\\s\\S]*?\\*/")
+        // (the automaton does not support reluctant quantifiers)
+        .ignore(automaton ? "/\\*([^*]|\\*+[^*/])*\\*+/" : "/\\*[\\s\\S]*?\\*/")
         // String Literals
         .token("\"([^\"\\\\]*+(\\\\[\\s\\S])?+)*+\"", NORMALIZED_CHARACTER_LITERAL)
         // Character Literals
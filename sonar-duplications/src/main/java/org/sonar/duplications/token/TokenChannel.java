@@ -25,15 +25,18 @@ import java.util.regex.Pattern;
 import org.sonar.channel.Channel;
 import org.sonar.channel.CodeBuffer.Cursor;
 import org.sonar.channel.CodeReader;
+import org.sonar.channel.RegexRule;
 
-class TokenChannel extends Channel<TokenQueue> {
+class TokenChannel extends Channel<TokenQueue> implements RegexRule<TokenQueue> {
 
   private final StringBuilder tmpBuilder = new StringBuilder();
   private final Matcher matcher;
+  private final String regex;
   private String normalizationValue;
 
   public TokenChannel(String regex) {
     matcher = Pattern.compile(regex).matcher("");
+    this.regex = regex;
   }
 
   public TokenChannel(String regex, String normalizationValue) {
@@ -44,16 +47,24 @@ class TokenChannel extends Channel<TokenQueue> {
   @Override
   public boolean consume(CodeReader code, TokenQueue output) {
     if (code.popTo(matcher, tmpBuilder) > 0) {
-      Cursor previousCursor = code.getPreviousCursor(); // see SONAR-2499
-      if (normalizationValue != null) {
-        output.add(new Token(normalizationValue, previousCursor.getLine(), previousCursor.getColumn()));
-      } else {
-        output.add(new Token(tmpBuilder.toString(), previousCursor.getLine(), previousCursor.getColumn()));
-      }
+      consume(code, tmpBuilder, output);
       tmpBuilder.setLength(0); // Godin: note that other channels use method delete in order to do the same thing
       return true;
     }
     return false;
   }
 
+  public void consume(CodeReader code, CharSequence token, TokenQueue output) {
+    Cursor previousCursor = code.getPreviousCursor(); // see SONAR-2499
+    if (normalizationValue != null) {
+      output.add(new Token(normalizationValue, previousCursor.getLine(), previousCursor.getColumn()));
+    } else {
+      output.add(new Token(token.toString(), previousCursor.getLine(), previousCursor.getColumn()));
+    }
+  }
+
+  public String getRegex() {
+    return regex;
+  }
+
 }
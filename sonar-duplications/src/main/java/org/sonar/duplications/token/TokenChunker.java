@@ -19,13 +19,22 @@
  */
 package org.sonar.duplications.token;
 
+import java.io.File;
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import org.sonar.channel.Channel;
 import org.sonar.channel.ChannelDispatcher;
 import org.sonar.channel.CodeReader;
 import org.sonar.channel.CodeReaderConfiguration;
+import org.sonar.channel.DfaChannel;
+import org.sonar.channel.RegexRule;
 import org.sonar.duplications.DuplicationsException;
 
+import com.google.common.collect.Lists;
+
 public final class TokenChunker {
 
   /**
@@ -52,7 +61,19 @@ public final class TokenChunker {
   public TokenQueue chunk(Reader reader) {
     CodeReaderConfiguration codeReaderConfiguration = new CodeReaderConfiguration();
     codeReaderConfiguration.setBufferCapacity(BUFFER_CAPACITY);
-    CodeReader code = new CodeReader(reader, codeReaderConfiguration);
+    return chunk(new CodeReader(reader, codeReaderConfiguration));
+  }
+
+  /**
+   * Reads the whole file at once from a memory-mapped file, so tokens are not limited by capacity of buffer.
+   * 
+   * @since 2.11
+   */
+  public TokenQueue chunk(File file, Charset charset) {
+    return chunk(new CodeReader(file, charset, new CodeReaderConfiguration()));
+  }
+
+  private TokenQueue chunk(CodeReader code) {
     TokenQueue queue = new TokenQueue();
     try {
       channelDispatcher.consume(code, queue);
@@ -69,7 +90,9 @@ public final class TokenChunker {
    */
   public static final class Builder {
 
-    private ChannelDispatcher.Builder channelDispatcherBuilder = ChannelDispatcher.builder();
+    private List<Channel<TokenQueue>> channels = Lists.newArrayList();
+    private List<RegexRule<TokenQueue>> rules = Lists.newArrayList();
+    private boolean automaton = false;
 
     private Builder() {
     }
@@ -78,31 +101,52 @@ public final class TokenChunker {
       return new TokenChunker(this);
     }
 
+    /**
+     * Compiles regular expressions of all channels into a single deterministic automaton (see {@link DfaChannel}), so that each character
+     * is read only once. Note that in this case the longest match wins, and that regular expressions can't use reluctant quantifiers,
+     * anchors, back references or look-around.
+     * 
+     * @since 2.11
+     */
+    public Builder useAutomaton() {
+      automaton = true;
+      return this;
+    }
+
     /**
      * Defines that sequence of characters must be ignored, if it matches specified regular expression.
      */
     public Builder ignore(String regularExpression) {
-      channelDispatcherBuilder.addChannel(new BlackHoleTokenChannel(regularExpression));
-      return this;
+      return add(new BlackHoleTokenChannel(regularExpression));
     }
 
     /**
      * Defines that sequence of characters, which is matched specified regular expression, is a token.
      */
     public Builder token(String regularExpression) {
-      channelDispatcherBuilder.addChannel(new TokenChannel(regularExpression));
-      return this;
+      return add(new TokenChannel(regularExpression));
     }
 
     /**
      * Defines that sequence of characters, which is matched specified regular expression, is a token with specified value.
      */
     public Builder token(String regularExpression, String normalizationValue) {
-      channelDispatcherBuilder.addChannel(new TokenChannel(regularExpression, normalizationValue));
+      return add(new TokenChannel(regularExpression, normalizationValue));
+    }
+
+    private <C extends Channel<TokenQueue> & RegexRule<TokenQueue>> Builder add(C channel) {
+      channels.add(channel);
+      rules.add(channel);
       return this;
     }
 
     private ChannelDispatcher<TokenQueue> getChannelDispatcher() {
+      ChannelDispatcher.Builder channelDispatcherBuilder = ChannelDispatcher.builder();
+      if (automaton) {
+        channelDispatcherBuilder.addChannel(DfaChannel.builder().addRules(rules.toArray(new RegexRule[rules.size()])).build());
+      } else {
+        channelDispatcherBuilder.addChannels(channels.toArray(new Channel[channels.size()]));
+      }
       return channelDispatcherBuilder.build();
     }
 
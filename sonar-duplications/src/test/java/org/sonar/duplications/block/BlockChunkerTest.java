@@ -52,6 +52,25 @@ public class BlockChunkerTest extends BlockChunkerTestCase {
     assertThat(blocks.get(2).getBlockHash().toString(), is("fffffec45c0aad80"));
   }
 
+  @Test
+  public void shouldGivePrimitiveBlocksToHandler() {
+    List<Statement> statements = createStatementsFromStrings("aaaaaa", "bbbbbb", "cccccc", "dddddd", "eeeeee");
+    BlockChunker blockChunker = createChunkerWithBlockSize(3);
+    List<Block> blocks = blockChunker.chunk("resource", statements);
+    PackedBlocks packedBlocks = new PackedBlocks(1);
+    blockChunker.chunk(statements, packedBlocks);
+
+    assertThat(packedBlocks.size(), is(3));
+    for (int i = 0; i < blocks.size(); i++) {
+      Block block = blocks.get(i);
+      assertThat(new ByteArray(packedBlocks.getHash(i)), equalTo(block.getBlockHash()));
+      assertThat(packedBlocks.getIndexInFile(i), is(block.getIndexInFile()));
+      assertThat(packedBlocks.getFirstLineNumber(i), is(block.getFirstLineNumber()));
+      assertThat(packedBlocks.getLastLineNumber(i), is(block.getLastLineNumber()));
+    }
+    assertThat(packedBlocks.toBlocks("resource"), equalTo(blocks));
+  }
+
   private ByteArray hash(String... statements) {
     long hash = 0;
     for (String statement : statements) {
@@ -0,0 +1,170 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.duplications.detector.suffix;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.detector.original.OriginalCloneDetectionAlgorithm;
+import org.sonar.duplications.index.CloneGroup;
+import org.sonar.duplications.index.CloneIndex;
+import org.sonar.duplications.index.ClonePart;
+import org.sonar.duplications.index.MemoryCloneIndex;
+
+import com.google.common.collect.Lists;
+
+public class SuffixCloneDetectionAlgorithmTest {
+
+  private static int LINES_PER_BLOCK = 5;
+
+  private static Block newBlock(String resourceId, String hash, int index) {
+    return new Block(resourceId, new ByteArray(hash.getBytes()), index, index, index + LINES_PER_BLOCK);
+  }
+
+  private static ClonePart newClonePart(String resourceId, int unitStart, int cloneUnitLength) {
+    return new ClonePart(resourceId, unitStart, unitStart, unitStart + cloneUnitLength + LINES_PER_BLOCK - 1);
+  }
+
+  /**
+   * Given:
+   * <pre>
+   * y:   2 3 4 5
+   * z:     3 4
+   * x: 1 2 3 4 5 6
+   * </pre>
+   * Expected:
+   * <pre>
+   * x-y (2 3 4 5)
+   * x-y-z (3 4)
+   * </pre>
+   */
+  @Test
+  public void exampleFromPaper() {
+    CloneIndex cloneIndex = createIndex(
+        blocks("y", "2", "3", "4", "5"),
+        blocks("z", "3", "4"));
+    List<Block> fileBlocks = blocks("x", "1", "2", "3", "4", "5", "6");
+    List<CloneGroup> clones = SuffixCloneDetectionAlgorithm.detect(cloneIndex, fileBlocks);
+    assertThat(clones.size(), is(2));
+    Iterator<CloneGroup> clonesIterator = clones.iterator();
+
+    CloneGroup clone = clonesIterator.next();
+    assertThat(clone.getCloneUnitLength(), is(4));
+    assertThat(clone.getCloneParts().size(), is(2));
+    assertThat(clone.getOriginPart(), is(newClonePart("x", 1, 4)));
+    assertThat(clone.getCloneParts(), hasItem(newClonePart("x", 1, 4)));
+    assertThat(clone.getCloneParts(), hasItem(newClonePart("y", 0, 4)));
+
+    clone = clonesIterator.next();
+    assertThat(clone.getCloneUnitLength(), is(2));
+    assertThat(clone.getCloneParts().size(), is(3));
+    assertThat(clone.getOriginPart(), is(newClonePart("x", 2, 2)));
+    assertThat(clone.getCloneParts(), hasItem(newClonePart("x", 2, 2)));
+    assertThat(clone.getCloneParts(), hasItem(newClonePart("y", 1, 2)));
+    assertThat(clone.getCloneParts(), hasItem(newClonePart("z", 0, 2)));
+  }
+
+  /**
+   * Given: file with long repeated sequence, like generated code
+   * <pre>
+   * a: 1 2 1 2 1 2 1 2
+   * </pre>
+   * Expected: same clones as with {@link OriginalCloneDetectionAlgorithm}
+   */
+  @Test
+  public void repeatedSequenceInFile() {
+    CloneIndex cloneIndex = createIndex();
+    List<Block> fileBlocks = blocks("a", "1", "2", "1", "2", "1", "2", "1", "2");
+    List<CloneGroup> clones = SuffixCloneDetectionAlgorithm.detect(cloneIndex, fileBlocks);
+    assertThat(clones, is(OriginalCloneDetectionAlgorithm.detect(cloneIndex, fileBlocks)));
+    assertThat(clones.get(0).getCloneUnitLength(), is(6));
+    assertThat(clones.get(0).getOriginPart(), is(newClonePart("a", 0, 6)));
+  }
+
+  /**
+   * Given: random files over small alphabet of hashes
+   * Expected: same clones, in the same order, as with {@link OriginalCloneDetectionAlgorithm}
+   */
+  @Test
+  public void shouldReportSameClonesAsOriginalAlgorithm() {
+    Random random = new Random(1);
+    for (int test = 0; test < 2000; test++) {
+      int alphabet = 1 + random.nextInt(4);
+      CloneIndex cloneIndex = createIndex();
+      List<Block> fileBlocks = randomBlocks("a", 1 + random.nextInt(12), alphabet, random);
+      if (random.nextBoolean()) {
+        insert(cloneIndex, fileBlocks);
+      }
+      int resources = random.nextInt(4);
+      for (int i = 0; i < resources; i++) {
+        insert(cloneIndex, randomBlocks("r" + i, random.nextInt(12), alphabet, random));
+      }
+
+      List<CloneGroup> expected = OriginalCloneDetectionAlgorithm.detect(cloneIndex, fileBlocks);
+      assertThat(SuffixCloneDetectionAlgorithm.detect(cloneIndex, fileBlocks), is(expected));
+    }
+  }
+
+  @Test
+  public void shouldReturnEmptyListWhenNoBlocksForFile() {
+    List<CloneGroup> result = SuffixCloneDetectionAlgorithm.detect(null, new ArrayList<Block>());
+    assertThat(result.isEmpty(), is(true));
+  }
+
+  private static List<Block> randomBlocks(String resourceId, int size, int alphabet, Random random) {
+    List<Block> result = Lists.newArrayList();
+    for (int i = 0; i < size; i++) {
+      result.add(newBlock(resourceId, Integer.toString(random.nextInt(alphabet)), i));
+    }
+    return result;
+  }
+
+  private static List<Block> blocks(String resourceId, String... hashes) {
+    List<Block> result = Lists.newArrayList();
+    for (int i = 0; i < hashes.length; i++) {
+      result.add(newBlock(resourceId, hashes[i], i));
+    }
+    return result;
+  }
+
+  private static CloneIndex createIndex(List<Block>... blocks) {
+    CloneIndex cloneIndex = new MemoryCloneIndex();
+    for (List<Block> b : blocks) {
+      insert(cloneIndex, b);
+    }
+    return cloneIndex;
+  }
+
+  private static void insert(CloneIndex cloneIndex, List<Block> blocks) {
+    for (Block block : blocks) {
+      cloneIndex.insert(block);
+    }
+  }
+
+}
@@ -24,12 +24,19 @@ import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.ByteArray;
 
+import com.google.common.collect.Lists;
+
 public class PackedMemoryCloneIndexTest {
 
   private PackedMemoryCloneIndex index;
@@ -89,6 +96,75 @@ public class PackedMemoryCloneIndexTest {
     assertThat(index.getByResourceId("a").size(), is(2));
   }
 
+  /**
+   * When: blocks inserted as primitive values.
+   * Expected: same results than blocks inserted as objects.
+   */
+  @Test
+  public void should_insert_primitive_blocks() {
+    index.insert("a", 1L, 0, 1, 10);
+    index.insert("a", 2L, 1, 2, 11);
+    index.insert(newBlock("b", 1));
+
+    Collection<Block> blocks = index.getBySequenceHash(new ByteArray(1L));
+    assertThat(blocks.size(), is(2));
+    Collection<Block> resourceBlocks = index.getByResourceId("a");
+    assertThat(resourceBlocks.size(), is(2));
+    assertThat(resourceBlocks.contains(new Block("a", new ByteArray(2L), 1, 2, 11)), is(true));
+  }
+
+  /**
+   * Given: index, which accepts blocks with 4-byte hash.
+   * Expected: exception during insertion of primitive block with 8-byte hash.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void attempt_to_insert_primitive_hash_of_incorrect_size() {
+    new PackedMemoryCloneIndex(4, 1).insert("a", 1L, 0, 1, 1);
+  }
+
+  /**
+   * Given: index, which is full.
+   * Expected: queries do not require free space.
+   */
+  @Test
+  public void should_query_full_index() {
+    CloneIndex index = new PackedMemoryCloneIndex(8, 2);
+    index.insert(newBlock("a", 1));
+    index.insert(newBlock("b", 2));
+    assertThat(index.getBySequenceHash(new ByteArray(2L)).size(), is(1));
+    assertThat(index.getBySequenceHash(new ByteArray(3L)).size(), is(0));
+    assertThat(index.getByResourceId("b").size(), is(1));
+    assertThat(index.getByResourceId("c").size(), is(0));
+  }
+
+  /**
+   * Given: index with all blocks inserted.
+   * Expected: concurrent queries return the same results than sequential ones.
+   */
+  @Test
+  public void should_support_concurrent_queries() throws Exception {
+    for (int i = 0; i < 1000; i++) {
+      index.insert(newBlock("resource" + (i % 10), i % 100));
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Callable<Integer>> tasks = Lists.newArrayList();
+      for (int i = 0; i < 100; i++) {
+        final int hash = i;
+        tasks.add(new Callable<Integer>() {
+          public Integer call() {
+            return index.getBySequenceHash(new ByteArray((long) hash)).size() + index.getByResourceId("resource" + (hash % 10)).size();
+          }
+        });
+      }
+      for (Future<Integer> result : executor.invokeAll(tasks)) {
+        assertThat(result.get(), is(10 + 100));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   /**
    * Given: index, which accepts blocks with 4-byte hash.
    * Expected: exception during insertion of block with 8-byte hash.
@@ -0,0 +1,61 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.duplications.java;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.sonar.duplications.token.Token;
+import org.sonar.duplications.token.TokenChunker;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Compares the rules of {@link JavaTokenProducer} compiled into an automaton with the same rules executed as regular expressions, on
+ * sources of this module.
+ */
+public class JavaTokenProducerDfaTest {
+
+  private final TokenChunker regexLexer = JavaTokenProducer.build();
+  private final TokenChunker dfaLexer = JavaTokenProducer.build(true);
+
+  @Test
+  public void shouldProduceSameTokensAsRegularExpressions() throws IOException {
+    Collection<File> files = FileUtils.listFiles(new File("src"), new String[] { "java" }, true);
+    List<String> sources = Lists.newArrayList();
+    for (File file : files) {
+      sources.add(FileUtils.readFileToString(file, "UTF-8"));
+    }
+    sources.add("int i = 0x1F + 1.5e3f + .5 + 'c' + \"s\\\"\"; /* comment ** */ // end");
+
+    for (String source : sources) {
+      List<Token> expected = Lists.newArrayList(regexLexer.chunk(source));
+      assertThat(Lists.newArrayList(dfaLexer.chunk(source)), is(expected));
+    }
+  }
+
+}
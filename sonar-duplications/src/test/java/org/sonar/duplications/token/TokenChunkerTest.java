@@ -19,10 +19,22 @@
  */
 package org.sonar.duplications.token;
 
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.nio.charset.Charset;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class TokenChunkerTest {
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   /**
    * In fact this test does not guarantee that we will be able to consume even more great comments,
    * because {@link org.sonar.channel.CodeBuffer} does not expand dynamically - see issue SONAR-2632.
@@ -43,4 +55,36 @@ public class TokenChunkerTest {
     chunker.chunk(sb.toString());
   }
 
+  /**
+   * Whole file is read at once, so tokens are not limited by capacity of buffer.
+   */
+  @Test
+  public void shouldConsumeBigCommentsFromFile() throws Exception {
+    int length = 200000;
+    StringBuilder sb = new StringBuilder(length);
+    sb.append("/");
+    for (int i = 2; i < length; i++) {
+      sb.append('*');
+    }
+    sb.append("/\nx");
+    File file = temporaryFolder.newFile("big.txt");
+    FileUtils.writeStringToFile(file, sb.toString(), "UTF-8");
+
+    TokenChunker chunker = TokenChunker.builder().token("/.*/", "LITERAL").token("\\s").token("x").build();
+    TokenQueue tokens = chunker.chunk(file, Charset.forName("UTF-8"));
+    assertThat(tokens.size(), is(3));
+    assertThat(tokens.poll(), is(new Token("LITERAL", 1, 0)));
+    tokens.poll();
+    assertThat(tokens.poll(), is(new Token("x", 2, 0)));
+  }
+
+  @Test
+  public void shouldChooseLongestMatchWithAutomaton() {
+    TokenChunker chunker = TokenChunker.builder().useAutomaton().ignore("\\s").token("a").token("ab").build();
+    TokenQueue tokens = chunker.chunk("a\n ab");
+    assertThat(tokens.size(), is(2));
+    assertThat(tokens.poll(), is(new Token("a", 1, 0)));
+    assertThat(tokens.poll(), is(new Token("ab", 2, 1)));
+  }
+
 }
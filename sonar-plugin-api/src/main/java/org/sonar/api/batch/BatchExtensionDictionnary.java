@@ -118,6 +118,19 @@ public class BatchExtensionDictionnary {
   }
 
   public <T> Collection<T> sort(Collection<T> extensions) {
+    DirectAcyclicGraph dag = getDependencyGraph(extensions);
+    List sortedList = dag.sort();
+
+    return (Collection<T>) Collections2.filter(sortedList, Predicates.in(extensions));
+  }
+
+  /**
+   * Graph of the dependencies declared by the given extensions. Nodes are the extensions, the objects they depend upon
+   * or generate (for example metrics) and the phases.
+   *
+   * @since 2.11
+   */
+  public <T> DirectAcyclicGraph getDependencyGraph(Collection<T> extensions) {
     DirectAcyclicGraph dag = new DirectAcyclicGraph();
 
     for (T extension : extensions) {
@@ -130,9 +143,7 @@ public class BatchExtensionDictionnary {
       }
       completePhaseDependencies(dag, extension);
     }
-    List sortedList = dag.sort();
-
-    return (Collection<T>) Collections2.filter(sortedList, Predicates.in(extensions));
+    return dag;
   }
 
   /**
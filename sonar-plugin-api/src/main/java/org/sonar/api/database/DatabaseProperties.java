@@ -42,6 +42,14 @@ public interface DatabaseProperties {
   String PROP_EMBEDDED_PORT = "sonar.embeddedDatabase.port";
   String PROP_HIBERNATE_DEFAULT_SCHEMA = "sonar.hibernate.default_schema";
 
+  /**
+   * Number of rows saved by the batch between two commits when persisting measures and violations in bulk.
+   *
+   * @since 2.11
+   */
+  String PROP_BULK_COMMIT_SIZE = "sonar.jdbc.bulkCommitSize";
+  int PROP_BULK_COMMIT_SIZE_DEFAULT_VALUE = 1000;
+
 
   String PROP_EMBEDDED_DATA_DIR = "sonar.embeddedDatabase.dataDir";
   String DIALECT_DERBY = "derby";
@@ -0,0 +1,74 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.api.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Helpers for the extensions which execute tasks in their own thread pool.
+ *
+ * @since 2.11
+ */
+public final class ConcurrentUtils {
+
+  private ConcurrentUtils() {
+    // only static methods
+  }
+
+  /**
+   * Elements are dealt in turn, so that neighbour elements, for example the big files of a same directory, are spread
+   * across the shards.
+   *
+   * @return the elements of the shard at the given index, among count shards
+   */
+  public static <T> List<T> shard(List<T> elements, int index, int count) {
+    List<T> shard = new ArrayList<T>();
+    for (int i = index; i < elements.size(); i += count) {
+      shard.add(elements.get(i));
+    }
+    return shard;
+  }
+
+  /**
+   * Waits for the result of a task. The unchecked exceptions thrown by the task are rethrown as they are, the checked
+   * ones are wrapped into a {@link SonarException}. If the current thread is interrupted while waiting, its interrupted
+   * status is restored and a {@link SonarException} is thrown.
+   *
+   * @param errorMessage the message of the {@link SonarException}
+   */
+  public static <T> T getResult(Future<T> future, String errorMessage) {
+    try {
+      return future.get();
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SonarException(errorMessage, e);
+
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new SonarException(errorMessage, e.getCause());
+    }
+  }
+}
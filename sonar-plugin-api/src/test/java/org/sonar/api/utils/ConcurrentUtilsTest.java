@@ -0,0 +1,83 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.api.utils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ConcurrentUtilsTest {
+
+  @Test
+  public void shouldShardElementsInTurn() {
+    List<String> elements = Arrays.asList("A", "B", "C");
+
+    assertThat(ConcurrentUtils.shard(elements, 0, 2), is(Arrays.asList("A", "C")));
+    assertThat(ConcurrentUtils.shard(elements, 1, 2), is(Arrays.asList("B")));
+    assertThat(ConcurrentUtils.shard(elements, 3, 4).isEmpty(), is(true));
+  }
+
+  @Test
+  public void shouldGetResult() {
+    assertThat(ConcurrentUtils.getResult(execute(new Callable<String>() {
+      public String call() {
+        return "result";
+      }
+    }), "error"), is("result"));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void shouldRethrowUncheckedException() {
+    ConcurrentUtils.getResult(execute(new Callable<String>() {
+      public String call() {
+        throw new IllegalStateException();
+      }
+    }), "error");
+  }
+
+  @Test
+  public void shouldWrapCheckedException() {
+    try {
+      ConcurrentUtils.getResult(execute(new Callable<String>() {
+        public String call() throws IOException {
+          throw new IOException();
+        }
+      }), "error");
+      fail();
+    } catch (SonarException e) {
+      assertThat(e.getMessage(), is("error"));
+      assertThat(e.getCause() instanceof IOException, is(true));
+    }
+  }
+
+  private static <T> FutureTask<T> execute(Callable<T> callable) {
+    FutureTask<T> future = new FutureTask<T>(callable);
+    future.run();
+    return future;
+  }
+}
@@ -19,6 +19,7 @@
  */
 package org.sonar.wsclient;
 
+import org.sonar.wsclient.connectors.ConnectionException;
 import org.sonar.wsclient.connectors.Connector;
 import org.sonar.wsclient.connectors.ConnectorFactory;
 import org.sonar.wsclient.services.*;
@@ -26,8 +27,13 @@ import org.sonar.wsclient.unmarshallers.UnmarshalException;
 import org.sonar.wsclient.unmarshallers.Unmarshaller;
 import org.sonar.wsclient.unmarshallers.Unmarshallers;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 public class Sonar {
 
@@ -75,6 +81,71 @@ public class Sonar {
     return result;
   }
 
+  /**
+   * Executes the query in a thread of the given executor. The connector must be thread-safe.
+   *
+   * @since 2.11
+   */
+  public <MODEL extends Model> Future<MODEL> findAsync(final Query<MODEL> query, ExecutorService executor) {
+    return executor.submit(new Callable<MODEL>() {
+      public MODEL call() {
+        return find(query);
+      }
+    });
+  }
+
+  /**
+   * Executes the query in a thread of the given executor. The connector must be thread-safe.
+   *
+   * @since 2.11
+   */
+  public <MODEL extends Model> Future<List<MODEL>> findAllAsync(final Query<MODEL> query, ExecutorService executor) {
+    return executor.submit(new Callable<List<MODEL>>() {
+      public List<MODEL> call() {
+        return findAll(query);
+      }
+    });
+  }
+
+  /**
+   * Executes the queries concurrently in the threads of the given executor, for example with a
+   * {@link org.sonar.wsclient.connectors.PooledHttpClient4Connector}. The connector must be thread-safe.
+   *
+   * @return the results of the queries, in the same order than the queries
+   * @since 2.11
+   */
+  public <MODEL extends Model> List<List<MODEL>> findAll(List<? extends Query<MODEL>> queries, ExecutorService executor) {
+    List<Future<List<MODEL>>> futures = new ArrayList<Future<List<MODEL>>>(queries.size());
+    for (Query<MODEL> query : queries) {
+      futures.add(findAllAsync(query, executor));
+    }
+    List<List<MODEL>> results = new ArrayList<List<MODEL>>(queries.size());
+    try {
+      for (Future<List<MODEL>> future : futures) {
+        results.add(getResult(future));
+      }
+    } finally {
+      for (Future<List<MODEL>> future : futures) {
+        future.cancel(true);
+      }
+    }
+    return results;
+  }
+
+  private static <T> T getResult(Future<T> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ConnectionException("Interrupted while waiting for the result of a query", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new ConnectionException("Fail to execute query", e.getCause());
+    }
+  }
+
   public <MODEL extends Model> MODEL create(CreateQuery<MODEL> query) {
     String json = connector.execute(query);
     MODEL result = null;
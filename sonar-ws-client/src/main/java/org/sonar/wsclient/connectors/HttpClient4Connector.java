@@ -88,19 +88,24 @@ public class HttpClient4Connector extends Connector {
 
   private String executeRequest(HttpRequestBase request) {
     String json = null;
-    DefaultHttpClient client = createClient();
+    DefaultHttpClient client = getClient();
     try {
-      BasicHttpContext context = createLocalContext(client);
+      BasicHttpContext context = createLocalContext();
       HttpResponse response = client.execute(request, context);
       HttpEntity entity = response.getEntity();
       if (entity != null) {
-        if (response.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
-          json = EntityUtils.toString(entity);
-
-        } else if (response.getStatusLine().getStatusCode() != HttpStatus.SC_NOT_FOUND) {
-          throw new ConnectionException("HTTP error: " + response.getStatusLine().getStatusCode()
-              + ", msg: " + response.getStatusLine().getReasonPhrase()
-              + ", query: " + request.toString());
+        try {
+          if (response.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
+            json = EntityUtils.toString(entity);
+
+          } else if (response.getStatusLine().getStatusCode() != HttpStatus.SC_NOT_FOUND) {
+            throw new ConnectionException("HTTP error: " + response.getStatusLine().getStatusCode()
+                + ", msg: " + response.getStatusLine().getReasonPhrase()
+                + ", query: " + request.toString());
+          }
+        } finally {
+          // releases the connection, so that it can be reused
+          entity.consumeContent();
         }
       }
 
@@ -108,24 +113,37 @@ public class HttpClient4Connector extends Connector {
       throw new ConnectionException("Query: " + request.getURI(), e);
 
     } finally {
-      client.getConnectionManager().shutdown();
+      releaseClient(client);
     }
     return json;
   }
 
-  private DefaultHttpClient createClient() {
-    DefaultHttpClient client = new DefaultHttpClient();
+  /**
+   * A new client is created for each request.
+   */
+  DefaultHttpClient getClient() {
+    return configureClient(new DefaultHttpClient());
+  }
+
+  void releaseClient(DefaultHttpClient client) {
+    client.getConnectionManager().shutdown();
+  }
+
+  final DefaultHttpClient configureClient(DefaultHttpClient client) {
     HttpParams params = client.getParams();
     HttpConnectionParams.setConnectionTimeout(params, AbstractQuery.DEFAULT_TIMEOUT_MILLISECONDS);
     HttpConnectionParams.setSoTimeout(params, AbstractQuery.DEFAULT_TIMEOUT_MILLISECONDS);
     if (server.getUsername() != null) {
       client.getCredentialsProvider()
           .setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(server.getUsername(), server.getPassword()));
+
+      // Add as the first request interceptor
+      client.addRequestInterceptor(new PreemptiveAuth(), 0);
     }
     return client;
   }
 
-  private BasicHttpContext createLocalContext(DefaultHttpClient client) {
+  private BasicHttpContext createLocalContext() {
     BasicHttpContext localcontext = new BasicHttpContext();
 
     if (server.getUsername() != null) {
@@ -133,9 +151,6 @@ public class HttpClient4Connector extends Connector {
       // execution context
       BasicScheme basicAuth = new BasicScheme();
       localcontext.setAttribute("preemptive-auth", basicAuth);
-
-      // Add as the first request interceptor
-      client.addRequestInterceptor(new PreemptiveAuth(), 0);
     }
     return localcontext;
   }
@@ -0,0 +1,136 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.wsclient.connectors;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.http.Header;
+import org.apache.http.HeaderElement;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+import org.sonar.wsclient.Host;
+
+/**
+ * Connector sharing a single thread-safe pool of keep-alive connections between all the requests, so that it can be used
+ * by several threads at the same time. Responses are requested gzip-compressed. The pool is released by {@link #close()}.
+ *
+ * @since 2.11
+ */
+public class PooledHttpClient4Connector extends HttpClient4Connector {
+
+  public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 40;
+  public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 10;
+
+  private final DefaultHttpClient client;
+
+  public PooledHttpClient4Connector(Host server) {
+    this(server, DEFAULT_MAX_TOTAL_CONNECTIONS, DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+  }
+
+  public PooledHttpClient4Connector(Host server, int maxTotalConnections, int maxConnectionsPerRoute) {
+    super(server);
+    HttpParams params = new BasicHttpParams();
+    ConnManagerParams.setMaxTotalConnections(params, maxTotalConnections);
+    ConnManagerParams.setMaxConnectionsPerRoute(params, new ConnPerRouteBean(maxConnectionsPerRoute));
+
+    SchemeRegistry schemeRegistry = new SchemeRegistry();
+    schemeRegistry.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
+    schemeRegistry.register(new Scheme("https", SSLSocketFactory.getSocketFactory(), 443));
+
+    client = configureClient(new DefaultHttpClient(new ThreadSafeClientConnManager(params, schemeRegistry), params));
+    client.addRequestInterceptor(new AcceptGzipEncoding());
+    client.addResponseInterceptor(new GzipDecoding());
+  }
+
+  @Override
+  DefaultHttpClient getClient() {
+    return client;
+  }
+
+  @Override
+  void releaseClient(DefaultHttpClient client) {
+    // connections are kept alive in the pool
+  }
+
+  /**
+   * Closes all the connections of the pool. The connector can not be used anymore.
+   */
+  public void close() {
+    client.getConnectionManager().shutdown();
+  }
+
+  static final class AcceptGzipEncoding implements HttpRequestInterceptor {
+    public void process(HttpRequest request, HttpContext context) throws HttpException, IOException {
+      if (!request.containsHeader("Accept-Encoding")) {
+        request.addHeader("Accept-Encoding", "gzip");
+      }
+    }
+  }
+
+  static final class GzipDecoding implements HttpResponseInterceptor {
+    public void process(HttpResponse response, HttpContext context) throws HttpException, IOException {
+      HttpEntity entity = response.getEntity();
+      Header encoding = (entity != null ? entity.getContentEncoding() : null);
+      if (encoding != null) {
+        for (HeaderElement element : encoding.getElements()) {
+          if ("gzip".equalsIgnoreCase(element.getName())) {
+            response.setEntity(new GzipDecompressingEntity(entity));
+            return;
+          }
+        }
+      }
+    }
+  }
+
+  static final class GzipDecompressingEntity extends HttpEntityWrapper {
+    GzipDecompressingEntity(HttpEntity entity) {
+      super(entity);
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+      return new GZIPInputStream(wrappedEntity.getContent());
+    }
+
+    @Override
+    public long getContentLength() {
+      // the length of the decompressed content is unknown
+      return -1;
+    }
+  }
+}
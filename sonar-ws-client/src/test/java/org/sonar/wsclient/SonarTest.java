@@ -27,11 +27,15 @@ import org.mortbay.jetty.testing.ServletTester;
 import org.sonar.wsclient.connectors.ConnectionException;
 import org.sonar.wsclient.connectors.HttpClient3Connector;
 import org.sonar.wsclient.connectors.HttpClient4Connector;
+import org.sonar.wsclient.connectors.PooledHttpClient4Connector;
 import org.sonar.wsclient.services.*;
 import org.sonar.wsclient.unmarshallers.UnmarshalException;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
@@ -70,7 +74,8 @@ public class SonarTest {
 
     return Arrays.asList(new Object[][]{
         {new Sonar(new HttpClient4Connector(new Host(baseUrl)))},
-        {new Sonar(new HttpClient3Connector(new Host(baseUrl)))}
+        {new Sonar(new HttpClient3Connector(new Host(baseUrl)))},
+        {new Sonar(new PooledHttpClient4Connector(new Host(baseUrl)))}
     });
   }
 
@@ -104,6 +109,20 @@ public class SonarTest {
     fakeSonar.findAll(MetricQuery.all());
   }
 
+  @Test
+  public void findAllConcurrently() {
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      List<List<Metric>> results = sonar.findAll(Arrays.<Query<Metric>>asList(MetricQuery.all(), new EmptyQuery(), MetricQuery.all()), executor);
+      assertThat(results.size(), is(3));
+      assertThat(results.get(0).size(), greaterThan(1));
+      assertThat(results.get(1).size(), is(0));
+      assertThat(results.get(2).size(), is(results.get(0).size()));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   @Test
   public void getVersion() {
     Server server = sonar.find(new ServerQuery());
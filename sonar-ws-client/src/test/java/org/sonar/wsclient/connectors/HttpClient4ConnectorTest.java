@@ -0,0 +1,92 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.wsclient.connectors;
+
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mortbay.jetty.testing.ServletTester;
+import org.sonar.wsclient.Host;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.junit.internal.matchers.StringContains.containsString;
+
+public class HttpClient4ConnectorTest {
+
+  private static ServletTester tester;
+  private static String baseUrl;
+
+  private int releasedClients;
+  private HttpClient4Connector connector;
+
+  @BeforeClass
+  public static void startServer() throws Exception {
+    tester = new ServletTester();
+    tester.setContextPath("/");
+    tester.addServlet(StatusServlet.class, "/api/status");
+    baseUrl = tester.createSocketConnector(true);
+    tester.start();
+  }
+
+  @AfterClass
+  public static void stopServer() throws Exception {
+    tester.stop();
+  }
+
+  @Before
+  public void setUp() {
+    releasedClients = 0;
+    connector = new HttpClient4Connector(new Host(baseUrl)) {
+      @Override
+      void releaseClient(DefaultHttpClient client) {
+        releasedClients++;
+        super.releaseClient(client);
+      }
+    };
+  }
+
+  @Test
+  public void shouldReturnResponse() {
+    assertThat(connector.execute(new StatusServlet.StatusQuery(200)), is(StatusServlet.JSON));
+    assertThat(releasedClients, is(1));
+  }
+
+  @Test
+  public void shouldReleaseClientWhenNotFound() {
+    assertThat(connector.execute(new StatusServlet.StatusQuery(404)), nullValue());
+    assertThat(releasedClients, is(1));
+  }
+
+  @Test
+  public void shouldReleaseClientOnServerError() {
+    try {
+      connector.execute(new StatusServlet.StatusQuery(500));
+      fail();
+    } catch (ConnectionException e) {
+      assertThat(e.getMessage(), containsString("HTTP error: 500"));
+    }
+    assertThat(releasedClients, is(1));
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.wsclient.connectors;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mortbay.jetty.testing.ServletTester;
+import org.sonar.wsclient.Host;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class PooledHttpClient4ConnectorTest {
+
+  private static ServletTester tester;
+  private static String baseUrl;
+
+  private PooledHttpClient4Connector connector;
+
+  @BeforeClass
+  public static void startServer() throws Exception {
+    tester = new ServletTester();
+    tester.setContextPath("/");
+    tester.addServlet(StatusServlet.class, "/api/status");
+    baseUrl = tester.createSocketConnector(true);
+    tester.start();
+  }
+
+  @AfterClass
+  public static void stopServer() throws Exception {
+    tester.stop();
+  }
+
+  @Before
+  public void setUp() {
+    // a single connection, so that a request blocks if the connection of a previous response is not released
+    connector = new PooledHttpClient4Connector(new Host(baseUrl), 1, 1);
+  }
+
+  @After
+  public void tearDown() {
+    connector.close();
+  }
+
+  @Test
+  public void shouldDecompressGzipResponses() {
+    assertThat(connector.execute(new StatusServlet.StatusQuery(200)), is(StatusServlet.JSON));
+  }
+
+  @Test(timeout = 10000)
+  public void shouldReuseConnection() {
+    for (int i = 0; i < 3; i++) {
+      assertThat(connector.execute(new StatusServlet.StatusQuery(200)), is(StatusServlet.JSON));
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void shouldReleaseConnectionWhenNotFound() {
+    for (int i = 0; i < 3; i++) {
+      assertThat(connector.execute(new StatusServlet.StatusQuery(404)), nullValue());
+    }
+    assertThat(connector.execute(new StatusServlet.StatusQuery(200)), is(StatusServlet.JSON));
+  }
+
+  @Test(timeout = 10000)
+  public void shouldReleaseConnectionOnServerError() {
+    for (int i = 0; i < 3; i++) {
+      try {
+        connector.execute(new StatusServlet.StatusQuery(500));
+        fail();
+      } catch (ConnectionException e) {
+        // expected
+      }
+    }
+    assertThat(connector.execute(new StatusServlet.StatusQuery(200)), is(StatusServlet.JSON));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void shouldNotExecuteQueriesWhenClosed() {
+    connector.close();
+    connector.execute(new StatusServlet.StatusQuery(200));
+  }
+
+  @Test
+  public void shouldAcceptGzipEncoding() throws Exception {
+    BasicHttpRequest request = new BasicHttpRequest("GET", "/api/status");
+    new PooledHttpClient4Connector.AcceptGzipEncoding().process(request, new BasicHttpContext());
+    assertThat(request.getFirstHeader("Accept-Encoding").getValue(), is("gzip"));
+  }
+
+  @Test
+  public void shouldNotOverrideAcceptEncoding() throws Exception {
+    BasicHttpRequest request = new BasicHttpRequest("GET", "/api/status");
+    request.addHeader("Accept-Encoding", "identity");
+    new PooledHttpClient4Connector.AcceptGzipEncoding().process(request, new BasicHttpContext());
+    assertThat(request.getHeaders("Accept-Encoding").length, is(1));
+    assertThat(request.getFirstHeader("Accept-Encoding").getValue(), is("identity"));
+  }
+
+  @Test
+  public void shouldDecodeGzipEntity() throws Exception {
+    ByteArrayEntity entity = new ByteArrayEntity(gzip("{\"key\":\"value\"}"));
+    entity.setContentEncoding("gzip");
+    HttpResponse response = newResponse(entity);
+
+    new PooledHttpClient4Connector.GzipDecoding().process(response, new BasicHttpContext());
+
+    HttpEntity decoded = response.getEntity();
+    assertThat(decoded, instanceOf(PooledHttpClient4Connector.GzipDecompressingEntity.class));
+    assertThat(decoded.getContentLength(), is(-1L));
+    assertThat(IOUtils.toString(decoded.getContent(), "UTF-8"), is("{\"key\":\"value\"}"));
+  }
+
+  @Test
+  public void shouldNotDecodeEntityWhichIsNotGzipped() throws Exception {
+    ByteArrayEntity entity = new ByteArrayEntity("{}".getBytes("UTF-8"));
+    HttpResponse response = newResponse(entity);
+
+    new PooledHttpClient4Connector.GzipDecoding().process(response, new BasicHttpContext());
+
+    assertThat(response.getEntity(), sameInstance((HttpEntity) entity));
+  }
+
+  @Test
+  public void shouldNotDecodeEntityWithOtherEncoding() throws Exception {
+    ByteArrayEntity entity = new ByteArrayEntity("{}".getBytes("UTF-8"));
+    entity.setContentEncoding("deflate");
+    HttpResponse response = newResponse(entity);
+
+    new PooledHttpClient4Connector.GzipDecoding().process(response, new BasicHttpContext());
+
+    assertThat(response.getEntity(), not(instanceOf(PooledHttpClient4Connector.GzipDecompressingEntity.class)));
+  }
+
+  @Test
+  public void shouldAcceptResponseWithoutEntity() throws Exception {
+    HttpResponse response = newResponse(null);
+    new PooledHttpClient4Connector.GzipDecoding().process(response, new BasicHttpContext());
+    assertThat(response.getEntity(), nullValue());
+  }
+
+  private static HttpResponse newResponse(HttpEntity entity) {
+    HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+    response.setEntity(entity);
+    return response;
+  }
+
+  private static byte[] gzip(String content) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    GZIPOutputStream out = new GZIPOutputStream(bytes);
+    out.write(content.getBytes("UTF-8"));
+    out.close();
+    return bytes.toByteArray();
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2011 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.wsclient.connectors;
+
+import org.sonar.wsclient.services.Metric;
+import org.sonar.wsclient.services.Query;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Answers the HTTP status given by the parameter "status", and gzips the response when the client accepts it.
+ */
+public class StatusServlet extends HttpServlet {
+
+  static final String JSON = "[]";
+
+  @Override
+  protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+    int status = Integer.parseInt(request.getParameter("status"));
+    if (status != HttpServletResponse.SC_OK) {
+      response.sendError(status, "Error " + status);
+      return;
+    }
+    String acceptEncoding = request.getHeader("Accept-Encoding");
+    if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+      response.setHeader("Content-Encoding", "gzip");
+      OutputStream out = new GZIPOutputStream(response.getOutputStream());
+      out.write(JSON.getBytes("UTF-8"));
+      out.close();
+    } else {
+      response.getWriter().print(JSON);
+    }
+  }
+
+  static final class StatusQuery extends Query<Metric> {
+    private final int status;
+
+    StatusQuery(int status) {
+      this.status = status;
+    }
+
+    public String getUrl() {
+      return "/api/status?status=" + status;
+    }
+
+    public Class<Metric> getModelClass() {
+      return Metric.class;
+    }
+  }
+}